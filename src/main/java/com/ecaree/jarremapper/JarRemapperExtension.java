@@ -1,5 +1,6 @@
 package com.ecaree.jarremapper;
 
+import com.ecaree.jarremapper.util.OutputCompression;
 import lombok.Getter;
 import org.gradle.api.Project;
 import org.gradle.api.file.ConfigurableFileCollection;
@@ -74,6 +75,54 @@ public class JarRemapperExtension {
      */
     private final Property<Boolean> injectReadableInfo;
 
+    /**
+     * 处理 JAR 中类文件的并行线程数，1 表示串行
+     * 输出顺序与串行处理一致
+     * 默认 CPU 核心数
+     */
+    private final Property<Integer> jarParallelism;
+
+    /**
+     * 输出 JAR 中重新生成条目的压缩方式
+     * deflate：整体压缩，store：不压缩，parallel：大条目分块并行压缩
+     * 原样复制的资源保持原有压缩
+     * 默认 deflate
+     */
+    private final Property<String> jarCompression;
+
+    /**
+     * 输出 JAR 的 deflate 压缩级别，0-9
+     * 默认 6
+     */
+    private final Property<Integer> jarCompressionLevel;
+
+    /**
+     * 是否增量重映射 JAR
+     * 在输出 JAR 旁保存索引，内容与用到的映射都未变化的类直接复制上次的输出
+     * 默认 false
+     */
+    private final Property<Boolean> jarIncremental;
+
+    /**
+     * 重映射 JAR 时 JDK 类继承关系快照对应的 Java 版本
+     * 使用不高于该版本的最新快照（8、11、17、21），0 表示按输入 JAR 的类文件版本选择
+     * 默认 0
+     */
+    private final Property<Integer> jarTargetJavaVersion;
+
+    /**
+     * 重映射任务的 Worker 隔离方式
+     * none：在守护进程中执行，classloader：独立类加载器，process：独立进程，不占用守护进程堆内存
+     * 默认 none
+     */
+    private final Property<String> workerIsolation;
+
+    /**
+     * process 隔离时 Worker 进程的最大堆内存，如 2g
+     * 默认不设置，使用 Gradle 的默认值
+     */
+    private final Property<String> workerMaxHeapSize;
+
     /**
      * Smali 输入目录
      * 默认 src/main/smali/classes
@@ -134,6 +183,32 @@ public class JarRemapperExtension {
      */
     private final ConfigurableFileCollection javaLibraryJars;
 
+    /**
+     * 是否启用 Java 重映射内存受限模式
+     * 每个文件处理后立即释放 AST 与解析缓存，适用于大型源码树
+     * 默认 false
+     */
+    private final Property<Boolean> javaMemoryBounded;
+
+    /**
+     * 内存受限模式下源码类型缓存的最大条目数
+     * 默认 500
+     */
+    private final Property<Integer> javaTypeSolverCacheSize;
+
+    /**
+     * 内存受限模式下的堆占用水位百分比，超过后降为单线程解析并重建源码目录的类型解析器
+     * 默认 80
+     */
+    private final Property<Integer> javaHeapWatermark;
+
+    /**
+     * 同时解析的 Java 源文件数，1 表示串行
+     * 每个线程持有独立的解析器与类型解析缓存，内存占用随线程数增长
+     * 默认 CPU 核心数与 4 中的较小值
+     */
+    private final Property<Integer> javaParallelism;
+
     /**
      * 报告输出目录
      * 默认 build/reports/jarRemapper
@@ -154,6 +229,13 @@ public class JarRemapperExtension {
         this.remapJar = objects.property(Boolean.class);
         this.injectBytecodeAnnotations = objects.property(Boolean.class);
         this.injectReadableInfo = objects.property(Boolean.class);
+        this.jarParallelism = objects.property(Integer.class);
+        this.jarCompression = objects.property(String.class);
+        this.jarCompressionLevel = objects.property(Integer.class);
+        this.jarIncremental = objects.property(Boolean.class);
+        this.jarTargetJavaVersion = objects.property(Integer.class);
+        this.workerIsolation = objects.property(String.class);
+        this.workerMaxHeapSize = objects.property(String.class);
         this.smaliInputDir = objects.directoryProperty();
         this.smaliOutputDir = objects.directoryProperty();
         this.remapSmali = objects.property(Boolean.class);
@@ -164,6 +246,10 @@ public class JarRemapperExtension {
         this.javaBackupDir = objects.directoryProperty();
         this.enableJavaMigrateTask = objects.property(Boolean.class);
         this.javaLibraryJars = objects.fileCollection();
+        this.javaMemoryBounded = objects.property(Boolean.class);
+        this.javaTypeSolverCacheSize = objects.property(Integer.class);
+        this.javaHeapWatermark = objects.property(Integer.class);
+        this.javaParallelism = objects.property(Integer.class);
         this.reportsDir = objects.directoryProperty();
 
         mappingsFile.convention(layout.getProjectDirectory().file("mappings.yaml"));
@@ -173,6 +259,12 @@ public class JarRemapperExtension {
         remapJar.convention(true);
         injectBytecodeAnnotations.convention(true);
         injectReadableInfo.convention(false);
+        jarParallelism.convention(Runtime.getRuntime().availableProcessors());
+        jarCompression.convention("deflate");
+        jarCompressionLevel.convention(6);
+        jarIncremental.convention(false);
+        jarTargetJavaVersion.convention(0);
+        workerIsolation.convention("none");
 
         smaliInputDir.convention(layout.getProjectDirectory().dir("src/main/smali/classes"));
         smaliOutputDir.convention(layout.getBuildDirectory().dir("generated/remappedSmali/classes"));
@@ -184,6 +276,10 @@ public class JarRemapperExtension {
         javaOutputDir.convention(layout.getBuildDirectory().dir("generated/remappedJava"));
         javaBackupDir.convention(layout.getProjectDirectory().dir("src/main/java-obf-backup"));
         enableJavaMigrateTask.convention(true);
+        javaMemoryBounded.convention(false);
+        javaTypeSolverCacheSize.convention(500);
+        javaHeapWatermark.convention(80);
+        javaParallelism.convention(Math.min(4, Runtime.getRuntime().availableProcessors()));
 
         reportsDir.convention(layout.getBuildDirectory().dir("reports/jarRemapper"));
     }
@@ -224,6 +320,34 @@ public class JarRemapperExtension {
         this.injectReadableInfo.set(value);
     }
 
+    public void setJarParallelism(int threads) {
+        this.jarParallelism.set(threads);
+    }
+
+    public void setJarCompression(String mode) {
+        this.jarCompression.set(mode);
+    }
+
+    public void setJarCompressionLevel(int level) {
+        this.jarCompressionLevel.set(level);
+    }
+
+    public void setJarIncremental(boolean value) {
+        this.jarIncremental.set(value);
+    }
+
+    public void setJarTargetJavaVersion(int version) {
+        this.jarTargetJavaVersion.set(version);
+    }
+
+    public void setWorkerIsolation(String isolation) {
+        this.workerIsolation.set(isolation);
+    }
+
+    public void setWorkerMaxHeapSize(String maxHeapSize) {
+        this.workerMaxHeapSize.set(maxHeapSize);
+    }
+
     public void setSmaliInputDir(Object dir) {
         this.smaliInputDir.fileValue(project.file(dir));
     }
@@ -264,10 +388,33 @@ public class JarRemapperExtension {
         this.javaLibraryJars.setFrom(files);
     }
 
+    public void setJavaMemoryBounded(boolean value) {
+        this.javaMemoryBounded.set(value);
+    }
+
+    public void setJavaTypeSolverCacheSize(int size) {
+        this.javaTypeSolverCacheSize.set(size);
+    }
+
+    public void setJavaHeapWatermark(int percent) {
+        this.javaHeapWatermark.set(percent);
+    }
+
+    public void setJavaParallelism(int threads) {
+        this.javaParallelism.set(threads);
+    }
+
     public void setReportsDir(Object dir) {
         this.reportsDir.fileValue(project.file(dir));
     }
 
+    /**
+     * 根据配置创建输出 JAR 的压缩方式
+     */
+    public OutputCompression createOutputCompression() {
+        return new OutputCompression(OutputCompression.Mode.parse(jarCompression.get()), jarCompressionLevel.get());
+    }
+
     /**
      * 获取有效的映射文件
      */
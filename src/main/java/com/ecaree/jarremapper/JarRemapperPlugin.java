@@ -1,26 +1,61 @@
 package com.ecaree.jarremapper;
 
+import com.ecaree.jarremapper.mapping.MappingResolver;
+import com.ecaree.jarremapper.task.AbstractMappingTask;
+import com.ecaree.jarremapper.task.AbstractWorkerTask;
 import com.ecaree.jarremapper.task.ChainRemapTask;
 import com.ecaree.jarremapper.task.InjectJarAnnotationsTask;
+import com.ecaree.jarremapper.task.MappingPrefetchService;
 import com.ecaree.jarremapper.task.MigrateJavaTask;
 import com.ecaree.jarremapper.task.MigrateSmaliTask;
 import com.ecaree.jarremapper.task.RemapJarTask;
+import com.ecaree.jarremapper.task.RemapJarTransform;
+import com.ecaree.jarremapper.task.RemapJarsTask;
 import com.ecaree.jarremapper.task.RemapJavaTask;
 import com.ecaree.jarremapper.task.RemapSmaliTask;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
+import org.gradle.api.artifacts.type.ArtifactTypeDefinition;
+import org.gradle.api.artifacts.dsl.DependencyHandler;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildServiceRegistration;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.build.event.BuildEventsListenerRegistry;
 
+import javax.inject.Inject;
+
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class JarRemapperPlugin implements Plugin<Project> {
     public static final String EXTENSION_NAME = "jarRemapper";
     public static final String TASK_GROUP = "jarRemapper";
+    /**
+     * 配置请求此属性为 true 时，依赖构件经 RemapJarTransform 重映射后提供
+     */
+    public static final Attribute<Boolean> REMAPPED_ATTRIBUTE =
+            Attribute.of("com.ecaree.jarremapper.remapped", Boolean.class);
     private static final String TASK_PREFIX = "jr";
+    private static final String[] ANDROID_PLUGIN_IDS = {
+            "com.android.application", "com.android.library", "com.android.dynamic-feature", "com.android.test"
+    };
     private final Map<String, String> resolvedNames = new HashMap<>();
+    private final BuildEventsListenerRegistry buildEvents;
+
+    @Inject
+    public JarRemapperPlugin(BuildEventsListenerRegistry buildEvents) {
+        this.buildEvents = buildEvents;
+    }
 
     @Override
     public void apply(Project project) {
@@ -29,21 +64,25 @@ public class JarRemapperPlugin implements Plugin<Project> {
 
         resolveTaskNames(project);
 
-        registerRemapJarTask(project, extension);
-        registerInjectJarAnnotationsTask(project, extension);
+        TaskProvider<RemapJarTask> remapJarTask = registerRemapJarTask(project, extension);
+        registerInjectJarAnnotationsTask(project, extension, remapJarTask);
         registerRemapSmaliTask(project, extension);
         registerMigrateSmaliTask(project, extension);
         registerRemapJavaTask(project, extension);
         registerMigrateJavaTask(project, extension);
         registerChainRemapTask(project, extension);
+        registerRemapJarsTask(project, extension);
+        registerRemapTransform(project, extension);
 
+        configureWorkerTasks(project, extension);
+        configureLibraryTasks(project);
         configureTaskDependencies(project, extension);
     }
 
     private void resolveTaskNames(Project project) {
         String[] names = {
                 "remapJar", "injectJarAnnotations", "remapSmali",
-                "migrateSmali", "remapJava", "migrateJava", "chainRemapJar"
+                "migrateSmali", "remapJava", "migrateJava", "chainRemapJar", "remapJars"
         };
         for (String name : names) {
             if (project.getTasks().getNames().contains(name)) {
@@ -60,41 +99,89 @@ public class JarRemapperPlugin implements Plugin<Project> {
         return resolvedNames.getOrDefault(original, original);
     }
 
-    private void registerRemapJarTask(Project project, JarRemapperExtension extension) {
-        project.getTasks().register(resolveTaskName("remapJar"), RemapJarTask.class, t -> {
+    /**
+     * 所有 Worker 任务（包括用户自行注册的）使用 extension 的隔离配置
+     */
+    private void configureWorkerTasks(Project project, JarRemapperExtension extension) {
+        project.getTasks().withType(AbstractWorkerTask.class).configureEach(t -> {
+            t.getWorkerIsolation().convention(extension.getWorkerIsolation());
+            t.getWorkerMaxHeapSize().convention(extension.getWorkerMaxHeapSize());
+        });
+    }
+
+    private void configureMapping(AbstractMappingTask task, JarRemapperExtension extension) {
+        task.getMappingFile().convention(extension.getMappingsFile());
+        task.getSourceNamespace().convention(extension.getSourceNamespace());
+        task.getTargetNamespace().convention(extension.getTargetNamespace());
+        task.getExcludedPackages().convention(extension.getExcludedPackages());
+    }
+
+    private TaskProvider<RemapJarTask> registerRemapJarTask(Project project, JarRemapperExtension extension) {
+        Provider<Boolean> enabled = extension.getRemapJar();
+        return project.getTasks().register(resolveTaskName("remapJar"), RemapJarTask.class, t -> {
             t.setGroup(TASK_GROUP);
             t.setDescription("Remap obfuscated JAR to readable naming using SpecialSource");
-            t.setExtension(extension);
-            t.onlyIf(spec -> extension.getRemapJar().get());
+            t.getDefaultInputJar().convention(extension.getInputJar());
+            t.getDefaultOutputJar().convention(extension.getOutputJar());
+            t.getDefaultMappingFile().convention(extension.getMappingsFile());
+            t.getDefaultSourceNamespace().convention(extension.getSourceNamespace());
+            t.getDefaultTargetNamespace().convention(extension.getTargetNamespace());
+            t.getDefaultExcludedPackages().convention(extension.getExcludedPackages());
+            t.getInjectAnnotations().convention(extension.getInjectBytecodeAnnotations());
+            t.getInjectReadableInfo().convention(extension.getInjectReadableInfo());
+            t.getCompression().convention(extension.getJarCompression());
+            t.getCompressionLevel().convention(extension.getJarCompressionLevel());
+            t.getTargetJavaVersion().convention(extension.getJarTargetJavaVersion());
+            t.getIncremental().convention(extension.getJarIncremental());
+            t.onlyIf(spec -> enabled.get());
         });
     }
 
-    private void registerInjectJarAnnotationsTask(Project project, JarRemapperExtension extension) {
+    private void registerInjectJarAnnotationsTask(Project project, JarRemapperExtension extension,
+                                                  TaskProvider<RemapJarTask> remapJarTask) {
+        Provider<Boolean> enabled = extension.getInjectBytecodeAnnotations();
+        Provider<Boolean> remapJarEnabled = extension.getRemapJar();
         project.getTasks().register(resolveTaskName("injectJarAnnotations"), InjectJarAnnotationsTask.class, t -> {
             t.setGroup(TASK_GROUP);
             t.setDescription("Inject mapping annotations into remapped JAR");
-            t.setExtension(extension);
+            configureMapping(t, extension);
+            t.getJar().convention(extension.getOutputJar());
+            t.getIncludeReadableInfo().convention(extension.getInjectReadableInfo());
+            t.getCompression().convention(extension.getJarCompression());
+            t.getCompressionLevel().convention(extension.getJarCompressionLevel());
+            t.getParallelism().convention(extension.getJarParallelism());
             t.dependsOn(resolveTaskName("remapJar"));
-            t.onlyIf(spec -> extension.getInjectBytecodeAnnotations().get());
+            t.onlyIf(spec -> enabled.get());
+            // remapJar 已在同一遍处理中注入注解时跳过，避免重复读写 JAR
+            Provider<Boolean> fused = remapJarTask.flatMap(RemapJarTask::fusedAnnotationInjection);
+            t.onlyIf(spec -> !remapJarEnabled.get() || !fused.get());
         });
     }
 
     private void registerRemapSmaliTask(Project project, JarRemapperExtension extension) {
+        Provider<Boolean> enabled = extension.getRemapSmali();
         project.getTasks().register(resolveTaskName("remapSmali"), RemapSmaliTask.class, t -> {
             t.setGroup(TASK_GROUP);
             t.setDescription("Remap obfuscated smali source to readable naming");
-            t.setExtension(extension);
-            t.onlyIf(spec -> extension.getRemapSmali().get());
+            configureMapping(t, extension);
+            t.getInputDir().convention(extension.getSmaliInputDir());
+            t.getInputJar().convention(extension.getInputJar());
+            t.getOutputDir().convention(extension.getSmaliOutputDir());
+            t.onlyIf(spec -> enabled.get());
         });
     }
 
     private void registerMigrateSmaliTask(Project project, JarRemapperExtension extension) {
+        Provider<Boolean> enabled = extension.getEnableSmaliMigrateTask();
         project.getTasks().register(resolveTaskName("migrateSmali"), MigrateSmaliTask.class, t -> {
             t.setGroup(TASK_GROUP);
             t.setDescription("Migrate remapped smali back to project directory");
-            t.setExtension(extension);
+            t.getSourceDir().convention(extension.getSmaliOutputDir());
+            t.getTargetDir().convention(extension.getSmaliInputDir());
+            t.getBackupDir().convention(extension.getSmaliBackupDir());
+            t.getReportsDir().convention(extension.getReportsDir());
             t.dependsOn(resolveTaskName("remapSmali"));
-            t.onlyIf(spec -> extension.getEnableSmaliMigrateTask().get());
+            t.onlyIf(spec -> enabled.get());
         });
     }
 
@@ -102,17 +189,30 @@ public class JarRemapperPlugin implements Plugin<Project> {
         project.getTasks().register(resolveTaskName("remapJava"), RemapJavaTask.class, t -> {
             t.setGroup(TASK_GROUP);
             t.setDescription("Remap obfuscated Java source to readable naming");
-            t.setExtension(extension);
+            configureMapping(t, extension);
+            t.getInputDir().convention(extension.getJavaInputDir());
+            t.getInputJar().convention(extension.getInputJar());
+            t.getRemappedJar().convention(extension.getOutputJar());
+            t.getOutputDir().convention(extension.getJavaOutputDir());
+            t.getLibraryJars().from(extension.getJavaLibraryJars());
+            t.getMemoryBounded().convention(extension.getJavaMemoryBounded());
+            t.getTypeSolverCacheSize().convention(extension.getJavaTypeSolverCacheSize());
+            t.getHeapWatermark().convention(extension.getJavaHeapWatermark());
+            t.getParallelism().convention(extension.getJavaParallelism());
         });
     }
 
     private void registerMigrateJavaTask(Project project, JarRemapperExtension extension) {
+        Provider<Boolean> enabled = extension.getEnableJavaMigrateTask();
         project.getTasks().register(resolveTaskName("migrateJava"), MigrateJavaTask.class, t -> {
             t.setGroup(TASK_GROUP);
             t.setDescription("Migrate remapped Java source back to project directory");
-            t.setExtension(extension);
+            t.getSourceDir().convention(extension.getJavaOutputDir());
+            t.getTargetDir().convention(extension.getJavaInputDir());
+            t.getBackupDir().convention(extension.getJavaBackupDir());
+            t.getReportsDir().convention(extension.getReportsDir());
             t.dependsOn(resolveTaskName("remapJava"));
-            t.onlyIf(spec -> extension.getEnableJavaMigrateTask().get());
+            t.onlyIf(spec -> enabled.get());
         });
     }
 
@@ -120,34 +220,148 @@ public class JarRemapperPlugin implements Plugin<Project> {
         project.getTasks().register(resolveTaskName("chainRemapJar"), ChainRemapTask.class, t -> {
             t.setGroup(TASK_GROUP);
             t.setDescription("Remap JAR using a chain of mappings");
-            t.setExtension(extension);
+            t.getTargetJavaVersion().convention(extension.getJarTargetJavaVersion());
         });
     }
 
-    private void configureTaskDependencies(Project project, JarRemapperExtension extension) {
-        project.afterEvaluate(p -> {
-            if (!extension.getRemapJar().get()) return;
+    private void registerRemapJarsTask(Project project, JarRemapperExtension extension) {
+        project.getTasks().register(resolveTaskName("remapJars"), RemapJarsTask.class, t -> {
+            t.setGroup(TASK_GROUP);
+            t.setDescription("Remap a collection of JARs sharing one mapping and class hierarchy");
+            configureMapping(t, extension);
+            t.getOutputDir().convention(project.getLayout().getBuildDirectory().dir("remappedJars"));
+            t.getCompression().convention(extension.getJarCompression());
+            t.getCompressionLevel().convention(extension.getJarCompressionLevel());
+            t.getTargetJavaVersion().convention(extension.getJarTargetJavaVersion());
+            t.getParallelism().convention(extension.getJarParallelism());
+        });
+    }
 
-            List<String> remapTasks = new ArrayList<>();
-            remapTasks.add(resolveTaskName("remapJar"));
-            if (extension.getInjectBytecodeAnnotations().get()) {
-                remapTasks.add(resolveTaskName("injectJarAnnotations"));
-            }
+    /**
+     * 所有 JAR 构件默认不带 remapped 属性，配置请求该属性时才会执行转换
+     */
+    private void registerRemapTransform(Project project, JarRemapperExtension extension) {
+        DependencyHandler dependencies = project.getDependencies();
+        File hierarchyCacheDir = new File(project.getGradle().getGradleUserHomeDir(), "caches/jarremapper/hierarchy");
+        dependencies.getAttributesSchema().attribute(REMAPPED_ATTRIBUTE);
+        dependencies.getArtifactTypes().maybeCreate(ArtifactTypeDefinition.JAR_TYPE)
+                .getAttributes().attribute(REMAPPED_ATTRIBUTE, false);
+        Provider<MappingPrefetchService> mappingService = registerMappingService(project);
+        dependencies.registerTransform(RemapJarTransform.class, spec -> {
+            spec.getFrom().attribute(REMAPPED_ATTRIBUTE, false)
+                    .attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, ArtifactTypeDefinition.JAR_TYPE);
+            spec.getTo().attribute(REMAPPED_ATTRIBUTE, true)
+                    .attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, ArtifactTypeDefinition.JAR_TYPE);
+            spec.parameters(p -> {
+                p.getMappingFile().convention(extension.getMappingsFile());
+                p.getSourceNamespace().convention(extension.getSourceNamespace());
+                p.getTargetNamespace().convention(extension.getTargetNamespace());
+                p.getExcludedPackages().convention(extension.getExcludedPackages());
+                p.getReverse().convention(false);
+                p.getCompression().convention(extension.getJarCompression());
+                p.getCompressionLevel().convention(extension.getJarCompressionLevel());
+                p.getTargetJavaVersion().convention(extension.getJarTargetJavaVersion());
+                p.getHierarchyCacheDir().convention(project.getLayout().getProjectDirectory()
+                        .dir(hierarchyCacheDir.getAbsolutePath()));
+                p.getMappingService().convention(mappingService);
+            });
+        });
+    }
+
+    /**
+     * 链式任务的 Maven 坐标在配置阶段一次性解析，任务执行时不再访问 Project
+     * 只有任务进入任务图时才会解析，任务图确定后把映射登记为预加载请求，执行阶段开始时在后台加载
+     * 链式与批量任务的库 JAR 继承关系缓存在 Gradle 用户目录中
+     */
+    private void configureLibraryTasks(Project project) {
+        MappingResolver resolver = new MappingResolver(project);
+        Directory projectDir = project.getLayout().getProjectDirectory();
+        File hierarchyCacheDir = new File(project.getGradle().getGradleUserHomeDir(), "caches/jarremapper/hierarchy");
+        Provider<MappingPrefetchService> mappingService = registerMappingService(project);
+        project.getTasks().withType(ChainRemapTask.class).configureEach(t -> {
+            t.getResolvedMappingCoordinates().convention(t.getMappingCoordinates().map(coordinates -> {
+                List<RegularFile> files = new ArrayList<>();
+                for (File file : resolver.resolveAll(coordinates)) {
+                    files.add(projectDir.file(file.getAbsolutePath()));
+                }
+                return files;
+            }));
+            t.getHierarchyCacheDir().convention(projectDir.dir(hierarchyCacheDir.getAbsolutePath()));
+            t.getMappingService().convention(mappingService);
+            t.usesService(mappingService);
+        });
+        project.getTasks().withType(RemapJarsTask.class).configureEach(t ->
+                t.getHierarchyCacheDir().convention(projectDir.dir(hierarchyCacheDir.getAbsolutePath())));
 
-            // Android 项目挂载到 preBuild
-            Task preBuildTask = p.getTasks().findByName("preBuild");
-            if (preBuildTask != null) {
-                preBuildTask.dependsOn(remapTasks);
-                p.getLogger().lifecycle("JarRemapper: Hooked to preBuild task");
+        // 此处只登记请求，不读取映射；映射加载与排在前面的任务并行，链式任务开始时映射通常已在内存中
+        // 请求随服务参数存入配置缓存，缓存命中时同样预加载；任务 UP-TO-DATE 或 FROM-CACHE 时预加载被取消
+        project.getGradle().getTaskGraph().whenReady(graph -> {
+            List<String> requests = new ArrayList<>();
+            for (Task task : graph.getAllTasks()) {
+                if (task instanceof ChainRemapTask && task.getProject() == project) {
+                    requests.addAll(((ChainRemapTask) task).prefetchRequests());
+                }
+            }
+            if (requests.isEmpty()) {
                 return;
             }
+            BuildServiceRegistration<?, ?> registration = project.getGradle().getSharedServices()
+                    .getRegistrations().getByName(MappingPrefetchService.NAME);
+            try {
+                ((MappingPrefetchService.Params) registration.getParameters()).getRequests().addAll(requests);
+            } catch (IllegalStateException e) {
+                // 服务已在配置阶段创建（如解析依赖时执行了转换），参数不可再修改，映射在任务执行时按需加载
+                project.getLogger().info("JarRemapper: Mapping prefetch service already created, loading mappings on demand");
+            }
+        });
+    }
 
-            // Java 项目挂载到 compileJava
-            Task compileJavaTask = p.getTasks().findByName("compileJava");
-            if (compileJavaTask != null) {
-                compileJavaTask.dependsOn(remapTasks);
-                p.getLogger().lifecycle("JarRemapper: Hooked to compileJava task");
+    /**
+     * 映射加载服务在整个构建中共享，链式任务与依赖重映射转换都经由它加载映射
+     * 服务同时监听任务结束，释放已结束任务的预加载
+     */
+    private Provider<MappingPrefetchService> registerMappingService(Project project) {
+        boolean registered = project.getGradle().getSharedServices()
+                .getRegistrations().findByName(MappingPrefetchService.NAME) != null;
+        Provider<MappingPrefetchService> service = project.getGradle().getSharedServices()
+                .registerIfAbsent(MappingPrefetchService.NAME, MappingPrefetchService.class, spec -> {
+                });
+        if (!registered) {
+            buildEvents.onTaskCompletion(service);
+        }
+        return service;
+    }
+
+    private void configureTaskDependencies(Project project, JarRemapperExtension extension) {
+        Provider<List<String>> remapTasks = extension.getRemapJar().map(remapJar -> {
+            List<String> names = new ArrayList<>();
+            if (remapJar) {
+                names.add(resolveTaskName("remapJar"));
+                if (extension.getInjectBytecodeAnnotations().get()) {
+                    names.add(resolveTaskName("injectJarAnnotations"));
+                }
             }
+            return names;
         });
+
+        // Android 项目挂载到 preBuild，否则 Java 项目挂载到 compileJava
+        // 插件应用顺序不定，是否为 Android 项目在计算任务依赖时才判断；remapJar 为 false 时不添加依赖
+        AtomicBoolean android = new AtomicBoolean();
+        for (String pluginId : ANDROID_PLUGIN_IDS) {
+            project.getPluginManager().withPlugin(pluginId, plugin -> {
+                if (!android.compareAndSet(false, true)) return;
+                project.getTasks().configureEach(task -> {
+                    if ("preBuild".equals(task.getName())) {
+                        task.dependsOn(remapTasks);
+                        project.getLogger().info("JarRemapper: Hooked to preBuild task");
+                    }
+                });
+            });
+        }
+        project.getPluginManager().withPlugin("java", plugin ->
+                project.getTasks().named(JavaPlugin.COMPILE_JAVA_TASK_NAME).configure(task -> {
+                    task.dependsOn(remapTasks.map(names -> android.get() ? Collections.<String>emptyList() : names));
+                    project.getLogger().info("JarRemapper: Hooked to compileJava task");
+                }));
     }
-}
\ No newline at end of file
+}
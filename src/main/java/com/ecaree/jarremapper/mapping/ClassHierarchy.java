@@ -0,0 +1,194 @@
+package com.ecaree.jarremapper.mapping;
+
+import com.ecaree.jarremapper.util.ZipReader;
+import lombok.extern.slf4j.Slf4j;
+import net.md_5.specialsource.provider.InheritanceProvider;
+import org.objectweb.asm.ClassReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BinaryOperator;
+
+/**
+ * 类继承关系索引
+ * 通过 ASM 从 JAR 中读取每个类的父类与接口，只解析常量池和类头，不访问类体
+ * 同时作为 SpecialSource 的 InheritanceProvider 使用
+ */
+@Slf4j
+public class ClassHierarchy implements InheritanceProvider {
+    /**
+     * 类名 -> 父类与接口，父类在前
+     */
+    private final Map<String, List<String>> parents = new HashMap<>();
+
+    /**
+     * 解析过的类文件中最高的主版本号
+     */
+    private int maxMajorVersion;
+
+    /**
+     * 从多个 JAR 构建继承关系
+     * 同名类以先出现的 JAR 为准，因此输入 JAR 应放在库 JAR 之前
+     */
+    public static ClassHierarchy fromJars(Collection<File> jars) throws IOException {
+        ClassHierarchy hierarchy = new ClassHierarchy();
+        for (File jar : jars) {
+            if (jar != null && jar.isFile()) {
+                hierarchy.addJar(jar);
+            }
+        }
+        log.info("Built class hierarchy: {} classes", hierarchy.size());
+        return hierarchy;
+    }
+
+    public void addJar(File jar) throws IOException {
+        try (ZipReader reader = new ZipReader(jar)) {
+            for (ZipReader.Entry entry : reader.getEntries()) {
+                if (entry.isDirectory() || !entry.getName().endsWith(".class")) {
+                    continue;
+                }
+                try {
+                    addClass(reader.readData(entry));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Skipping unreadable class {} in {}: {}", entry.getName(), jar.getName(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    public void addClass(byte[] classBytes) {
+        ClassReader reader = new ClassReader(classBytes);
+        maxMajorVersion = Math.max(maxMajorVersion, reader.readUnsignedShort(6));
+        String className = reader.getClassName();
+        if (parents.containsKey(className)) {
+            return;
+        }
+
+        List<String> classParents = new ArrayList<>();
+        if (reader.getSuperName() != null) {
+            classParents.add(reader.getSuperName());
+        }
+        Collections.addAll(classParents, reader.getInterfaces());
+        addClass(className, classParents);
+    }
+
+    public void addClass(String className, List<String> classParents) {
+        parents.putIfAbsent(className, classParents.isEmpty()
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(classParents)));
+    }
+
+    /**
+     * 获取直接父类与接口，未知类返回 null
+     */
+    @Override
+    public List<String> getParents(String className) {
+        return parents.get(className);
+    }
+
+    public boolean contains(String className) {
+        return parents.containsKey(className);
+    }
+
+    public Set<String> getClassNames() {
+        return Collections.unmodifiableSet(parents.keySet());
+    }
+
+    public int size() {
+        return parents.size();
+    }
+
+    /**
+     * 解析过的类文件所需的最低 Java 版本，没有解析过类文件时返回 0
+     */
+    public int getJavaVersion() {
+        return maxMajorVersion > 44 ? maxMajorVersion - 44 : 0;
+    }
+
+    /**
+     * 将按所有者分组的成员展开为包含继承成员的视图
+     * 查找顺序与 SpecialSource 的 tryClimb 一致：自身优先，然后按父类、接口的顺序深度优先
+     * 没有自身成员且只有一个非空父视图的类直接共享父视图，避免重复复制
+     *
+     * @param ownMembers 所有者 -> 成员键 -> 值，值可以为 null
+     * @return 所有者 -> 包含继承成员的视图，只包含非空视图
+     */
+    public <V> Map<String, Map<String, V>> flatten(Map<String, Map<String, V>> ownMembers) {
+        return flatten(ownMembers, null);
+    }
+
+    /**
+     * 同 {@link #flatten(Map)}，自身与继承视图都有同一成员键时用 merger 合并
+     *
+     * @param merger 参数依次为先出现与后出现的值，不应修改参数；为 null 时先出现的值优先
+     */
+    public <V> Map<String, Map<String, V>> flatten(Map<String, Map<String, V>> ownMembers, BinaryOperator<V> merger) {
+        Map<String, Map<String, V>> memo = new HashMap<>();
+        Set<String> visiting = new HashSet<>();
+
+        for (String className : parents.keySet()) {
+            flattenClass(className, ownMembers, merger, memo, visiting);
+        }
+        for (String owner : ownMembers.keySet()) {
+            flattenClass(owner, ownMembers, merger, memo, visiting);
+        }
+
+        memo.values().removeIf(Map::isEmpty);
+        return memo;
+    }
+
+    private <V> Map<String, V> flattenClass(String className, Map<String, Map<String, V>> ownMembers,
+                                            BinaryOperator<V> merger, Map<String, Map<String, V>> memo,
+                                            Set<String> visiting) {
+        Map<String, V> cached = memo.get(className);
+        if (cached != null) {
+            return cached;
+        }
+        if (!visiting.add(className)) {
+            // 损坏的继承环，按无父类处理
+            return Collections.emptyMap();
+        }
+
+        Map<String, V> own = ownMembers.getOrDefault(className, Collections.emptyMap());
+        List<Map<String, V>> parentViews = new ArrayList<>();
+        List<String> classParents = parents.get(className);
+        if (classParents != null) {
+            for (String parent : classParents) {
+                Map<String, V> view = flattenClass(parent, ownMembers, merger, memo, visiting);
+                if (!view.isEmpty()) {
+                    parentViews.add(view);
+                }
+            }
+        }
+
+        Map<String, V> result;
+        if (own.isEmpty() && parentViews.isEmpty()) {
+            result = Collections.emptyMap();
+        } else if (own.isEmpty() && parentViews.size() == 1) {
+            result = parentViews.get(0);
+        } else {
+            result = new HashMap<>(own);
+            for (Map<String, V> view : parentViews) {
+                for (Map.Entry<String, V> entry : view.entrySet()) {
+                    if (!result.containsKey(entry.getKey())) {
+                        result.put(entry.getKey(), entry.getValue());
+                    } else if (merger != null) {
+                        result.put(entry.getKey(), merger.apply(result.get(entry.getKey()), entry.getValue()));
+                    }
+                }
+            }
+        }
+
+        visiting.remove(className);
+        memo.put(className, result);
+        return result;
+    }
+}
@@ -0,0 +1,157 @@
+package com.ecaree.jarremapper.mapping;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 库 JAR 继承关系的持久化缓存
+ * 以 JAR 内容的 SHA-1 为键保存每个类的父类与接口，命中时不再解析类文件
+ * 缓存文件先写入临时文件再移动，多个构建并发写入同一条目也不会读到不完整的文件
+ */
+@Slf4j
+public class ClassHierarchyCache {
+    private static final int MAGIC = 0x4A524843;
+    private static final int VERSION = 1;
+
+    @Getter
+    private final File cacheDir;
+
+    private int hits;
+    private int misses;
+
+    public ClassHierarchyCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * 将 JAR 的继承关系加入索引，优先使用缓存
+     * 与 ClassHierarchy.addJar 一样，已存在的类不会被覆盖
+     */
+    public void addJar(ClassHierarchy hierarchy, File jar) throws IOException {
+        String key = sha1(jar);
+        File cacheFile = new File(cacheDir, key + ".hierarchy");
+
+        ClassHierarchy jarHierarchy = read(cacheFile);
+        if (jarHierarchy != null) {
+            hits++;
+            log.debug("Class hierarchy cache hit for {}: {} classes", jar.getName(), jarHierarchy.size());
+        } else {
+            misses++;
+            jarHierarchy = new ClassHierarchy();
+            jarHierarchy.addJar(jar);
+            try {
+                write(cacheFile, jarHierarchy);
+            } catch (IOException e) {
+                log.warn("Failed to write class hierarchy cache {}: {}", cacheFile, e.getMessage());
+            }
+        }
+
+        for (String className : jarHierarchy.getClassNames()) {
+            hierarchy.addClass(className, jarHierarchy.getParents(className));
+        }
+    }
+
+    /**
+     * 缓存命中统计，用于任务日志
+     */
+    public String getSummary() {
+        return hits + " cached, " + misses + " parsed";
+    }
+
+    private static ClassHierarchy read(File cacheFile) {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            ClassHierarchy hierarchy = new ClassHierarchy();
+            int classCount = in.readInt();
+            for (int i = 0; i < classCount; i++) {
+                String className = in.readUTF();
+                int parentCount = in.readUnsignedShort();
+                List<String> parents = new ArrayList<>(parentCount);
+                for (int j = 0; j < parentCount; j++) {
+                    parents.add(in.readUTF());
+                }
+                hierarchy.addClass(className, parents);
+            }
+            return hierarchy;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable class hierarchy cache {}: {}", cacheFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void write(File cacheFile, ClassHierarchy hierarchy) throws IOException {
+        Path dir = cacheFile.getParentFile().toPath();
+        Files.createDirectories(dir);
+        Path tempFile = Files.createTempFile(dir, cacheFile.getName(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(hierarchy.size());
+                for (String className : hierarchy.getClassNames()) {
+                    List<String> parents = hierarchy.getParents(className);
+                    out.writeUTF(className);
+                    out.writeShort(parents.size());
+                    for (String parent : parents) {
+                        out.writeUTF(parent);
+                    }
+                }
+            }
+            try {
+                Files.move(tempFile, cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * 文件内容的 SHA-1
+     */
+    public static String sha1(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+
+        StringBuilder sb = new StringBuilder(40);
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
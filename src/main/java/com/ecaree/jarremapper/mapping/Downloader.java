@@ -0,0 +1,255 @@
+package com.ecaree.jarremapper.mapping;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 映射文件下载器
+ * 连接与读取均有超时，失败后按指数退避重试，目标文件已有部分内容时通过 HTTP Range 续传
+ * 元数据请求也经由 {@link #withRetry} 使用同样的重试策略
+ * 下载内容不做校验，由调用方校验后再移入缓存
+ */
+@Slf4j
+@Getter
+@Setter
+public class Downloader {
+    private int connectTimeout = 10_000;
+    private int readTimeout = 30_000;
+
+    /**
+     * 最大尝试次数，包括首次
+     */
+    private int maxAttempts = 4;
+
+    /**
+     * 首次重试前的等待毫秒数，之后每次翻倍
+     */
+    private long retryDelay = 1_000;
+
+    /**
+     * invokeAll 的最大并行数
+     */
+    private int parallelism = 4;
+
+    /**
+     * 可并行执行的下载任务
+     */
+    public interface Task<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * 下载到目标文件，目标文件已存在时从其末尾续传
+     */
+    public void download(URL url, Path target) throws IOException {
+        long startTime = System.nanoTime();
+        // 统计所有尝试实际传输的字节数，重试可能从头开始或从不同位置续传
+        AtomicLong transferred = new AtomicLong();
+        long resumedAt = withRetry(url, () -> transfer(url, target, transferred));
+
+        long bytes = transferred.get();
+        long millis = Math.max(1, (System.nanoTime() - startTime) / 1_000_000);
+        log.info("Downloaded {}: {} KB in {} ms ({} KB/s){}", target.getFileName(), bytes / 1024, millis,
+                bytes * 1000 / 1024 / millis, resumedAt > 0 ? ", resumed at " + resumedAt + " bytes" : "");
+    }
+
+    /**
+     * 执行请求，失败后按指数退避重试
+     * 请求抛出 {@link HttpStatusException} 且为客户端错误（超时与限流除外）时不重试
+     */
+    public <T> T withRetry(URL url, Task<T> request) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return request.call();
+            } catch (HttpStatusException e) {
+                if (!e.isRetryable() || attempt >= maxAttempts) {
+                    throw e;
+                }
+                backoff(url, attempt, e);
+            } catch (IOException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                backoff(url, attempt, e);
+            }
+        }
+    }
+
+    private void backoff(URL url, int attempt, IOException e) throws IOException {
+        long delay = retryDelay << (attempt - 1);
+        log.warn("Request to {} failed (attempt {}/{}), retrying in {} ms: {}",
+                url, attempt, maxAttempts, delay, e.getMessage());
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Download interrupted: " + url);
+        }
+    }
+
+    /**
+     * 打开设置了超时的连接
+     */
+    URLConnection open(URL url) throws IOException {
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        return connection;
+    }
+
+    /**
+     * 进行一次传输
+     *
+     * @param transferred 累加本次实际写入的字节数，传输中断时也包括已写入的部分
+     * @return 续传的起始位置，从头下载时为 0
+     */
+    private long transfer(URL url, Path target, AtomicLong transferred) throws IOException {
+        long existing = Files.isRegularFile(target) ? Files.size(target) : 0;
+        URLConnection connection = open(url);
+        if (existing > 0) {
+            connection.setRequestProperty("Range", "bytes=" + existing + "-");
+        }
+
+        try {
+            boolean append = false;
+            if (connection instanceof HttpURLConnection) {
+                int status = ((HttpURLConnection) connection).getResponseCode();
+                if (status == HttpURLConnection.HTTP_PARTIAL) {
+                    if (existing == 0 || !startsAt(connection.getHeaderField("Content-Range"), existing)) {
+                        // 与已有内容对不上，丢弃后从头下载
+                        Files.deleteIfExists(target);
+                        throw new IOException("Unexpected Content-Range for " + url);
+                    }
+                    append = true;
+                } else if (status == 416 && existing > 0) {
+                    Files.deleteIfExists(target);
+                    throw new IOException("Range not satisfiable for " + url + ", restarting");
+                } else if (status != HttpURLConnection.HTTP_OK) {
+                    throw new HttpStatusException(url, status);
+                }
+            }
+
+            long expected = connection.getContentLengthLong();
+            if (expected >= 0 && append) {
+                expected += existing;
+            }
+            try (InputStream in = connection.getInputStream();
+                 OutputStream out = Files.newOutputStream(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                         append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING)) {
+                byte[] buffer = new byte[64 * 1024];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, n);
+                    transferred.addAndGet(n);
+                }
+            }
+
+            long size = Files.size(target);
+            if (expected >= 0 && size != expected) {
+                throw new IOException("Incomplete download of " + url + ": " + size + " of " + expected + " bytes");
+            }
+            return append ? existing : 0;
+        } finally {
+            if (connection instanceof HttpURLConnection) {
+                ((HttpURLConnection) connection).disconnect();
+            }
+        }
+    }
+
+    /**
+     * Content-Range: bytes &lt;start&gt;-&lt;end&gt;/&lt;total&gt;
+     */
+    private static boolean startsAt(String contentRange, long offset) {
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return false;
+        }
+        int dash = contentRange.indexOf('-');
+        try {
+            return dash > 6 && Long.parseLong(contentRange.substring(6, dash).trim()) == offset;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 并行执行多个任务，结果按任务顺序返回
+     */
+    public <T> List<T> invokeAll(List<Task<T>> tasks) throws IOException {
+        List<T> results = new ArrayList<>(tasks.size());
+        int threads = Math.max(1, Math.min(parallelism, tasks.size()));
+        if (threads == 1) {
+            for (Task<T> task : tasks) {
+                results.add(task.call());
+            }
+            return results;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "mapping-download");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (Task<T> task : tasks) {
+                futures.add(executor.submit(task::call));
+            }
+            for (Future<T> future : futures) {
+                results.add(await(future));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Download interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 服务端返回的错误状态，客户端错误（超时与限流除外）不重试
+     */
+    static final class HttpStatusException extends IOException {
+        private final int status;
+
+        HttpStatusException(URL url, int status) {
+            super("HTTP " + status + " for " + url);
+            this.status = status;
+        }
+
+        boolean isRetryable() {
+            return status >= 500 || status == 408 || status == 429;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.ecaree.jarremapper.mapping;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 打包在插件中的 JDK 类继承关系快照
+ * 只包含 java.* 与 javax.* 下的类，按目标 Java 版本选择，
+ * 替代 ClassLoaderProvider，无需把 JDK 类加载进 Gradle 守护进程，结果也不受守护进程 JDK 版本影响
+ * <p>
+ * 快照由测试源码集中的 JdkHierarchySnapshotGenerator 从对应 JDK 生成，不随插件发布：
+ * ./gradlew generateJdkHierarchySnapshot -PjavaHome=&lt;javaHome&gt;
+ */
+@Slf4j
+public final class JdkHierarchySnapshot {
+    private static final int MAGIC = 0x4A444B48;
+    private static final int VERSION = 1;
+    private static final String RESOURCE_DIR = "/jdk-hierarchy/";
+
+    /**
+     * 已打包快照的 Java 版本，升序
+     */
+    static final int[] AVAILABLE_VERSIONS = {8, 11, 17, 21};
+
+    /**
+     * 已加载的快照，只读，在同一守护进程的多次构建间共享
+     */
+    private static final Map<Integer, ClassHierarchy> LOADED = new ConcurrentHashMap<>();
+
+    private JdkHierarchySnapshot() {
+    }
+
+    /**
+     * 选择不高于目标版本的最新快照，目标版本低于所有快照时使用最早的快照
+     */
+    public static int selectVersion(int javaVersion) {
+        int selected = AVAILABLE_VERSIONS[0];
+        for (int version : AVAILABLE_VERSIONS) {
+            if (version <= javaVersion) {
+                selected = version;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 加载适用于目标 Java 版本的快照
+     */
+    public static ClassHierarchy load(int javaVersion) throws IOException {
+        int version = selectVersion(javaVersion);
+        ClassHierarchy hierarchy = LOADED.get(version);
+        if (hierarchy == null) {
+            hierarchy = read(version);
+            LOADED.putIfAbsent(version, hierarchy);
+        }
+        return hierarchy;
+    }
+
+    private static ClassHierarchy read(int version) throws IOException {
+        String resource = RESOURCE_DIR + "java" + version + ".bin";
+        InputStream stream = JdkHierarchySnapshot.class.getResourceAsStream(resource);
+        if (stream == null) {
+            throw new FileNotFoundException("JDK hierarchy snapshot not found: " + resource);
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(stream)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unsupported JDK hierarchy snapshot: " + resource);
+            }
+            in.readInt();
+
+            String[] names = new String[in.readInt()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = in.readUTF();
+            }
+
+            ClassHierarchy hierarchy = new ClassHierarchy();
+            int classCount = in.readInt();
+            for (int i = 0; i < classCount; i++) {
+                String className = names[in.readInt()];
+                int parentCount = in.readUnsignedByte();
+                List<String> parents = new ArrayList<>(parentCount);
+                for (int j = 0; j < parentCount; j++) {
+                    parents.add(names[in.readInt()]);
+                }
+                hierarchy.addClass(className, parents);
+            }
+            log.debug("Loaded Java {} hierarchy snapshot: {} classes", version, hierarchy.size());
+            return hierarchy;
+        }
+    }
+
+    /**
+     * 写出快照，类名与父类名共用一张有序的名称表
+     */
+    public static void write(ClassHierarchy hierarchy, int javaVersion, OutputStream out) throws IOException {
+        TreeSet<String> nameSet = new TreeSet<>(hierarchy.getClassNames());
+        for (String className : hierarchy.getClassNames()) {
+            nameSet.addAll(hierarchy.getParents(className));
+        }
+        List<String> names = new ArrayList<>(nameSet);
+        Map<String, Integer> indices = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            indices.put(names.get(i), i);
+        }
+
+        List<String> classNames = new ArrayList<>(hierarchy.getClassNames());
+        Collections.sort(classNames);
+
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(gzip));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(javaVersion);
+        data.writeInt(names.size());
+        for (String name : names) {
+            data.writeUTF(name);
+        }
+        data.writeInt(classNames.size());
+        for (String className : classNames) {
+            List<String> parents = hierarchy.getParents(className);
+            data.writeInt(indices.get(className));
+            data.writeByte(parents.size());
+            for (String parent : parents) {
+                data.writeInt(indices.get(parent));
+            }
+        }
+        data.flush();
+        gzip.finish();
+    }
+}
@@ -0,0 +1,234 @@
+package com.ecaree.jarremapper.mapping;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 以内容 SHA-1 为键的映射文件缓存，可在同一台机器的多个 Gradle 守护进程间共享
+ * 条目保存在 &lt;键&gt;/&lt;文件名&gt;，先写入临时文件，校验后再移动，因此存在的条目一定完整
+ * 写入时持有条目的文件锁，并发请求同一条目只会下载一次，其余请求等待后直接使用
+ */
+@Slf4j
+public class MappingCache {
+    /**
+     * FileLock 在同一 JVM 内不互斥，守护进程内的并发请求先用此锁排队
+     */
+    private static final Map<String, ReentrantLock> LOCAL_LOCKS = new ConcurrentHashMap<>();
+
+    @Getter
+    private final File cacheDir;
+
+    @Setter
+    private Downloader downloader = new Downloader();
+
+    public MappingCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * 写出条目内容
+     */
+    public interface Producer {
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * 查找已有条目
+     *
+     * @return 条目不存在时返回 null
+     */
+    public File find(String key, String fileName) {
+        File file = entryFile(key, fileName);
+        return file.isFile() ? file : null;
+    }
+
+    /**
+     * 下载文件并校验 SHA-1，已缓存时不访问网络
+     * 下载先写入条目旁的 .part 文件，中断后下次从已下载的位置续传，校验通过后才移入条目
+     */
+    public File download(URL url, String sha1, String fileName) throws IOException {
+        return withEntryLock(sha1, fileName, target -> {
+            Path partFile = target.resolveSibling(fileName + ".part");
+            log.info("Downloading {}", url);
+            downloader.download(url, partFile);
+            String actual = sha1(partFile.toFile());
+            if (!sha1.equalsIgnoreCase(actual)) {
+                Files.deleteIfExists(partFile);
+                throw new IOException("SHA-1 mismatch for " + fileName + ": expected " + sha1 + ", got " + actual);
+            }
+            try {
+                Files.move(partFile, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(partFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        });
+    }
+
+    /**
+     * 获取条目，不存在时由 producer 生成
+     *
+     * @param expectedSha1 生成内容应有的 SHA-1，为 null 时不校验
+     */
+    public File computeIfAbsent(String key, String fileName, String expectedSha1, Producer producer) throws IOException {
+        return withEntryLock(key, fileName, target -> write(target, expectedSha1, producer));
+    }
+
+    private interface EntryWriter {
+        void write(Path target) throws IOException;
+    }
+
+    /**
+     * 条目不存在时持有条目锁写入
+     */
+    private File withEntryLock(String key, String fileName, EntryWriter writer) throws IOException {
+        File target = entryFile(key, fileName);
+        if (target.isFile()) {
+            log.info("Using cached mapping: {}", target);
+            return target;
+        }
+
+        Path entryDir = target.getParentFile().toPath();
+        Files.createDirectories(entryDir);
+        ReentrantLock localLock = LOCAL_LOCKS.computeIfAbsent(target.getAbsolutePath(), k -> new ReentrantLock());
+        localLock.lock();
+        try (FileChannel channel = FileChannel.open(entryDir.resolve(fileName + ".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            // 等待锁期间其他进程可能已写入
+            if (target.isFile()) {
+                log.info("Using cached mapping: {}", target);
+                return target;
+            }
+            writer.write(target.toPath());
+        } finally {
+            localLock.unlock();
+        }
+        log.info("Cached mapping: {}", target);
+        return target;
+    }
+
+    /**
+     * 读取名称到键的引用，用于在不访问网络时找到上次的条目
+     *
+     * @return 引用不存在时返回 null
+     */
+    public String readRef(String name) throws IOException {
+        Path ref = refFile(name);
+        if (!Files.isRegularFile(ref)) {
+            return null;
+        }
+        String key = new String(Files.readAllBytes(ref), StandardCharsets.UTF_8).trim();
+        return key.isEmpty() ? null : key;
+    }
+
+    public void writeRef(String name, String key) throws IOException {
+        Path ref = refFile(name);
+        Files.createDirectories(ref.getParent());
+        byte[] data = key.getBytes(StandardCharsets.UTF_8);
+        write(ref, null, out -> out.write(data));
+    }
+
+    private File entryFile(String key, String fileName) {
+        return new File(new File(cacheDir, key.toLowerCase(Locale.ROOT)), fileName);
+    }
+
+    private Path refFile(String name) {
+        return cacheDir.toPath().resolve("refs").resolve(name);
+    }
+
+    /**
+     * 写入临时文件后原子移动到目标位置
+     *
+     * @param expectedSha1 内容应有的 SHA-1，为 null 时不校验
+     */
+    static void write(Path target, String expectedSha1, Producer producer) throws IOException {
+        Path tempFile = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            MessageDigest digest = newDigest();
+            try (OutputStream out = new DigestOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)), digest)) {
+                producer.write(out);
+            }
+            String actual = toHex(digest.digest());
+            if (expectedSha1 != null && !expectedSha1.equalsIgnoreCase(actual)) {
+                throw new IOException("SHA-1 mismatch for " + target.getFileName()
+                        + ": expected " + expectedSha1 + ", got " + actual);
+            }
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * 文件内容的 SHA-1
+     */
+    public static String sha1(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * @return 复制的字节数
+     */
+    static long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+            total += n;
+        }
+        return total;
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
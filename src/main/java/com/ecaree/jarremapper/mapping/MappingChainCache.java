@@ -0,0 +1,245 @@
+package com.ecaree.jarremapper.mapping;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.md_5.specialsource.JarMapping;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 组合后映射链的持久化缓存
+ * 以所有输入映射的内容 SHA-1 及命名空间、反转等选项为键，保存 MappingChain.merge 的结果
+ * 命中时直接读取组合结果，不再加载各个输入映射，也不再组合
+ * <p>
+ * 所有字符串写入一张名称表，映射与条目只保存下标，读取时相同的类名共用同一个 String
+ */
+@Slf4j
+public class MappingChainCache {
+    private static final int MAGIC = 0x4A524D43;
+    private static final int VERSION = 1;
+
+    /**
+     * 组合语义的版本，参与缓存键
+     * 映射加载、反转或 MappingChain.merge 的行为变化会改变组合结果，而输入文件与选项不变，
+     * 修改这些逻辑时必须递增，否则会读到按旧逻辑组合的结果
+     */
+    static final int COMPOSITION_VERSION = 1;
+
+    @Getter
+    private final File cacheDir;
+
+    public MappingChainCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * 组合映射链
+     */
+    public interface Composer {
+        MappingData compose() throws IOException;
+    }
+
+    /**
+     * 计算缓存键，包含组合语义的版本
+     *
+     * @param inputs  所有输入映射文件，顺序有意义
+     * @param options 影响组合结果的其他选项，如命名空间与反转标志
+     */
+    public static String key(List<File> inputs, String... options) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("composition-").append(COMPOSITION_VERSION).append('\n');
+        for (File input : inputs) {
+            sb.append(MappingCache.sha1(input)).append('\n');
+        }
+        for (String option : options) {
+            sb.append(option).append('\n');
+        }
+        return MappingCache.toHex(MappingCache.newDigest().digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 读取组合结果，未命中时组合并写入缓存
+     */
+    public MappingData load(String key, Composer composer) throws IOException {
+        File cacheFile = new File(cacheDir, key + ".chain");
+        MappingData cached = read(cacheFile);
+        if (cached != null) {
+            log.info("Loaded composed mapping chain from cache: {} classes, {} fields, {} methods",
+                    cached.getClassCount(), cached.getFieldCount(), cached.getMethodCount());
+            return cached;
+        }
+
+        MappingData composed = composer.compose();
+        try {
+            write(cacheFile, composed);
+        } catch (IOException e) {
+            log.warn("Failed to write composed mapping chain cache {}: {}", cacheFile, e.getMessage());
+        }
+        return composed;
+    }
+
+    private static MappingData read(File cacheFile) {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(cacheFile.toPath()), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+
+            String[] strings = new String[in.readInt()];
+            byte[] buffer = new byte[256];
+            for (int i = 0; i < strings.length; i++) {
+                int length = in.readInt();
+                if (length > buffer.length) {
+                    buffer = new byte[Math.max(length, buffer.length * 2)];
+                }
+                in.readFully(buffer, 0, length);
+                strings[i] = new String(buffer, 0, length, StandardCharsets.UTF_8);
+            }
+
+            JarMapping jarMapping = new JarMapping();
+            readMap(in, strings, jarMapping.packages);
+            readMap(in, strings, jarMapping.classes);
+            readMap(in, strings, jarMapping.fields);
+            readMap(in, strings, jarMapping.methods);
+
+            MappingEntry.Type[] types = MappingEntry.Type.values();
+            int entryCount = in.readInt();
+            Map<String, MappingEntry> entries = new HashMap<>(entryCount * 4 / 3 + 1);
+            for (int i = 0; i < entryCount; i++) {
+                MappingEntry.Type type = types[in.readUnsignedByte()];
+                String obfOwner = readRef(in, strings);
+                String obfName = readRef(in, strings);
+                String obfDescriptor = readRef(in, strings);
+                String readableOwner = readRef(in, strings);
+                String readableName = readRef(in, strings);
+                String readableDescriptor = readRef(in, strings);
+                String comment = readRef(in, strings);
+
+                MappingEntry entry;
+                switch (type) {
+                    case CLASS:
+                        entry = MappingEntry.forClass(obfName, readableName, comment);
+                        break;
+                    case FIELD:
+                        entry = MappingEntry.forField(obfOwner, obfName, obfDescriptor,
+                                readableOwner, readableName, readableDescriptor, comment);
+                        break;
+                    default:
+                        entry = MappingEntry.forMethod(obfOwner, obfName, obfDescriptor,
+                                readableOwner, readableName, readableDescriptor, comment);
+                        break;
+                }
+                entries.put(entry.getReadableKey(), entry);
+            }
+            return new MappingData(jarMapping, entries);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable composed mapping chain cache {}: {}", cacheFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void readMap(DataInputStream in, String[] strings, Map<String, String> map) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            map.put(strings[in.readInt()], strings[in.readInt()]);
+        }
+    }
+
+    private static String readRef(DataInputStream in, String[] strings) throws IOException {
+        int ref = in.readInt();
+        return ref < 0 ? null : strings[ref];
+    }
+
+    private static void write(File cacheFile, MappingData mappingData) throws IOException {
+        JarMapping jarMapping = mappingData.getJarMapping();
+        StringTable table = new StringTable();
+        List<Map<String, String>> maps = new ArrayList<>();
+        maps.add(jarMapping.packages);
+        maps.add(jarMapping.classes);
+        maps.add(jarMapping.fields);
+        maps.add(jarMapping.methods);
+        for (Map<String, String> map : maps) {
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                table.add(entry.getKey());
+                table.add(entry.getValue());
+            }
+        }
+        for (MappingEntry entry : mappingData.getEntries().values()) {
+            table.add(entry.getObfOwner());
+            table.add(entry.getObfName());
+            table.add(entry.getObfDescriptor());
+            table.add(entry.getReadableOwner());
+            table.add(entry.getReadableName());
+            table.add(entry.getReadableDescriptor());
+            table.add(entry.getComment());
+        }
+
+        Files.createDirectories(cacheFile.getParentFile().toPath());
+        MappingCache.write(cacheFile.toPath(), null, stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(table.strings.size());
+            for (String string : table.strings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            for (Map<String, String> map : maps) {
+                out.writeInt(map.size());
+                for (Map.Entry<String, String> entry : map.entrySet()) {
+                    out.writeInt(table.indexOf(entry.getKey()));
+                    out.writeInt(table.indexOf(entry.getValue()));
+                }
+            }
+
+            out.writeInt(mappingData.getEntries().size());
+            for (MappingEntry entry : mappingData.getEntries().values()) {
+                out.writeByte(entry.getType().ordinal());
+                out.writeInt(table.indexOf(entry.getObfOwner()));
+                out.writeInt(table.indexOf(entry.getObfName()));
+                out.writeInt(table.indexOf(entry.getObfDescriptor()));
+                out.writeInt(table.indexOf(entry.getReadableOwner()));
+                out.writeInt(table.indexOf(entry.getReadableName()));
+                out.writeInt(table.indexOf(entry.getReadableDescriptor()));
+                out.writeInt(table.indexOf(entry.getComment()));
+            }
+            out.flush();
+        });
+    }
+
+    /**
+     * 按首次出现顺序编号的字符串表，null 编号为 -1
+     */
+    private static final class StringTable {
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> indices = new HashMap<>();
+
+        void add(String string) {
+            if (string != null && !indices.containsKey(string)) {
+                indices.put(string, strings.size());
+                strings.add(string);
+            }
+        }
+
+        int indexOf(String string) {
+            return string == null ? -1 : indices.get(string);
+        }
+    }
+}
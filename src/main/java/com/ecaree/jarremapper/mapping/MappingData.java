@@ -1,14 +1,20 @@
 package com.ecaree.jarremapper.mapping;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import net.md_5.specialsource.JarMapping;
 import net.md_5.specialsource.JarRemapper;
 import net.md_5.specialsource.NodeType;
+import net.md_5.specialsource.provider.InheritanceProvider;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 映射数据容器
@@ -17,6 +23,11 @@ import java.util.Set;
 @Getter
 @RequiredArgsConstructor
 public class MappingData {
+    /**
+     * 继承查找缓存的最大条目数，分为两段，当前段写满一半后丢弃旧段
+     */
+    private static final int MAX_CACHED_LOOKUPS = 100_000;
+
     /**
      * SpecialSource 使用的映射对象
      */
@@ -34,6 +45,34 @@ public class MappingData {
      */
     private final Set<String> excludedPackages = new HashSet<>();
 
+    /**
+     * 类继承关系
+     * 设置后字段和方法查找使用展开后的继承成员视图
+     */
+    private ClassHierarchy classHierarchy;
+
+    /**
+     * 所有者 -> 字段名 -> 映射名，包含继承字段
+     */
+    @Getter(AccessLevel.NONE)
+    private Map<String, Map<String, String>> inheritedFields = Collections.emptyMap();
+
+    /**
+     * 所有者 -> 方法名 + 描述符 -> 映射名，包含继承方法
+     */
+    @Getter(AccessLevel.NONE)
+    private Map<String, Map<String, String>> inheritedMethods = Collections.emptyMap();
+
+    /**
+     * 不在继承关系索引中的所有者经 tryClimb 查找的结果，包括未找到的结果
+     * tryClimb 每次都会经由回退的继承关系来源逐级查找，而 Smali 重映射会反复查找同一成员
+     */
+    @Getter(AccessLevel.NONE)
+    private final LookupCache climbedFields = new LookupCache();
+
+    @Getter(AccessLevel.NONE)
+    private final LookupCache climbedMethods = new LookupCache();
+
     /**
      * 根据可读类名查找类映射条目
      */
@@ -70,7 +109,7 @@ public class MappingData {
         if (isExcluded(owner)) {
             return name;
         }
-        String mapped = jarMapping.tryClimb(jarMapping.fields, NodeType.FIELD, owner, name, null, -1);
+        String mapped = findField(owner, name);
         return mapped != null ? mapped : name;
     }
 
@@ -78,13 +117,123 @@ public class MappingData {
         if (isExcluded(owner)) {
             return name;
         }
-        String mapped = jarMapping.tryClimb(jarMapping.methods, NodeType.METHOD, owner, name + " " + descriptor, null, -1);
+        String mapped = findMethod(owner, name, descriptor);
         return mapped != null ? mapped : name;
     }
 
+    /**
+     * 查找字段映射，包括继承字段，不检查排除的包
+     *
+     * @return 映射后的名称，未找到时返回 null
+     */
+    public String findField(String owner, String name) {
+        if (classHierarchy != null && classHierarchy.contains(owner)) {
+            Map<String, String> members = inheritedFields.get(owner);
+            return members != null ? members.get(name) : null;
+        }
+        return climb(climbedFields, jarMapping.fields, NodeType.FIELD, owner, name);
+    }
+
+    /**
+     * 查找方法映射，包括继承方法，不检查排除的包
+     *
+     * @return 映射后的名称，未找到时返回 null
+     */
+    public String findMethod(String owner, String name, String descriptor) {
+        if (classHierarchy != null && classHierarchy.contains(owner)) {
+            Map<String, String> members = inheritedMethods.get(owner);
+            return members != null ? members.get(name + " " + descriptor) : null;
+        }
+        return climb(climbedMethods, jarMapping.methods, NodeType.METHOD, owner, name + " " + descriptor);
+    }
+
+    private String climb(LookupCache cache, Map<String, String> mappings, NodeType type,
+                         String owner, String member) {
+        String key = owner + "/" + member;
+        Optional<String> cached = cache.get(key);
+        if (cached == null) {
+            // tryClimb 会写入 JarMapping 内部的继承关系表，并发查找时需串行
+            synchronized (jarMapping) {
+                cached = Optional.ofNullable(jarMapping.tryClimb(mappings, type, owner, member, null, -1));
+            }
+            cache.put(key, cached);
+        }
+        return cached.orElse(null);
+    }
+
+    /**
+     * 清空继承查找缓存
+     * 直接修改 JarMapping 中的映射后需要调用
+     */
+    public void invalidateCaches() {
+        climbedFields.clear();
+        climbedMethods.clear();
+    }
+
+    /**
+     * 复制映射表，继承关系、查找缓存与排除的包不复制
+     * 共享的映射在重映射前先复制，重映射会修改继承关系与缓存
+     */
+    public MappingData copy() {
+        JarMapping copy = new JarMapping();
+        copy.packages.putAll(jarMapping.packages);
+        copy.classes.putAll(jarMapping.classes);
+        copy.fields.putAll(jarMapping.fields);
+        copy.methods.putAll(jarMapping.methods);
+        return new MappingData(copy, entries);
+    }
+
+    /**
+     * 设置 SpecialSource 查找继承关系的回退来源，不在继承关系索引中的类经由它向上查找
+     */
+    public void setFallbackInheritanceProvider(InheritanceProvider provider) {
+        jarMapping.setFallbackInheritanceProvider(provider);
+        invalidateCaches();
+    }
+
+    /**
+     * 设置类继承关系并预先展开每个类的继承成员
+     * 展开后继承成员查找为 O(1)，同时作为 SpecialSource 回退的继承关系来源
+     */
+    public void setClassHierarchy(ClassHierarchy classHierarchy) {
+        this.classHierarchy = classHierarchy;
+        jarMapping.setFallbackInheritanceProvider(classHierarchy);
+        if (classHierarchy == null) {
+            inheritedFields = Collections.emptyMap();
+            inheritedMethods = Collections.emptyMap();
+        } else {
+            inheritedFields = classHierarchy.flatten(groupByOwner(jarMapping.fields, true));
+            inheritedMethods = classHierarchy.flatten(groupByOwner(jarMapping.methods, false));
+        }
+        // 缓存的结果按旧的继承关系查找得到
+        invalidateCaches();
+    }
+
+    /**
+     * 将 owner/member 形式的映射按所有者分组
+     * 字段键可能带描述符，此时同时以不带描述符的字段名登记
+     */
+    private static Map<String, Map<String, String>> groupByOwner(Map<String, String> mappings, boolean fields) {
+        Map<String, Map<String, String>> grouped = new HashMap<>();
+        for (Map.Entry<String, String> entry : mappings.entrySet()) {
+            String key = entry.getKey();
+            int spaceIdx = key.indexOf(' ');
+            int slashIdx = (spaceIdx > 0 ? key.substring(0, spaceIdx) : key).lastIndexOf('/');
+            if (slashIdx <= 0) continue;
+
+            Map<String, String> members = grouped.computeIfAbsent(key.substring(0, slashIdx), k -> new HashMap<>());
+            members.put(key.substring(slashIdx + 1), entry.getValue());
+            if (fields && spaceIdx > 0) {
+                members.putIfAbsent(key.substring(slashIdx + 1, spaceIdx), entry.getValue());
+            }
+        }
+        return grouped;
+    }
+
     public void addExcludedPackage(String packageName) {
         String normalized = packageName.endsWith("/") ? packageName : packageName + "/";
         excludedPackages.add(normalized);
+        invalidateCaches();
     }
 
     public boolean isExcluded(String className) {
@@ -111,4 +260,42 @@ public class MappingData {
     public int getPackageCount() {
         return jarMapping.packages.size();
     }
-}
\ No newline at end of file
+
+    /**
+     * 分两段的查找缓存，写满后丢弃较旧的一段而不是整体清空
+     * 旧段中命中的条目移回当前段，反复使用的查找在淘汰后仍然有效
+     */
+    private static final class LookupCache {
+        private volatile Map<String, Optional<String>> current = new ConcurrentHashMap<>();
+        private volatile Map<String, Optional<String>> previous = new ConcurrentHashMap<>();
+
+        Optional<String> get(String key) {
+            Optional<String> value = current.get(key);
+            if (value == null) {
+                value = previous.get(key);
+                if (value != null) {
+                    put(key, value);
+                }
+            }
+            return value;
+        }
+
+        void put(String key, Optional<String> value) {
+            Map<String, Optional<String>> segment = current;
+            segment.put(key, value);
+            if (segment.size() >= MAX_CACHED_LOOKUPS / 2) {
+                synchronized (this) {
+                    if (current == segment) {
+                        previous = segment;
+                        current = new ConcurrentHashMap<>();
+                    }
+                }
+            }
+        }
+
+        synchronized void clear() {
+            current = new ConcurrentHashMap<>();
+            previous = new ConcurrentHashMap<>();
+        }
+    }
+}
@@ -4,42 +4,56 @@ import com.ecaree.jarremapper.JarRemapperExtension;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 public class MappingHelper {
     public static MappingData loadFromExtension(JarRemapperExtension extension) throws IOException {
-        File mappingFile = extension.getEffectiveMappingFile();
-        if (mappingFile == null || !mappingFile.exists()) {
-            throw new IOException("Mapping file does not exist");
-        }
-
-        String sourceNs = extension.getSourceNamespace().getOrNull();
-        String targetNs = extension.getTargetNamespace().getOrNull();
-
-        MappingData mappingData = MappingLoader.load(mappingFile, sourceNs, targetNs);
-
-        for (String pkg : extension.getExcludedPackages().getOrElse(Collections.emptyList())) {
-            mappingData.addExcludedPackage(pkg);
-        }
-
-        return mappingData;
+        return loadFromExtension(extension, false);
     }
 
     public static MappingData loadFromExtension(JarRemapperExtension extension, boolean reverse) throws IOException {
-        File mappingFile = extension.getEffectiveMappingFile();
+        return load(extension.getEffectiveMappingFile(),
+                extension.getSourceNamespace().getOrNull(),
+                extension.getTargetNamespace().getOrNull(),
+                reverse,
+                extension.getExcludedPackages().getOrElse(Collections.emptyList()));
+    }
+
+    /**
+     * 加载映射并添加排除的包
+     * 不依赖 extension，可在 Worker 中调用
+     */
+    public static MappingData load(File mappingFile, String sourceNs, String targetNs, boolean reverse,
+                                   List<String> excludedPackages) throws IOException {
         if (mappingFile == null || !mappingFile.exists()) {
             throw new IOException("Mapping file does not exist");
         }
 
-        String sourceNs = extension.getSourceNamespace().getOrNull();
-        String targetNs = extension.getTargetNamespace().getOrNull();
-
         MappingData mappingData = MappingLoader.load(mappingFile, sourceNs, targetNs, reverse);
 
-        for (String pkg : extension.getExcludedPackages().getOrElse(Collections.emptyList())) {
+        for (String pkg : excludedPackages) {
             mappingData.addExcludedPackage(pkg);
         }
 
         return mappingData;
     }
-}
\ No newline at end of file
+
+    /**
+     * 从 JAR 构建类继承关系并设置到映射数据
+     * JAR 中的类名需与映射的源命名空间一致，没有可用 JAR 时不做处理
+     */
+    public static void attachClassHierarchy(MappingData mappingData, List<File> jars) throws IOException {
+        List<File> existing = new ArrayList<>();
+        for (File jar : jars) {
+            if (jar != null && jar.isFile()) {
+                existing.add(jar);
+            }
+        }
+        if (existing.isEmpty()) {
+            return;
+        }
+        mappingData.setClassHierarchy(ClassHierarchy.fromJars(existing));
+    }
+}
@@ -1,14 +1,20 @@
 package com.ecaree.jarremapper.mapping;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import lombok.RequiredArgsConstructor;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ConfigurationContainer;
 import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.DependencyArtifact;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.dsl.DependencyHandler;
+import org.gradle.api.artifacts.dsl.RepositoryHandler;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -18,8 +24,15 @@ import java.io.InputStreamReader;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
@@ -28,11 +41,43 @@ import java.util.zip.ZipEntry;
  * 支持从 Maven 仓库自动获取映射文件
  */
 @Slf4j
-@RequiredArgsConstructor
 public class MappingResolver {
     private static final String VERSION_MANIFEST_URL = "https://piston-meta.mojang.com/mc/game/version_manifest_v2.json";
-    private static final Gson GSON = new Gson();
-    private final Project project;
+    private final DependencyHandler dependencies;
+    private final ConfigurationContainer configurations;
+    private final RepositoryHandler repositories;
+    private final File gradleUserHomeDir;
+
+    /**
+     * Mojang 版本清单地址，可指向镜像或本地服务
+     */
+    @Setter
+    private String versionManifestUrl = VERSION_MANIFEST_URL;
+
+    /**
+     * 离线模式：只使用缓存的清单与映射，缓存缺失时报错
+     * 默认跟随 Gradle 的 --offline
+     */
+    @Setter
+    private boolean offline;
+
+    /**
+     * 映射下载器，可调整超时、重试次数与并行数
+     */
+    @Getter
+    private final Downloader downloader = new Downloader();
+
+    /**
+     * 只保存解析所需的服务，不持有 Project，以便在配置缓存下使用
+     * 依赖解析应在配置阶段进行，任务执行时使用解析结果
+     */
+    public MappingResolver(Project project) {
+        this.dependencies = project.getDependencies();
+        this.configurations = project.getConfigurations();
+        this.repositories = project.getRepositories();
+        this.gradleUserHomeDir = project.getGradle().getGradleUserHomeDir();
+        this.offline = project.getGradle().getStartParameter().isOffline();
+    }
 
     public static String normalizeSpigotVersion(String version) {
         String[] pieces = version.split("-");
@@ -44,14 +89,81 @@ public class MappingResolver {
 
     public File resolve(String coords) {
         log.info("Resolving mapping from Maven: {}", coords);
-        Dependency dep = project.getDependencies().create(coords);
-        Configuration config = project.getConfigurations().detachedConfiguration(dep);
+        Dependency dep = dependencies.create(coords);
+        Configuration config = configurations.detachedConfiguration(dep);
         config.setTransitive(false);
         File file = config.getSingleFile();
         log.info("Resolved mapping file: {}", file.getAbsolutePath());
         return file;
     }
 
+    /**
+     * 在同一个分离配置中解析多个坐标，Gradle 一次解析并并行下载其中的构件
+     *
+     * @return 与坐标一一对应的映射文件
+     */
+    public List<File> resolveAll(List<String> coordsList) {
+        if (coordsList.size() <= 1) {
+            List<File> files = new ArrayList<>();
+            for (String coords : coordsList) {
+                files.add(resolve(coords));
+            }
+            return files;
+        }
+
+        log.info("Resolving {} mappings from Maven", coordsList.size());
+        List<Dependency> deps = new ArrayList<>();
+        for (String coords : coordsList) {
+            deps.add(dependencies.create(coords));
+        }
+        Configuration config = configurations.detachedConfiguration(deps.toArray(new Dependency[0]));
+        config.setTransitive(false);
+        Set<ResolvedArtifactResult> artifacts = config.getIncoming().getArtifacts().getArtifacts();
+
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < coordsList.size(); i++) {
+            File file = findArtifact(deps.get(i), artifacts);
+            // 无法对应到构件时（如非 Maven 模块）单独解析
+            files.add(file != null ? file : resolve(coordsList.get(i)));
+        }
+        return files;
+    }
+
+    /**
+     * 按模块与 &lt;模块名&gt;-&lt;版本&gt;[-&lt;分类器&gt;].&lt;扩展名&gt; 文件名找到依赖对应的构件
+     */
+    private static File findArtifact(Dependency dep, Set<ResolvedArtifactResult> artifacts) {
+        String classifier = null;
+        String extension = "jar";
+        if (dep instanceof ModuleDependency) {
+            Set<DependencyArtifact> declared = ((ModuleDependency) dep).getArtifacts();
+            if (declared.size() > 1) {
+                return null;
+            }
+            if (!declared.isEmpty()) {
+                DependencyArtifact artifact = declared.iterator().next();
+                classifier = artifact.getClassifier();
+                extension = artifact.getExtension();
+            }
+        }
+
+        for (ResolvedArtifactResult artifact : artifacts) {
+            if (!(artifact.getId().getComponentIdentifier() instanceof ModuleComponentIdentifier)) {
+                continue;
+            }
+            ModuleComponentIdentifier id = (ModuleComponentIdentifier) artifact.getId().getComponentIdentifier();
+            if (!id.getGroup().equals(dep.getGroup()) || !id.getModule().equals(dep.getName())) {
+                continue;
+            }
+            String fileName = id.getModule() + "-" + id.getVersion()
+                    + (classifier != null ? "-" + classifier : "") + "." + extension;
+            if (artifact.getFile().getName().equals(fileName)) {
+                return artifact.getFile();
+            }
+        }
+        return null;
+    }
+
     public MappingData resolveAndLoad(String coords, String sourceNamespace, String targetNamespace) throws IOException {
         File file = resolve(coords);
         return MappingLoader.load(file, sourceNamespace, targetNamespace);
@@ -71,43 +183,40 @@ public class MappingResolver {
         return extractMappingFromJar(jarFile, "yarn-" + yarnVersion);
     }
 
+    /**
+     * 提取的映射以 JAR 内容的 SHA-1 为键缓存，JAR 更新后自动重新提取
+     */
     private File extractMappingFromJar(File jarFile, String cacheName) throws IOException {
-        Path cacheDir = project.getGradle().getGradleUserHomeDir().toPath()
-                .resolve("caches/jarremapper/extracted-mappings");
-        Files.createDirectories(cacheDir);
-
-        Path cachedFile = cacheDir.resolve(cacheName + ".tiny");
-        if (Files.exists(cachedFile) && Files.getLastModifiedTime(cachedFile).toMillis() >= jarFile.lastModified()) {
-            log.info("Using cached extracted mapping: {}", cachedFile);
-            return cachedFile.toFile();
-        }
-
-        log.info("Extracting {} from {}", "mappings/mappings.tiny", jarFile.getName());
-        try (JarFile jar = new JarFile(jarFile)) {
-            ZipEntry entry = jar.getEntry("mappings/mappings.tiny");
-            if (entry == null) {
-                throw new IOException("Entry not found in JAR: " + "mappings/mappings.tiny");
+        MappingCache cache = new MappingCache(new File(gradleUserHomeDir, "caches/jarremapper/extracted-mappings"));
+        return cache.computeIfAbsent(MappingCache.sha1(jarFile), cacheName + ".tiny", null, out -> {
+            log.info("Extracting {} from {}", "mappings/mappings.tiny", jarFile.getName());
+            try (JarFile jar = new JarFile(jarFile)) {
+                ZipEntry entry = jar.getEntry("mappings/mappings.tiny");
+                if (entry == null) {
+                    throw new IOException("Entry not found in JAR: " + "mappings/mappings.tiny");
+                }
+                try (InputStream is = jar.getInputStream(entry)) {
+                    MappingCache.copy(is, out);
+                }
             }
-            try (InputStream is = jar.getInputStream(entry)) {
-                Files.copy(is, cachedFile, StandardCopyOption.REPLACE_EXISTING);
-            }
-        }
-
-        log.info("Extracted mapping to: {}", cachedFile);
-        return cachedFile.toFile();
+        });
     }
 
     public MappingData loadFabricMappingChain(String mcVersion, String yarnVersion) throws IOException {
         File intermediaryFile = resolveFabricIntermediary(mcVersion);
         File yarnFile = resolveFabricYarn(yarnVersion);
 
-        MappingData intermediary = MappingLoader.load(intermediaryFile, "official", "intermediary");
-        MappingData yarn = MappingLoader.load(yarnFile, "intermediary", "named");
+        String key = MappingChainCache.key(Arrays.asList(intermediaryFile, yarnFile),
+                "fabric", "official", "intermediary", "intermediary", "named");
+        return composedMappingCache().load(key, () -> {
+            MappingData intermediary = MappingLoader.load(intermediaryFile, "official", "intermediary");
+            MappingData yarn = MappingLoader.load(yarnFile, "intermediary", "named");
 
-        return new MappingChain()
-                .add(intermediary)
-                .add(yarn)
-                .merge();
+            return new MappingChain()
+                    .add(intermediary)
+                    .add(yarn)
+                    .merge();
+        });
     }
 
     public File resolveForgeSrg(String mcVersion) {
@@ -130,49 +239,125 @@ public class MappingResolver {
         File mojangFile = resolveSpigotMojangMappings(version);
         File spigotFile = resolveSpigotMappings(version);
 
-        MappingData mojangToObf = MappingLoader.load(mojangFile, true);
-        MappingData obfToSpigot = MappingLoader.load(spigotFile);
+        String key = MappingChainCache.key(Arrays.asList(mojangFile, spigotFile),
+                "spigot", "reverse", "forward");
+        return composedMappingCache().load(key, () -> {
+            MappingData mojangToObf = MappingLoader.load(mojangFile, true);
+            MappingData obfToSpigot = MappingLoader.load(spigotFile);
 
-        return new MappingChain()
-                .add(mojangToObf)
-                .add(obfToSpigot)
-                .merge();
+            return new MappingChain()
+                    .add(mojangToObf)
+                    .add(obfToSpigot)
+                    .merge();
+        });
+    }
+
+    /**
+     * 组合后的映射链按输入内容缓存，热构建直接读取组合结果
+     */
+    private MappingChainCache composedMappingCache() {
+        return new MappingChainCache(new File(gradleUserHomeDir, "caches/jarremapper/composed-mappings"));
     }
 
     public File resolveMojangMappings(String mcVersion, String side) throws IOException {
-        if (!"client".equals(side) && !"server".equals(side)) {
-            throw new IllegalArgumentException("Side must be 'client' or 'server', got: " + side);
+        return resolveMojangMappings(mcVersion, Collections.singletonList(side)).get(side);
+    }
+
+    /**
+     * 解析多个端的 Mojang 映射，清单与版本 JSON 只读取一次，缺失的映射并行下载
+     *
+     * @return 端到映射文件，按 sides 的顺序
+     */
+    public Map<String, File> resolveMojangMappings(String mcVersion, Collection<String> sides) throws IOException {
+        for (String side : sides) {
+            if (!"client".equals(side) && !"server".equals(side)) {
+                throw new IllegalArgumentException("Side must be 'client' or 'server', got: " + side);
+            }
         }
 
-        Path cacheDir = project.getGradle().getGradleUserHomeDir().toPath()
-                .resolve("caches/jarremapper/mojang-mappings");
-        Files.createDirectories(cacheDir);
+        // 映射按 version JSON 给出的 SHA-1 缓存，引用记录版本对应的 SHA-1，命中时无需访问网络
+        MappingCache cache = new MappingCache(new File(gradleUserHomeDir, "caches/jarremapper/mojang-mappings"));
+        cache.setDownloader(downloader);
+        Map<String, File> resolved = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String side : sides) {
+            String fileName = mcVersion + "-" + side + ".txt";
+            String cachedSha1 = cache.readRef(fileName);
+            File cached = cachedSha1 != null ? cache.find(cachedSha1, fileName) : null;
+            if (cached != null) {
+                log.info("Using cached Mojang mappings: {}", cached);
+                resolved.put(side, cached);
+            } else if (!missing.contains(side)) {
+                missing.add(side);
+            }
+        }
 
-        Path cachedFile = cacheDir.resolve(mcVersion + "-" + side + ".txt");
-        if (Files.exists(cachedFile)) {
-            log.info("Using cached Mojang mappings: {}", cachedFile);
-            return cachedFile.toFile();
+        if (!missing.isEmpty()) {
+            log.info("Resolving Mojang {} mappings for {}{}", String.join(", ", missing), mcVersion,
+                    offline ? " (offline)" : "");
+            File versionJson = resolveVersionJson(mcVersion);
+
+            List<Downloader.Task<File>> tasks = new ArrayList<>();
+            for (String side : missing) {
+                Download mappingDownload = findMappingDownload(versionJson, side);
+                if (mappingDownload == null || mappingDownload.url == null || mappingDownload.sha1 == null) {
+                    throw new IOException("Mappings not found for " + side + " in version " + mcVersion);
+                }
+                String fileName = mcVersion + "-" + side + ".txt";
+                tasks.add(() -> {
+                    File mappingFile = fetch(cache, mappingDownload, fileName);
+                    cache.writeRef(fileName, mappingDownload.sha1);
+                    log.info("Mojang mappings cached: {}", mappingFile);
+                    return mappingFile;
+                });
+            }
+            List<File> files = downloader.invokeAll(tasks);
+            for (int i = 0; i < missing.size(); i++) {
+                resolved.put(missing.get(i), files.get(i));
+            }
         }
 
-        log.info("Downloading Mojang {} mappings for {}", side, mcVersion);
+        Map<String, File> result = new LinkedHashMap<>();
+        for (String side : sides) {
+            result.put(side, resolved.get(side));
+        }
+        return result;
+    }
 
-        JsonObject manifest = downloadJson(VERSION_MANIFEST_URL);
-        String versionUrl = findVersionUrl(manifest, mcVersion);
-        if (versionUrl == null) {
+    private File resolveVersionJson(String mcVersion) throws IOException {
+        File cacheRoot = new File(gradleUserHomeDir, "caches/jarremapper/mojang-meta");
+        MetadataCache manifestCache = new MetadataCache(cacheRoot);
+        manifestCache.setDownloader(downloader);
+        File manifest = manifestCache.get(new URL(versionManifestUrl), "version_manifest_v2.json", offline);
+        Download version = findVersion(manifest, mcVersion);
+        if (version == null) {
             throw new IOException("Version not found in manifest: " + mcVersion);
         }
 
-        JsonObject versionJson = downloadJson(versionUrl);
-        String mappingUrl = findMappingUrl(versionJson, side);
-        if (mappingUrl == null) {
-            throw new IOException("Mappings not found for " + side + " in version " + mcVersion);
+        // 版本 JSON 发布后不再变化，按清单给出的 SHA-1 缓存；旧格式清单没有 SHA-1 时按文件名重新验证
+        String versionFileName = mcVersion + ".json";
+        if (version.sha1 != null) {
+            MappingCache versionCache = new MappingCache(new File(cacheRoot, "versions"));
+            versionCache.setDownloader(downloader);
+            return fetch(versionCache, version, versionFileName);
         }
+        MetadataCache versionMetadata = new MetadataCache(new File(cacheRoot, "versions"));
+        versionMetadata.setDownloader(downloader);
+        return versionMetadata.get(new URL(version.url), versionFileName, offline);
+    }
 
-        log.info("Downloading from: {}", mappingUrl);
-        downloadFile(mappingUrl, cachedFile);
-
-        log.info("Mojang mappings cached: {}", cachedFile);
-        return cachedFile.toFile();
+    /**
+     * 按 SHA-1 从缓存获取，离线模式下不下载
+     */
+    private File fetch(MappingCache cache, Download download, String fileName) throws IOException {
+        if (!offline) {
+            return cache.download(new URL(download.url), download.sha1, fileName);
+        }
+        File file = cache.find(download.sha1, fileName);
+        if (file == null) {
+            throw new IOException("Offline and " + fileName + " is not cached");
+        }
+        return file;
     }
 
     public MappingData loadMojangMappings(String mcVersion, String side) throws IOException {
@@ -180,75 +365,115 @@ public class MappingResolver {
         return MappingLoader.load(mappingFile);
     }
 
-    private String findVersionUrl(JsonObject manifest, String version) {
-        JsonArray versions = manifest.getAsJsonArray("versions");
-        if (versions == null) return null;
-
-        for (JsonElement element : versions) {
-            JsonObject versionObj = element.getAsJsonObject();
-            String id = versionObj.get("id").getAsString();
-            if (version.equals(id)) {
-                return versionObj.get("url").getAsString();
+    /**
+     * 流式读取版本清单，找到目标版本后即停止，其余条目不会构建成 JSON 树
+     */
+    private static Download findVersion(File manifest, String version) throws IOException {
+        try (JsonReader reader = openJson(manifest)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"versions".equals(reader.nextName())) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    Download download = readDownload(reader);
+                    if (version.equals(download.id)) {
+                        return download;
+                    }
+                }
+                reader.endArray();
             }
         }
         return null;
     }
 
-    private String findMappingUrl(JsonObject versionJson, String side) {
-        JsonObject downloads = versionJson.getAsJsonObject("downloads");
-        if (downloads == null) return null;
-
+    /**
+     * 流式读取版本 JSON，只解析 downloads 下对应端的映射条目
+     */
+    private static Download findMappingDownload(File versionJson, String side) throws IOException {
         String key = side + "_mappings";
-        JsonObject mappingObj = downloads.getAsJsonObject(key);
-        if (mappingObj == null) return null;
-
-        JsonElement urlElement = mappingObj.get("url");
-        return urlElement != null ? urlElement.getAsString() : null;
+        try (JsonReader reader = openJson(versionJson)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"downloads".equals(reader.nextName())) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (key.equals(reader.nextName())) {
+                        return readDownload(reader);
+                    }
+                    reader.skipValue();
+                }
+                reader.endObject();
+            }
+        }
+        return null;
     }
 
-    private JsonObject downloadJson(String urlStr) throws IOException {
-        String content = downloadString(urlStr);
-        return GSON.fromJson(content, JsonObject.class);
+    private static JsonReader openJson(File file) throws IOException {
+        return new JsonReader(new BufferedReader(new InputStreamReader(
+                Files.newInputStream(file.toPath()), StandardCharsets.UTF_8)));
     }
 
-    private String downloadString(String urlStr) throws IOException {
-        URL url = new URL(urlStr);
-        try (InputStream is = url.openStream();
-             BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                sb.append(line).append('\n');
+    private static Download readDownload(JsonReader reader) throws IOException {
+        Download download = new Download();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() != JsonToken.STRING) {
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "id":
+                    download.id = reader.nextString();
+                    break;
+                case "url":
+                    download.url = reader.nextString();
+                    break;
+                case "sha1":
+                    download.sha1 = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
             }
-            return sb.toString();
         }
+        reader.endObject();
+        return download;
     }
 
-    private void downloadFile(String urlStr, Path target) throws IOException {
-        URL url = new URL(urlStr);
-        try (InputStream is = url.openStream()) {
-            Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
-        }
+    /**
+     * 清单中的下载条目
+     */
+    private static final class Download {
+        private String id;
+        private String url;
+        private String sha1;
     }
 
     public void configureRepositories() {
-        project.getRepositories().maven(repo -> {
+        repositories.maven(repo -> {
             repo.setName("FabricMC");
             repo.setUrl("https://maven.fabricmc.net/");
         });
-        project.getRepositories().maven(repo -> {
+        repositories.maven(repo -> {
             repo.setName("MinecraftForge");
             repo.setUrl("https://maven.minecraftforge.net/");
         });
-        project.getRepositories().maven(repo -> {
+        repositories.maven(repo -> {
             repo.setName("NeoForged");
             repo.setUrl("https://maven.neoforged.net/releases/");
         });
-        project.getRepositories().maven(repo -> {
+        repositories.maven(repo -> {
             repo.setName("ParchmentMC");
             repo.setUrl("https://maven.parchmentmc.org/");
         });
-        project.getRepositories().mavenLocal();
+        repositories.mavenLocal();
 
         log.info("Configured mapping repositories");
     }
@@ -0,0 +1,125 @@
+package com.ecaree.jarremapper.mapping;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.util.Properties;
+
+/**
+ * 会更新的元数据文件（如版本清单）的缓存
+ * 通过 ETag 与 If-Modified-Since 重新验证，未变化时服务端只返回 304，不重新下载
+ * 请求失败时按 Downloader 的策略重试，离线模式或重试后仍不可用时直接使用缓存
+ * 内容与 Content-Length 不符时视为传输中断，缓存的文件与校验头都保持不变
+ */
+@Slf4j
+public class MetadataCache {
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+
+    @Getter
+    private final File cacheDir;
+
+    /**
+     * 提供超时设置与重试策略
+     */
+    @Setter
+    private Downloader downloader = new Downloader();
+
+    public MetadataCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * 获取最新的元数据文件
+     *
+     * @param offline 为 true 时不访问网络，没有缓存则抛出异常
+     */
+    public File get(URL url, String fileName, boolean offline) throws IOException {
+        File file = new File(cacheDir, fileName);
+        if (offline) {
+            if (file.isFile()) {
+                log.info("Offline, using cached {}", file);
+                return file;
+            }
+            throw new IOException("Offline and no cached copy of " + url);
+        }
+
+        try {
+            return downloader.withRetry(url, () -> revalidate(url, file));
+        } catch (IOException e) {
+            if (file.isFile()) {
+                log.warn("Failed to revalidate {}, using cached copy: {}", url, e.getMessage());
+                return file;
+            }
+            throw e;
+        }
+    }
+
+    private File revalidate(URL url, File file) throws IOException {
+        File headersFile = new File(cacheDir, file.getName() + ".headers");
+        Properties headers = new Properties();
+        if (file.isFile() && headersFile.isFile()) {
+            try (InputStream in = Files.newInputStream(headersFile.toPath())) {
+                headers.load(in);
+            }
+        }
+
+        URLConnection connection = downloader.open(url);
+        if (headers.getProperty(ETAG) != null) {
+            connection.setRequestProperty("If-None-Match", headers.getProperty(ETAG));
+        }
+        if (headers.getProperty(LAST_MODIFIED) != null) {
+            connection.setRequestProperty("If-Modified-Since", headers.getProperty(LAST_MODIFIED));
+        }
+
+        try {
+            if (connection instanceof HttpURLConnection) {
+                int status = ((HttpURLConnection) connection).getResponseCode();
+                if (status == HttpURLConnection.HTTP_NOT_MODIFIED && file.isFile()) {
+                    log.info("{} not modified, using cached {}", url, file);
+                    return file;
+                }
+                if (status != HttpURLConnection.HTTP_OK) {
+                    throw new Downloader.HttpStatusException(url, status);
+                }
+            }
+
+            log.info("Downloading {}", url);
+            Files.createDirectories(cacheDir.toPath());
+            long expected = connection.getContentLengthLong();
+            try (InputStream in = connection.getInputStream()) {
+                // 在临时文件移入缓存前校验长度，不完整的内容不会替换缓存
+                MappingCache.write(file.toPath(), null, out -> {
+                    long size = MappingCache.copy(in, out);
+                    if (expected >= 0 && size != expected) {
+                        throw new IOException("Incomplete download of " + url + ": " + size + " of " + expected + " bytes");
+                    }
+                });
+            }
+
+            // 内容完整写入后才写入新的校验头
+
+            Properties newHeaders = new Properties();
+            if (connection.getHeaderField(ETAG) != null) {
+                newHeaders.setProperty(ETAG, connection.getHeaderField(ETAG));
+            }
+            if (connection.getHeaderField(LAST_MODIFIED) != null) {
+                newHeaders.setProperty(LAST_MODIFIED, connection.getHeaderField(LAST_MODIFIED));
+            }
+            MappingCache.write(headersFile.toPath(), null, out -> newHeaders.store(out, null));
+            return file;
+        } finally {
+            if (connection instanceof HttpURLConnection) {
+                ((HttpURLConnection) connection).disconnect();
+            }
+        }
+    }
+}
@@ -4,6 +4,11 @@ import com.ecaree.jarremapper.annotation.MappingComment;
 import com.ecaree.jarremapper.annotation.MappingInfo;
 import com.ecaree.jarremapper.mapping.MappingData;
 import com.ecaree.jarremapper.mapping.MappingEntry;
+import com.ecaree.jarremapper.util.OutputCompression;
+import com.ecaree.jarremapper.util.ZipReader;
+import com.ecaree.jarremapper.util.ZipWriter;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.ClassReader;
@@ -14,18 +19,27 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.InterruptedIOException;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
-import java.util.Enumeration;
-import java.util.jar.JarEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarFile;
-import java.util.jar.JarOutputStream;
-import java.util.jar.Manifest;
 
 /**
  * 注解注入器
@@ -35,10 +49,30 @@ import java.util.jar.Manifest;
 public class AnnotationInjector {
     private static final String MAPPING_COMMENT_DESC = Type.getDescriptor(MappingComment.class);
     private static final String MAPPING_INFO_DESC = Type.getDescriptor(MappingInfo.class);
+    private static final String VERSIONED_PREFIX = "META-INF/versions/";
 
     private final MappingData mappingData;
+    @Getter
     private final boolean includeReadableInfo;
 
+    /**
+     * 可读类名 -> 类自身及其成员的映射条目
+     */
+    private final Map<String, List<MappingEntry>> annotatedClasses;
+
+    /**
+     * 并行处理类的线程数，1 表示串行
+     */
+    @Setter
+    private int parallelism = 1;
+
+    /**
+     * 重新生成的类条目的压缩方式
+     */
+    @Getter
+    @Setter
+    private OutputCompression compression = OutputCompression.defaults();
+
     public AnnotationInjector(MappingData mappingData) {
         this(mappingData, false);
     }
@@ -46,24 +80,34 @@ public class AnnotationInjector {
     public AnnotationInjector(MappingData mappingData, boolean includeReadableInfo) {
         this.mappingData = mappingData;
         this.includeReadableInfo = includeReadableInfo;
+        this.annotatedClasses = collectAnnotatedClasses(mappingData);
     }
 
-    private static byte[] readAllBytes(InputStream is) throws IOException {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        byte[] buffer = new byte[8192];
-        int bytesRead;
-        while ((bytesRead = is.read(buffer)) != -1) {
-            bos.write(buffer, 0, bytesRead);
+    private static Map<String, List<MappingEntry>> collectAnnotatedClasses(MappingData mappingData) {
+        Map<String, List<MappingEntry>> classes = new HashMap<>();
+        for (MappingEntry entry : mappingData.getEntries().values()) {
+            String className = entry.getType() == MappingEntry.Type.CLASS ? entry.getReadableName() : entry.getReadableOwner();
+            classes.computeIfAbsent(className, k -> new ArrayList<>()).add(entry);
         }
-        return bos.toByteArray();
+        return classes;
     }
 
-    private static void transferTo(InputStream is, OutputStream os) throws IOException {
-        byte[] buffer = new byte[8192];
-        int bytesRead;
-        while ((bytesRead = is.read(buffer)) != -1) {
-            os.write(buffer, 0, bytesRead);
+    /**
+     * 类注入注解所依据的映射条目摘要，条目或注释变化时摘要随之变化
+     */
+    String getAnnotationFingerprint(String readableClassName) {
+        List<MappingEntry> entries = annotatedClasses.get(readableClassName);
+        if (entries == null) {
+            return "";
+        }
+
+        List<String> parts = new ArrayList<>(entries.size());
+        for (MappingEntry entry : entries) {
+            parts.add(entry.getReadableKey() + '\0' + entry.getObfOwner() + '\0' + entry.getObfName()
+                    + '\0' + entry.getObfDescriptor() + '\0' + entry.getComment());
         }
+        Collections.sort(parts);
+        return IncrementalIndex.digest(String.join("\n", parts));
     }
 
     private static void visitIfNotNull(AnnotationVisitor av, String name, String value) {
@@ -73,8 +117,11 @@ public class AnnotationInjector {
     /**
      * 注入所有映射注解到目标
      */
-    private void injectAnnotations(MappingEntry entry, AnnotationTarget target) {
-        if (entry == null) return;
+    /**
+     * @return 是否注入了注解
+     */
+    private boolean injectAnnotations(MappingEntry entry, AnnotationTarget target) {
+        if (entry == null) return false;
 
         if (entry.hasComment()) {
             AnnotationVisitor av = target.visitAnnotation(MAPPING_COMMENT_DESC);
@@ -93,6 +140,7 @@ public class AnnotationInjector {
             visitIfNotNull(av, "readableDescriptor", entry.getReadableDescriptor());
         }
         av.visitEnd();
+        return true;
     }
 
     /**
@@ -107,6 +155,7 @@ public class AnnotationInjector {
         log.info("Input: {}", inputJar);
         log.info("Output: {}", outputJar);
         log.info("Include readable info: {}", includeReadableInfo);
+        log.info("Parallelism: {}", parallelism);
 
         File tempFile = null;
         File actualOutputJar = outputJar;
@@ -118,43 +167,54 @@ public class AnnotationInjector {
 
         int classCount = 0;
         int annotatedCount = 0;
-
-        try (JarFile jarFile = new JarFile(inputJar);
-             JarOutputStream jos = new JarOutputStream(Files.newOutputStream(actualOutputJar.toPath()))) {
-
-            Manifest manifest = jarFile.getManifest();
-            if (manifest != null) {
-                jos.putNextEntry(new JarEntry(JarFile.MANIFEST_NAME));
-                manifest.write(jos);
-                jos.closeEntry();
+        int copiedCount = 0;
+        int threads = Math.max(1, parallelism);
+
+        try (ZipReader reader = new ZipReader(inputJar);
+             ZipWriter writer = new ZipWriter(Files.newOutputStream(actualOutputJar.toPath()))) {
+
+            List<ZipReader.Entry> entries = new ArrayList<>(reader.getEntries());
+            for (int i = 0; i < entries.size(); i++) {
+                if (entries.get(i).getName().equalsIgnoreCase(JarFile.MANIFEST_NAME)) {
+                    // 清单保持在最前，JarInputStream 依赖此顺序
+                    entries.add(0, entries.remove(i));
+                    break;
+                }
             }
 
-            Enumeration<JarEntry> entries = jarFile.entries();
-            while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-                String name = entry.getName();
-
-                if (name.equals(JarFile.MANIFEST_NAME)) continue;
-
-                try (InputStream is = jarFile.getInputStream(entry)) {
-                    if (name.endsWith(".class")) {
-                        byte[] classBytes = readAllBytes(is);
-                        byte[] modifiedBytes = processClass(classBytes, name);
-
-                        jos.putNextEntry(new JarEntry(name));
-                        jos.write(modifiedBytes);
-                        jos.closeEntry();
+            // 工作线程并行读取、注入与压缩，当前线程按原顺序写出，输出与串行模式一致
+            // 无需注入的条目直接复制原始压缩数据，不经过线程池
+            ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "jar-remapper-inject");
+                thread.setDaemon(true);
+                return thread;
+            }) : null;
+            try {
+                Deque<Future<ProcessedEntry>> pending = new ArrayDeque<>();
+                int window = threads * 4;
+
+                Iterator<ZipReader.Entry> iterator = entries.iterator();
+                while (iterator.hasNext() || !pending.isEmpty()) {
+                    while (iterator.hasNext() && pending.size() < window) {
+                        ZipReader.Entry entry = iterator.next();
+                        Callable<ProcessedEntry> task = () -> processEntry(reader, entry);
+                        pending.add(executor != null && needsInjection(entry) ? executor.submit(task) : completed(task));
+                    }
 
+                    ProcessedEntry processed = await(pending.poll());
+                    writer.write(processed.entry);
+                    if (processed.isClass) {
                         classCount++;
-                        if (modifiedBytes.length > classBytes.length) {
+                        if (processed.copied) {
+                            copiedCount++;
+                        } else if (processed.annotated) {
                             annotatedCount++;
                         }
-                    } else {
-                        jos.putNextEntry(new JarEntry(name));
-                        transferTo(is, jos);
-                        jos.closeEntry();
                     }
                 }
+            } finally {
+                // 工作线程可能仍在通过 ZipReader 读取条目，必须在关闭 ZipReader 前结束
+                shutdownAndWait(executor);
             }
         }
 
@@ -163,18 +223,97 @@ public class AnnotationInjector {
             Files.move(tempFile.toPath(), inputJar.toPath(), StandardCopyOption.REPLACE_EXISTING);
         }
 
-        log.info("Annotation injection completed: {}/{} classes annotated", annotatedCount, classCount);
+        log.info("Annotation injection completed: {}/{} classes annotated, {} copied without changes",
+                annotatedCount, classCount, copiedCount);
     }
 
-    private byte[] processClass(byte[] classBytes, String entryName) {
-        String className = entryName.substring(0, entryName.length() - 6); // 去掉 .class
+    private ProcessedEntry processEntry(ZipReader reader, ZipReader.Entry entry) throws IOException {
+        boolean isClass = !entry.isDirectory() && entry.getName().endsWith(".class");
+        if (!needsInjection(entry)) {
+            return new ProcessedEntry(ZipWriter.raw(entry, reader.rawBuffer(entry)), isClass, false, true);
+        }
 
-        ClassReader reader = new ClassReader(classBytes);
-        ClassWriter writer = new ClassWriter(reader, 0);
-        ClassVisitor visitor = new AnnotationInjectingClassVisitor(writer, className);
+        ClassReader classReader = new ClassReader(reader.readData(entry));
+        ClassWriter classWriter = new ClassWriter(classReader, 0);
+        AnnotationInjectingClassVisitor visitor = new AnnotationInjectingClassVisitor(classWriter);
+        classReader.accept(visitor, 0);
+        return new ProcessedEntry(compression.compress(entry, entry.getName(), classWriter.toByteArray()),
+                true, visitor.annotated, false);
+    }
 
-        reader.accept(visitor, 0);
-        return writer.toByteArray();
+    /**
+     * 只有类自身或其成员存在映射条目的类需要解析，其余条目原样复制
+     */
+    private boolean needsInjection(ZipReader.Entry entry) {
+        String name = entry.getName();
+        if (entry.isDirectory() || !name.endsWith(".class")) {
+            return false;
+        }
+        if (name.startsWith(VERSIONED_PREFIX)) {
+            // 多版本 JAR 中的类：META-INF/versions/<版本>/<类名>.class
+            int slash = name.indexOf('/', VERSIONED_PREFIX.length());
+            name = slash >= 0 ? name.substring(slash + 1) : name;
+        }
+        return annotatedClasses.containsKey(name.substring(0, name.length() - ".class".length()));
+    }
+
+    private static void shutdownAndWait(ExecutorService executor) throws InterruptedIOException {
+        if (executor == null) return;
+
+        executor.shutdownNow();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("Waiting for annotation injection workers to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Annotation injection interrupted");
+        }
+    }
+
+    private static Future<ProcessedEntry> completed(Callable<ProcessedEntry> task) {
+        FutureTask<ProcessedEntry> future = new FutureTask<>(task);
+        future.run();
+        return future;
+    }
+
+    private static ProcessedEntry await(Future<ProcessedEntry> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Annotation injection interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 创建注入注解的访问器，可串接在其他访问器之后
+     * 类名取自 visit() 收到的名称，因此上游需已输出可读命名
+     *
+     * @param next 接收注入注解后类的访问器
+     */
+    public ClassVisitor createClassVisitor(ClassVisitor next) {
+        return new AnnotationInjectingClassVisitor(next);
+    }
+
+    private static class ProcessedEntry {
+        private final ZipWriter.Entry entry;
+        private final boolean isClass;
+        private final boolean annotated;
+        private final boolean copied;
+
+        ProcessedEntry(ZipWriter.Entry entry, boolean isClass, boolean annotated, boolean copied) {
+            this.entry = entry;
+            this.isClass = isClass;
+            this.annotated = annotated;
+            this.copied = copied;
+        }
     }
 
     @FunctionalInterface
@@ -183,17 +322,21 @@ public class AnnotationInjector {
     }
 
     private class AnnotationInjectingClassVisitor extends ClassVisitor {
-        private final String className;
-
-        AnnotationInjectingClassVisitor(ClassWriter writer, String className) {
-            super(Opcodes.ASM9, writer);
-            this.className = className;
+        private String className;
+        /**
+         * 类或其成员是否注入了注解
+         */
+        private boolean annotated;
+
+        AnnotationInjectingClassVisitor(ClassVisitor next) {
+            super(Opcodes.ASM9, next);
         }
 
         @Override
         public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.className = name;
             super.visit(version, access, name, signature, superName, interfaces);
-            injectAnnotations(
+            annotated |= injectAnnotations(
                     mappingData.getClassEntry(className),
                     desc -> super.visitAnnotation(desc, true)
             );
@@ -202,7 +345,7 @@ public class AnnotationInjector {
         @Override
         public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
             FieldVisitor fv = super.visitField(access, name, descriptor, signature, value);
-            injectAnnotations(
+            annotated |= injectAnnotations(
                     mappingData.getFieldEntry(className, name),
                     desc -> fv.visitAnnotation(desc, true)
             );
@@ -232,7 +375,7 @@ public class AnnotationInjector {
                 private void ensureAnnotationsInjected() {
                     if (!annotationsInjected) {
                         annotationsInjected = true;
-                        injectAnnotations(entry, desc -> mv.visitAnnotation(desc, true));
+                        annotated |= injectAnnotations(entry, desc -> mv.visitAnnotation(desc, true));
                     }
                 }
 
@@ -0,0 +1,307 @@
+package com.ecaree.jarremapper.remap;
+
+import com.ecaree.jarremapper.util.ZipReader;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 增量 JAR 重映射索引
+ * 保存在输出 JAR 旁，记录每个类条目的内容哈希、输出名称以及重映射时用到的映射查找
+ * 下次重映射时重新计算这些查找，内容与查找结果都未变化的类直接复制上次输出的原始数据
+ * 成员查找会沿继承关系进行，因此继承关系变化导致查找结果变化的类同样会重新处理
+ */
+@Slf4j
+final class IncrementalIndex {
+    private static final int MAGIC = 0x4A524D49;
+    private static final int VERSION = 1;
+
+    /**
+     * 影响输出字节的选项，变化时整个索引失效
+     */
+    private final String options;
+
+    private final List<Lookup> lookups = new ArrayList<>();
+    private final List<String> results = new ArrayList<>();
+    private final Map<Lookup, Integer> lookupIndices = new HashMap<>();
+    private final Map<String, ClassRecord> classes = new HashMap<>();
+
+    @Getter
+    private String outputFingerprint;
+
+    IncrementalIndex(String options) {
+        this.options = options;
+    }
+
+    static File indexFileFor(File outputJar) {
+        return new File(outputJar.getParentFile(), outputJar.getName() + ".remap-index");
+    }
+
+    /**
+     * 读取上次的索引
+     *
+     * @return 索引不存在、损坏或选项不一致时返回 null
+     */
+    static IncrementalIndex load(File indexFile, String options) {
+        if (!indexFile.isFile()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.info("Incremental index format changed, remapping all classes");
+                return null;
+            }
+            String savedOptions = in.readUTF();
+            if (!savedOptions.equals(options)) {
+                log.info("Remap options changed, remapping all classes");
+                return null;
+            }
+
+            IncrementalIndex index = new IncrementalIndex(options);
+            index.outputFingerprint = in.readUTF();
+
+            int lookupCount = in.readInt();
+            for (int i = 0; i < lookupCount; i++) {
+                char kind = in.readChar();
+                String owner = in.readUTF();
+                String name = readNullable(in);
+                String descriptor = readNullable(in);
+                index.addLookup(new Lookup(kind, owner, name, descriptor), in.readUTF());
+            }
+
+            int classCount = in.readInt();
+            for (int i = 0; i < classCount; i++) {
+                String entryName = in.readUTF();
+                byte[] hash = new byte[in.readUnsignedByte()];
+                in.readFully(hash);
+                String outputName = in.readUTF();
+                int[] lookupRefs = new int[in.readInt()];
+                for (int j = 0; j < lookupRefs.length; j++) {
+                    lookupRefs[j] = in.readInt();
+                    if (lookupRefs[j] < 0 || lookupRefs[j] >= lookupCount) {
+                        throw new IOException("Invalid lookup reference");
+                    }
+                }
+                index.classes.put(entryName, new ClassRecord(hash, outputName, lookupRefs));
+            }
+            return index;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable incremental index {}: {}", indexFile, e.getMessage());
+            return null;
+        }
+    }
+
+    void save(File indexFile, String outputFingerprint) throws IOException {
+        File tempFile = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(options);
+            out.writeUTF(outputFingerprint);
+
+            out.writeInt(lookups.size());
+            for (int i = 0; i < lookups.size(); i++) {
+                Lookup lookup = lookups.get(i);
+                out.writeChar(lookup.kind);
+                out.writeUTF(lookup.owner);
+                writeNullable(out, lookup.name);
+                writeNullable(out, lookup.descriptor);
+                out.writeUTF(results.get(i));
+            }
+
+            out.writeInt(classes.size());
+            for (Map.Entry<String, ClassRecord> entry : classes.entrySet()) {
+                ClassRecord record = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeByte(record.hash.length);
+                out.write(record.hash);
+                out.writeUTF(record.outputName);
+                out.writeInt(record.lookupRefs.length);
+                for (int ref : record.lookupRefs) {
+                    out.writeInt(ref);
+                }
+            }
+        }
+        Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 按当前映射重新计算所有记录的查找
+     *
+     * @return 下标对应查找表，结果变化的为 true
+     */
+    boolean[] findChangedLookups(Function<Lookup, String> evaluator) {
+        boolean[] changed = new boolean[lookups.size()];
+        int changedCount = 0;
+        for (int i = 0; i < changed.length; i++) {
+            if (!results.get(i).equals(evaluator.apply(lookups.get(i)))) {
+                changed[i] = true;
+                changedCount++;
+            }
+        }
+        log.info("Incremental index: {}/{} mapping lookups changed", changedCount, changed.length);
+        return changed;
+    }
+
+    /**
+     * 判断类条目能否复用上次的输出
+     *
+     * @return 可复用时返回上次的输出名称，否则返回 null
+     */
+    String findReusable(String entryName, byte[] hash, boolean[] changedLookups) {
+        ClassRecord record = classes.get(entryName);
+        if (record == null || !Arrays.equals(record.hash, hash)) {
+            return null;
+        }
+        for (int ref : record.lookupRefs) {
+            if (changedLookups[ref]) {
+                return null;
+            }
+        }
+        return record.outputName;
+    }
+
+    /**
+     * 复制上次记录的查找到新索引，复用的类查找结果必然未变
+     */
+    Collection<Lookup> getLookups(String entryName) {
+        ClassRecord record = classes.get(entryName);
+        List<Lookup> result = new ArrayList<>(record.lookupRefs.length);
+        for (int ref : record.lookupRefs) {
+            result.add(lookups.get(ref));
+        }
+        return result;
+    }
+
+    void addClass(String entryName, byte[] hash, String outputName, Collection<Lookup> classLookups,
+                  Function<Lookup, String> evaluator) {
+        int[] refs = new int[classLookups.size()];
+        int i = 0;
+        for (Lookup lookup : classLookups) {
+            Integer ref = lookupIndices.get(lookup);
+            refs[i++] = ref != null ? ref : addLookup(lookup, evaluator.apply(lookup));
+        }
+        classes.put(entryName, new ClassRecord(hash, outputName, refs));
+    }
+
+    private int addLookup(Lookup lookup, String result) {
+        int ref = lookups.size();
+        lookups.add(lookup);
+        results.add(result);
+        lookupIndices.put(lookup, ref);
+        return ref;
+    }
+
+    /**
+     * 条目内容哈希，基于原始压缩数据，无需解压
+     */
+    static byte[] hash(ZipReader.Entry entry, ByteBuffer rawData) {
+        MessageDigest digest = newDigest();
+        digest.update((byte) entry.getMethod());
+        digest.update(rawData.duplicate());
+        return digest.digest();
+    }
+
+    /**
+     * 输出 JAR 的指纹，基于中央目录中每个条目的名称与 CRC
+     * 用于确认输出 JAR 仍是上次写出的那一份
+     */
+    static String fingerprint(ZipReader reader) {
+        MessageDigest digest = newDigest();
+        for (ZipReader.Entry entry : reader.getEntries()) {
+            digest.update(entry.getName().getBytes(StandardCharsets.UTF_8));
+            digest.update(ByteBuffer.allocate(20)
+                    .putLong(entry.getCrc())
+                    .putLong(entry.getCompressedSize())
+                    .putInt(entry.getMethod())
+                    .array());
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * 字符串内容的摘要
+     */
+    static String digest(String value) {
+        return toHex(newDigest().digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * 一次映射查找
+     */
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    static final class Lookup {
+        static final char CLASS = 'C';
+        static final char FIELD = 'F';
+        static final char METHOD = 'M';
+        static final char DECLARED_FIELD = 'f';
+        static final char DECLARED_METHOD = 'm';
+        /**
+         * 类的注解注入所用映射条目，owner 为可读类名
+         */
+        static final char ANNOTATIONS = 'A';
+
+        private final char kind;
+        private final String owner;
+        private final String name;
+        private final String descriptor;
+    }
+
+    @AllArgsConstructor
+    private static final class ClassRecord {
+        private final byte[] hash;
+        private final String outputName;
+        private final int[] lookupRefs;
+    }
+}
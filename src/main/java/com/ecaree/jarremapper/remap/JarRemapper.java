@@ -1,24 +1,43 @@
 package com.ecaree.jarremapper.remap;
 
+import com.ecaree.jarremapper.mapping.ClassHierarchy;
+import com.ecaree.jarremapper.mapping.ClassHierarchyCache;
+import com.ecaree.jarremapper.mapping.JdkHierarchySnapshot;
 import com.ecaree.jarremapper.mapping.MappingData;
 import com.ecaree.jarremapper.util.FileUtils;
+import com.ecaree.jarremapper.util.OutputCompression;
+import com.ecaree.jarremapper.util.ZipReader;
+import com.ecaree.jarremapper.util.ZipWriter;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import net.md_5.specialsource.Jar;
-import net.md_5.specialsource.JarMapping;
-import net.md_5.specialsource.provider.ClassLoaderProvider;
-import net.md_5.specialsource.provider.JarProvider;
 import net.md_5.specialsource.provider.JointProvider;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 /**
  * JAR 重映射
- * 封装 SpecialSource 的核心功能
+ * 使用 SpecialSource 的映射，由 ASM 逐类重映射
  */
 @Slf4j
 @Getter
@@ -26,6 +45,36 @@ import java.util.List;
 public class JarRemapper {
     private final MappingData mappingData;
 
+    /**
+     * 设置后在重映射的同一遍 ASM 处理中注入映射注解，无需再次读写 JAR
+     */
+    @Setter
+    private AnnotationInjector annotationInjector;
+
+    /**
+     * 重映射后类条目的压缩方式，资源保持原有压缩
+     */
+    @Setter
+    private OutputCompression compression = OutputCompression.defaults();
+
+    /**
+     * 增量模式：在输出 JAR 旁保存索引，内容与用到的映射都未变化的类直接复制上次的输出
+     */
+    @Setter
+    private boolean incremental;
+
+    /**
+     * 设置后库 JAR 的继承关系从持久化缓存读取，未命中时解析并写入缓存
+     */
+    @Setter
+    private ClassHierarchyCache hierarchyCache;
+
+    /**
+     * 选择 JDK 继承关系快照的目标 Java 版本，0 表示按输入 JAR 的类文件版本选择
+     */
+    @Setter
+    private int targetJavaVersion;
+
     public void remapJar(File inputJar, File outputJar) throws IOException {
         remapJarWithLibraries(inputJar, outputJar);
     }
@@ -41,47 +90,272 @@ public class JarRemapper {
             log.info("Libraries: {}", libraryJars.length);
         }
 
-        List<Jar> openedJars = new ArrayList<>();
+        prepareHierarchy(Collections.singletonList(inputJar), libraryJars);
 
-        try {
-            Jar jar = Jar.init(inputJar);
-            openedJars.add(jar);
-
-            JointProvider inheritanceProviders = new JointProvider();
-            inheritanceProviders.add(new JarProvider(jar));
-
-            for (File libJar : libraryJars) {
-                if (libJar.exists()) {
-                    try {
-                        Jar lib = Jar.init(libJar);
-                        openedJars.add(lib);
-                        inheritanceProviders.add(new JarProvider(lib));
-                    } catch (IOException e) {
-                        log.warn("Failed to load library JAR: {}", libJar);
+        FileUtils.ensureDirectory(outputJar.getParentFile());
+
+        int classCount = writeRemappedJar(inputJar, outputJar);
+
+        if (annotationInjector != null) {
+            log.info("JAR remapping completed with annotation injection: {} classes, {}", classCount, outputJar);
+        } else {
+            log.info("JAR remapping completed: {} classes, {}", classCount, outputJar);
+        }
+    }
+
+    /**
+     * 批量重映射前准备继承关系，覆盖所有输入 JAR 与库 JAR，只构建一次
+     * 跨 JAR 的继承在整个集合内解析，之后可调用 remapJars 重映射其中任意 JAR
+     */
+    public void prepareHierarchy(Collection<File> inputJars, File... libraryJars) throws IOException {
+        // 继承关系只读取类头，与写出共用同一套映射读取方式
+        ClassHierarchy hierarchy = new ClassHierarchy();
+        for (File inputJar : inputJars) {
+            hierarchy.addJar(inputJar);
+        }
+        for (File libJar : libraryJars) {
+            if (libJar.exists()) {
+                try {
+                    if (hierarchyCache != null) {
+                        hierarchyCache.addJar(hierarchy, libJar);
+                    } else {
+                        hierarchy.addJar(libJar);
                     }
+                } catch (IOException e) {
+                    log.warn("Failed to load library JAR: {}", libJar);
                 }
             }
+        }
 
-            inheritanceProviders.add(new ClassLoaderProvider(ClassLoader.getSystemClassLoader()));
+        if (hierarchyCache != null && libraryJars.length > 0) {
+            log.info("Library class hierarchy: {}", hierarchyCache.getSummary());
+        }
+
+        // JDK 类使用打包的快照，不加载到当前 JVM，也不受当前 JVM 版本影响
+        int javaVersion = targetJavaVersion > 0 ? targetJavaVersion : hierarchy.getJavaVersion();
+        log.info("JDK class hierarchy: Java {} snapshot", JdkHierarchySnapshot.selectVersion(javaVersion));
 
-            JarMapping jarMapping = mappingData.getJarMapping();
-            jarMapping.setFallbackInheritanceProvider(inheritanceProviders);
+        // 集合内的类使用预先展开的继承成员，并发重映射时只读查找
+        mappingData.setClassHierarchy(hierarchy);
 
-            net.md_5.specialsource.JarRemapper remapper = new net.md_5.specialsource.JarRemapper(null, jarMapping, null);
+        JointProvider inheritanceProviders = new JointProvider();
+        inheritanceProviders.add(hierarchy);
+        inheritanceProviders.add(JdkHierarchySnapshot.load(javaVersion));
 
-            FileUtils.ensureDirectory(outputJar.getParentFile());
+        mappingData.setFallbackInheritanceProvider(inheritanceProviders);
+    }
 
-            remapper.remapJar(jar, outputJar);
+    /**
+     * 使用 prepareHierarchy 准备好的映射与继承关系并发重映射多个 JAR
+     * 每个 JAR 独立写出，映射查找缓存在所有 JAR 间共享
+     *
+     * @param jars        输入 JAR 到输出 JAR
+     * @param parallelism 同时处理的 JAR 数
+     */
+    public void remapJars(Map<File, File> jars, int parallelism) throws IOException {
+        int threads = Math.max(1, Math.min(parallelism, jars.size()));
+        if (threads == 1) {
+            for (Map.Entry<File, File> jar : jars.entrySet()) {
+                remapPreparedJar(jar.getKey(), jar.getValue());
+            }
+            return;
+        }
 
-            log.info("JAR remapping completed: {}", outputJar);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "jar-remapper-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (Map.Entry<File, File> jar : jars.entrySet()) {
+                futures.add(executor.submit(() -> remapPreparedJar(jar.getKey(), jar.getValue())));
+            }
+            for (Future<Integer> future : futures) {
+                await(future);
+            }
         } finally {
-            for (Jar jar : openedJars) {
-                try {
-                    jar.close();
-                } catch (Exception e) {
-                    log.warn("Failed to close JAR: {}", e.getMessage());
+            executor.shutdownNow();
+        }
+    }
+
+    private int remapPreparedJar(File inputJar, File outputJar) throws IOException {
+        FileUtils.ensureDirectory(outputJar.getParentFile());
+        int classCount = writeRemappedJar(inputJar, outputJar);
+        log.info("JAR remapping completed: {} classes, {}", classCount, outputJar);
+        return classCount;
+    }
+
+    private static void await(Future<Integer> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("JAR remapping interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 输入 JAR 未变化时，判断上次增量重映射的输出是否仍然有效
+     * 重新计算索引中记录的映射查找，映射或继承关系的变化都会体现在查找结果中
+     */
+    public boolean isOutputCurrent(File outputJar) throws IOException {
+        if (!incremental) {
+            return false;
+        }
+        IncrementalIndex previous = loadPreviousIndex(IncrementalIndex.indexFileFor(outputJar), outputJar);
+        if (previous == null) {
+            return false;
+        }
+        for (boolean changed : previous.findChangedLookups(lookupEvaluator(new MappingRemapper(mappingData)))) {
+            if (changed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 逐个条目写出重映射后的 JAR
+     * 类经 ClassReader -> 重映射 -> (注解注入) -> ClassWriter 一次完成
+     * 资源直接复制原始压缩数据，保留压缩方式与 CRC，不解压也不重新压缩
+     * 增量模式下可复用的类直接复制上次输出的原始数据
+     */
+    private int writeRemappedJar(File inputJar, File outputJar) throws IOException {
+        MappingRemapper remapper = new MappingRemapper(mappingData);
+        Function<IncrementalIndex.Lookup, String> evaluator = lookupEvaluator(remapper);
+
+        File indexFile = IncrementalIndex.indexFileFor(outputJar);
+        IncrementalIndex previous = null;
+        IncrementalIndex index = null;
+        if (incremental) {
+            previous = loadPreviousIndex(indexFile, outputJar);
+            index = new IncrementalIndex(getIncrementalOptions());
+        } else {
+            Files.deleteIfExists(indexFile.toPath());
+        }
+
+        // 复用上次输出时不能直接覆盖正在读取的文件
+        File targetJar = previous != null ? new File(outputJar.getParentFile(), outputJar.getName() + ".tmp") : outputJar;
+        int classCount = 0;
+        int reusedCount = 0;
+        int resourceCount = 0;
+
+        try (ZipReader reader = new ZipReader(inputJar);
+             ZipReader previousOutput = previous != null ? new ZipReader(outputJar) : null;
+             ZipWriter writer = new ZipWriter(Files.newOutputStream(targetJar.toPath()))) {
+            Map<String, ZipReader.Entry> previousEntries = new HashMap<>();
+            boolean[] changedLookups = null;
+            if (previous != null) {
+                for (ZipReader.Entry entry : previousOutput.getEntries()) {
+                    previousEntries.put(entry.getName(), entry);
+                }
+                changedLookups = previous.findChangedLookups(evaluator);
+            }
+
+            for (ZipReader.Entry entry : reader.getEntries()) {
+                if (entry.isDirectory()) continue;
+
+                String name = entry.getName();
+                if (!name.endsWith(".class")) {
+                    writer.write(ZipWriter.raw(entry, reader.rawBuffer(entry)));
+                    resourceCount++;
+                    continue;
+                }
+
+                classCount++;
+                String className = name.substring(0, name.length() - 6);
+                if (index == null) {
+                    byte[] remapped = remapClass(remapper, reader.readData(entry));
+                    writer.write(compression.compress(entry, remapper.map(className) + ".class", remapped));
+                    continue;
+                }
+
+                byte[] hash = IncrementalIndex.hash(entry, reader.rawBuffer(entry));
+                String reusableName = previous != null ? previous.findReusable(name, hash, changedLookups) : null;
+                ZipReader.Entry previousEntry = reusableName != null ? previousEntries.get(reusableName) : null;
+                if (previousEntry != null) {
+                    writer.write(ZipWriter.raw(previousEntry, previousOutput.rawBuffer(previousEntry)));
+                    index.addClass(name, hash, reusableName, previous.getLookups(name), evaluator);
+                    reusedCount++;
+                    continue;
+                }
+
+                remapper.startRecording();
+                byte[] remapped = remapClass(remapper, reader.readData(entry));
+                String outputClassName = remapper.map(className);
+                Set<IncrementalIndex.Lookup> lookups = remapper.stopRecording();
+                if (annotationInjector != null) {
+                    lookups.add(new IncrementalIndex.Lookup(IncrementalIndex.Lookup.ANNOTATIONS, outputClassName, null, null));
                 }
+                writer.write(compression.compress(entry, outputClassName + ".class", remapped));
+                index.addClass(name, hash, outputClassName + ".class", lookups, evaluator);
+            }
+        } catch (IOException | RuntimeException e) {
+            if (targetJar != outputJar) {
+                Files.deleteIfExists(targetJar.toPath());
+            }
+            throw e;
+        }
+
+        if (targetJar != outputJar) {
+            Files.move(targetJar.toPath(), outputJar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (index != null) {
+            try (ZipReader written = new ZipReader(outputJar)) {
+                index.save(indexFile, IncrementalIndex.fingerprint(written));
             }
+            log.info("Incremental remapping: {}/{} classes reused from previous output", reusedCount, classCount);
         }
+
+        log.debug("Copied {} resources without recompression", resourceCount);
+        return classCount;
+    }
+
+    private Function<IncrementalIndex.Lookup, String> lookupEvaluator(MappingRemapper remapper) {
+        return lookup -> lookup.getKind() == IncrementalIndex.Lookup.ANNOTATIONS
+                ? annotationInjector.getAnnotationFingerprint(lookup.getOwner())
+                : remapper.evaluate(lookup);
+    }
+
+    /**
+     * 读取上次的增量索引，并确认输出 JAR 仍是索引对应的那一份
+     */
+    private IncrementalIndex loadPreviousIndex(File indexFile, File outputJar) throws IOException {
+        IncrementalIndex previous = IncrementalIndex.load(indexFile, getIncrementalOptions());
+        if (previous == null || !outputJar.isFile()) {
+            return null;
+        }
+        try (ZipReader output = new ZipReader(outputJar)) {
+            if (!IncrementalIndex.fingerprint(output).equals(previous.getOutputFingerprint())) {
+                log.info("Output JAR changed since last remap, remapping all classes");
+                return null;
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * 影响输出字节的选项，变化时增量索引失效
+     */
+    private String getIncrementalOptions() {
+        String annotations = annotationInjector == null ? "none"
+                : annotationInjector.isIncludeReadableInfo() ? "readable" : "plain";
+        return "compression=" + compression.getMode() + ":" + compression.getLevel() + ";annotations=" + annotations;
+    }
+
+    private byte[] remapClass(MappingRemapper remapper, byte[] classBytes) {
+        ClassReader reader = new ClassReader(classBytes);
+        ClassWriter writer = new ClassWriter(0);
+        ClassVisitor next = annotationInjector != null ? annotationInjector.createClassVisitor(writer) : writer;
+
+        reader.accept(remapper.createClassVisitor(next), 0);
+        return writer.toByteArray();
     }
-}
\ No newline at end of file
+}
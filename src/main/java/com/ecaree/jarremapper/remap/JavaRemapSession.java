@@ -0,0 +1,179 @@
+package com.ecaree.jarremapper.remap;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
+import com.github.javaparser.resolution.TypeSolver;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Java 重映射会话
+ * 复用 JavaRemapper 的映射索引，并保持类型解析器与解析器预热，预热后单文件重映射无需重复初始化
+ * <p>
+ * 会话可由多个线程同时调用：JavaParser 与 SymbolSolver 的缓存不支持并发访问，
+ * 每个调用从池中取一个独占的解析上下文，并发调用时按需创建新的上下文，用完后放回池中复用
+ * JavaRemapper 的映射索引只读，在所有上下文间共享
+ */
+@Slf4j
+public class JavaRemapSession implements Closeable {
+    private final JavaRemapper remapper;
+    private final File sourceRoot;
+    private final Deque<ParserContext> idle = new ConcurrentLinkedDeque<>();
+    /**
+     * resetCaches 的次数，正在使用的上下文放回时据此判断是否需要重建
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+    private volatile boolean closed;
+
+    JavaRemapSession(JavaRemapper remapper, File sourceRoot) {
+        this.remapper = remapper;
+        this.sourceRoot = sourceRoot;
+        idle.push(new ParserContext());
+    }
+
+    /**
+     * 重映射单个 Java 文件，不写回磁盘
+     *
+     * @return 重映射后的源码，无法解析时返回原内容
+     */
+    public String remapFile(Path file) throws IOException {
+        ensureOpen();
+        return remapString(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 重映射 Java 源码字符串
+     *
+     * @return 重映射后的源码，无法解析时返回原内容
+     */
+    public String remapString(String source) {
+        ensureOpen();
+        if (!remapper.mayBeAffected(source.getBytes(StandardCharsets.UTF_8))) {
+            return source;
+        }
+
+        CompilationUnit cu = remapUnit(source);
+        if (cu == null) {
+            return source;
+        }
+        String result = LexicalPreservingPrinter.print(cu);
+        JavaRemapper.releaseUnit(cu);
+        return result;
+    }
+
+    /**
+     * 丢弃源码目录的类型解析缓存，库 JAR 的类型解析器保留
+     * 源码根目录下的文件被外部修改后调用，正在使用的上下文在用完后重建
+     */
+    public void resetCaches() {
+        ensureOpen();
+        generation.incrementAndGet();
+        for (ParserContext context : idle) {
+            context.refresh();
+        }
+    }
+
+    CompilationUnit remapUnit(String source) {
+        ParserContext context = acquire();
+        try {
+            return remapper.remapCompilationUnit(context.parser, source);
+        } finally {
+            release(context);
+        }
+    }
+
+    /**
+     * 释放所有解析上下文，之后调用任何方法都会抛出 IllegalStateException
+     * 正在使用的上下文在调用返回时释放
+     */
+    @Override
+    public void close() {
+        closed = true;
+        ParserContext context;
+        while ((context = idle.poll()) != null) {
+            context.close();
+        }
+    }
+
+    private ParserContext acquire() {
+        ensureOpen();
+        ParserContext context = idle.poll();
+        return context != null ? context : new ParserContext();
+    }
+
+    private void release(ParserContext context) {
+        if (closed) {
+            context.close();
+            return;
+        }
+        context.refresh();
+        idle.push(context);
+        // 与 close 并发时，close 可能已清空池
+        if (closed && idle.remove(context)) {
+            context.close();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Java remap session is closed");
+        }
+    }
+
+    /**
+     * 一个线程独占的解析器与类型解析器
+     * 库 JAR 的类型解析器在上下文内一直保留，重建时只替换源码目录的类型解析器
+     */
+    private final class ParserContext {
+        private final List<TypeSolver> libraryTypeSolvers = new ArrayList<>();
+        private final TypeSolver libraries;
+        private JavaParser parser;
+        private int parserGeneration;
+
+        ParserContext() {
+            this.libraries = remapper.createLibraryTypeSolver(libraryTypeSolvers);
+            this.parserGeneration = generation.get();
+            this.parser = remapper.createParser(sourceRoot, libraries);
+        }
+
+        /**
+         * resetCaches 之后首次使用前重建解析器
+         */
+        void refresh() {
+            int current = generation.get();
+            if (parserGeneration != current) {
+                parserGeneration = current;
+                parser = remapper.createParser(sourceRoot, libraries);
+            }
+        }
+
+        /**
+         * 关闭持有资源的类型解析器（如库 JAR 的句柄），并丢弃其缓存
+         */
+        void close() {
+            parser = null;
+            for (TypeSolver typeSolver : libraryTypeSolvers) {
+                if (typeSolver instanceof AutoCloseable) {
+                    try {
+                        ((AutoCloseable) typeSolver).close();
+                    } catch (Exception e) {
+                        log.warn("Failed to close type solver {}: {}", typeSolver, e.getMessage());
+                    }
+                }
+            }
+            libraryTypeSolvers.clear();
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package com.ecaree.jarremapper.remap;
 
+import com.ecaree.jarremapper.mapping.ClassHierarchy;
 import com.ecaree.jarremapper.mapping.MappingData;
 import com.ecaree.jarremapper.util.FileUtils;
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParseResult;
 import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.DataKey;
 import com.github.javaparser.ast.ImportDeclaration;
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.NodeList;
@@ -26,6 +28,7 @@ import com.github.javaparser.ast.type.Type;
 import com.github.javaparser.ast.type.WildcardType;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
+import com.github.javaparser.resolution.TypeSolver;
 import com.github.javaparser.resolution.UnsolvedSymbolException;
 import com.github.javaparser.resolution.declarations.ResolvedFieldDeclaration;
 import com.github.javaparser.resolution.declarations.ResolvedMethodDeclaration;
@@ -37,12 +40,21 @@ import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSol
 import com.github.javaparser.symbolsolver.resolution.typesolvers.JarTypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import net.md_5.specialsource.JarMapping;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -50,6 +62,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Java 重映射
@@ -65,6 +83,38 @@ public class JavaRemapper {
     private final Map<String, String> packageMappingIndex;
     private final Map<String, String> uniqueFieldMappings;
     private final Map<String, String> uniqueMethodMappings;
+    private final Map<String, Map<String, List<MethodOverload>>> overloadIndex;
+    private final Set<String> mappedIdentifiers;
+    private final int maxIdentifierLength;
+    /**
+     * 最近一次 remapJavaSource 中未经解析直接复制的文件数
+     */
+    @Getter
+    private int skippedCount;
+    /**
+     * 内存受限模式
+     * 源码类型缓存按条目数淘汰，堆占用超过水位时降为单线程解析，并重建源码目录的类型解析器，释放其持有的 AST 与解析缓存
+     * 库 JAR 的类型解析器保留，无需重新打开与索引
+     * 只清理本会话的缓存，不影响守护进程中同时执行的其他任务
+     */
+    @Setter
+    private boolean memoryBounded = false;
+    /**
+     * 内存受限模式下源码目录类型缓存的最大条目数
+     */
+    @Setter
+    private long typeSolverCacheSize = 500;
+    /**
+     * 内存受限模式下的堆占用水位，取值 0-1
+     */
+    @Setter
+    private double heapWatermark = 0.8;
+    /**
+     * remapJavaSource 同时解析的文件数
+     * 每个线程使用会话中独立的解析上下文，内存受限模式下堆占用超过水位时降为单线程
+     */
+    @Setter
+    private int parallelism = 1;
 
     public JavaRemapper(MappingData mappingData) {
         this(mappingData, new ArrayList<>());
@@ -74,11 +124,23 @@ public class JavaRemapper {
         this.mappingData = mappingData;
         this.libraryJars = libraryJars != null ? libraryJars : new ArrayList<>();
         this.simpleNameToObfClasses = buildSimpleNameIndex();
-        this.fieldIndex = buildFieldIndex();
-        this.methodIndex = buildMethodIndex();
         this.packageMappingIndex = buildPackageMappingIndex();
         this.uniqueFieldMappings = buildUniqueFieldMappings();
         this.uniqueMethodMappings = buildUniqueMethodMappings();
+
+        // 有继承关系时展开继承成员，子类上的继承字段/方法可直接命中
+        ClassHierarchy hierarchy = mappingData.getClassHierarchy();
+        if (hierarchy != null) {
+            this.fieldIndex = hierarchy.flatten(buildFieldIndex());
+            this.methodIndex = hierarchy.flatten(buildMethodIndex());
+            this.overloadIndex = hierarchy.flatten(buildOverloadIndex(), JavaRemapper::mergeOverloads);
+        } else {
+            this.fieldIndex = buildFieldIndex();
+            this.methodIndex = buildMethodIndex();
+            this.overloadIndex = buildOverloadIndex();
+        }
+        this.mappedIdentifiers = buildMappedIdentifiers();
+        this.maxIdentifierLength = mappedIdentifiers.stream().mapToInt(String::length).max().orElse(0);
     }
 
     /**
@@ -235,6 +297,120 @@ public class JavaRemapper {
         return index;
     }
 
+    /**
+     * 构建按描述符区分的方法重载索引
+     * owner -> 方法名 -> 各重载的参数类型与映射名
+     * 用于同名重载映射到不同名称时，根据实参个数和静态类型选择重载
+     */
+    private Map<String, Map<String, List<MethodOverload>>> buildOverloadIndex() {
+        Map<String, Map<String, List<MethodOverload>>> index = new HashMap<>();
+        JarMapping jarMapping = mappingData.getJarMapping();
+
+        for (Map.Entry<String, String> entry : jarMapping.methods.entrySet()) {
+            String key = entry.getKey();
+            int spaceIdx = key.indexOf(' ');
+            if (spaceIdx <= 0) continue;
+            String ownerAndName = key.substring(0, spaceIdx);
+            int slashIdx = ownerAndName.lastIndexOf('/');
+            if (slashIdx <= 0) continue;
+
+            String owner = ownerAndName.substring(0, slashIdx);
+            String name = ownerAndName.substring(slashIdx + 1);
+            List<String> parameterTypes = parseParameterTypes(key.substring(spaceIdx + 1));
+            if (parameterTypes == null) continue;
+
+            index.computeIfAbsent(owner, k -> new HashMap<>())
+                    .computeIfAbsent(name, k -> new ArrayList<>())
+                    .add(new MethodOverload(parameterTypes, entry.getValue()));
+        }
+
+        return index;
+    }
+
+    /**
+     * 合并自身与继承的同名重载，子类只映射部分重载时父类的其余重载仍可见
+     * 同一参数列表只保留先出现的，即子类的重写优先
+     */
+    private static List<MethodOverload> mergeOverloads(List<MethodOverload> first, List<MethodOverload> second) {
+        List<MethodOverload> merged = new ArrayList<>(first);
+        for (MethodOverload overload : second) {
+            boolean overridden = false;
+            for (MethodOverload existing : first) {
+                if (existing.parameterTypes.equals(overload.parameterTypes)) {
+                    overridden = true;
+                    break;
+                }
+            }
+            if (!overridden) {
+                merged.add(overload);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 拆分方法描述符中的参数类型，描述符无效时返回 null
+     */
+    private static List<String> parseParameterTypes(String descriptor) {
+        if (!descriptor.startsWith("(")) return null;
+        int end = descriptor.indexOf(')');
+        if (end < 0) return null;
+
+        List<String> types = new ArrayList<>();
+        int i = 1;
+        while (i < end) {
+            int start = i;
+            while (descriptor.charAt(i) == '[') {
+                i++;
+            }
+            if (descriptor.charAt(i) == 'L') {
+                i = descriptor.indexOf(';', i);
+                if (i < 0) return null;
+            }
+            i++;
+            types.add(descriptor.substring(start, i));
+        }
+        return types;
+    }
+
+    /**
+     * 构建映射涉及的全部源码标识符
+     * 包括混淆类名与包名的各段、字段名、方法名
+     * 不含其中任何一个的源码文件不会被映射改变
+     */
+    private Set<String> buildMappedIdentifiers() {
+        Set<String> identifiers = new HashSet<>();
+        JarMapping jarMapping = mappingData.getJarMapping();
+
+        for (String obfClass : jarMapping.classes.keySet()) {
+            addNameSegments(identifiers, obfClass);
+        }
+        for (String obfPkg : jarMapping.packages.keySet()) {
+            addNameSegments(identifiers, obfPkg);
+        }
+        for (String key : jarMapping.fields.keySet()) {
+            int spaceIdx = key.indexOf(' ');
+            String ownerAndName = spaceIdx > 0 ? key.substring(0, spaceIdx) : key;
+            identifiers.add(ownerAndName.substring(ownerAndName.lastIndexOf('/') + 1));
+        }
+        for (String key : jarMapping.methods.keySet()) {
+            int spaceIdx = key.indexOf(' ');
+            String ownerAndName = spaceIdx > 0 ? key.substring(0, spaceIdx) : key;
+            identifiers.add(ownerAndName.substring(ownerAndName.lastIndexOf('/') + 1));
+        }
+
+        identifiers.remove("");
+        return identifiers;
+    }
+
+    private static void addNameSegments(Set<String> identifiers, String internalName) {
+        for (String segment : internalName.split("[/$.]")) {
+            if (!segment.isEmpty()) {
+                identifiers.add(segment);
+            }
+        }
+    }
+
     private void addUniqueMapping(Map<String, String> index, Set<String> conflicts, String name, String remapped) {
         if (conflicts.contains(name)) {
             return;
@@ -276,46 +452,271 @@ public class JavaRemapper {
 
         log.info("Found {} Java files", javaFiles.size());
 
-        CombinedTypeSolver typeSolver = new CombinedTypeSolver();
+        if (memoryBounded) {
+            log.info("Memory bounded mode: type solver cache size {}, heap watermark {}%",
+                    typeSolverCacheSize, Math.round(heapWatermark * 100));
+        }
 
-        // 1. JDK 类型
-        typeSolver.add(new ReflectionTypeSolver());
+        AtomicInteger skipped = new AtomicInteger();
+        skippedCount = 0;
+        int threads = Math.max(1, Math.min(parallelism, javaFiles.size()));
 
-        // 2. 源码目录本身
-        typeSolver.add(new JavaParserTypeSolver(inputDir));
+        try (JavaRemapSession session = openSession(inputDir)) {
+            HeapThrottle throttle = new HeapThrottle(session, threads);
+            if (threads == 1) {
+                for (File javaFile : javaFiles) {
+                    remapFile(session, throttle, skipped, javaFile, inputDir, outputDir);
+                }
+            } else {
+                log.info("Remapping Java sources with {} threads", threads);
+                ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                    private final AtomicInteger index = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "java-remapper-" + index.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+                try {
+                    List<Future<?>> futures = new ArrayList<>(javaFiles.size());
+                    for (File javaFile : javaFiles) {
+                        futures.add(executor.submit(() -> {
+                            remapFile(session, throttle, skipped, javaFile, inputDir, outputDir);
+                            return null;
+                        }));
+                    }
+                    for (Future<?> future : futures) {
+                        try {
+                            future.get();
+                        } catch (ExecutionException e) {
+                            Throwable cause = e.getCause();
+                            if (cause instanceof IOException) {
+                                throw (IOException) cause;
+                            }
+                            if (cause instanceof RuntimeException) {
+                                throw (RuntimeException) cause;
+                            }
+                            throw new IOException("Failed to remap Java source", cause);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IOException("Interrupted while remapping Java sources", e);
+                        }
+                    }
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+        }
+        int processedCount = javaFiles.size();
+        skippedCount = skipped.get();
 
-        // 3. 用户配置的库 JAR
+        log.info("Java source remapping completed: {} files, {} copied without parsing", processedCount, skippedCount);
+        return processedCount;
+    }
+
+    private void remapFile(JavaRemapSession session, HeapThrottle throttle, AtomicInteger skipped,
+                           File javaFile, File inputDir, File outputDir) throws IOException {
+        byte[] source = Files.readAllBytes(javaFile.toPath());
+        if (!JavaSourceScanner.mayReference(source, mappedIdentifiers, maxIdentifierLength)) {
+            // 不含任何映射标识符，无需解析直接复制
+            copyUnaffectedFile(source, javaFile, inputDir, outputDir);
+            skipped.incrementAndGet();
+            return;
+        }
+
+        throttle.enter();
+        try {
+            processJavaFile(session, source, javaFile, inputDir, outputDir);
+        } finally {
+            throttle.exit();
+        }
+    }
+
+    /**
+     * 按堆占用限制同时解析的文件数
+     * 内存受限模式下堆占用超过水位时只允许一个文件在解析，并重建会话中源码目录的类型解析器
+     * 堆占用取上次 GC 后的值，重建后要等下一次 GC 才能反映，期间不重复重建
+     */
+    private final class HeapThrottle {
+        private final JavaRemapSession session;
+        private final int parallelism;
+        private int active;
+        private boolean throttled;
+        private long lastRebuildGcCount = -1;
+
+        HeapThrottle(JavaRemapSession session, int parallelism) {
+            this.session = session;
+            this.parallelism = parallelism;
+        }
+
+        synchronized void enter() throws IOException {
+            try {
+                while (active >= limit()) {
+                    // 水位只在 GC 后变化，定时复查而不是只等其他线程唤醒
+                    wait(100);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for heap usage to drop", e);
+            }
+            active++;
+        }
+
+        synchronized void exit() {
+            active--;
+            if (memoryBounded) {
+                long gcCount = gcCount();
+                if (gcCount != lastRebuildGcCount && isAboveHeapWatermark()) {
+                    log.info("Heap usage above watermark, rebuilding source type solver");
+                    session.resetCaches();
+                    lastRebuildGcCount = gcCount;
+                }
+            }
+            notifyAll();
+        }
+
+        private int limit() {
+            if (!memoryBounded || parallelism == 1) {
+                return parallelism;
+            }
+            boolean above = isAboveHeapWatermark();
+            if (above != throttled) {
+                throttled = above;
+                if (above) {
+                    log.info("Heap usage above watermark, parsing one file at a time");
+                } else {
+                    log.info("Heap usage below watermark, parsing {} files in parallel", parallelism);
+                }
+            }
+            return above ? 1 : parallelism;
+        }
+    }
+
+    /**
+     * 打开重映射会话
+     * 会话保持类型解析器与解析器预热，适用于 IDE 或守护进程中按需重映射单个文件
+     * 会话可在多个线程间共享，每个线程使用池中独立的解析上下文
+     *
+     * @param sourceRoot 源码根目录，用于解析同项目中的类型，可为 null
+     */
+    public JavaRemapSession openSession(File sourceRoot) {
+        return new JavaRemapSession(this, sourceRoot);
+    }
+
+    /**
+     * 判断源码是否可能受映射影响
+     */
+    boolean mayBeAffected(byte[] source) {
+        return JavaSourceScanner.mayReference(source, mappedIdentifiers, maxIdentifierLength);
+    }
+
+    /**
+     * 创建库 JAR 的类型解析器，会话在重建源码类型解析器时保留它
+     *
+     * @param closeables 收集打开的库 JAR 解析器，由会话在关闭时释放
+     * @return 库 JAR 的组合解析器，没有可用的库 JAR 时返回 null
+     */
+    TypeSolver createLibraryTypeSolver(List<TypeSolver> closeables) {
+        CombinedTypeSolver libraries = null;
         for (File jarFile : libraryJars) {
             if (jarFile.exists()) {
                 try {
-                    typeSolver.add(new JarTypeSolver(jarFile));
-                    log.info("Added library JAR: {}", jarFile);
+                    JarTypeSolver jarTypeSolver = new JarTypeSolver(jarFile);
+                    closeables.add(jarTypeSolver);
+                    if (libraries == null) {
+                        libraries = new CombinedTypeSolver();
+                    }
+                    libraries.add(jarTypeSolver);
+                    log.debug("Added library JAR: {}", jarFile);
                 } catch (IOException e) {
                     log.warn("Failed to add JAR to type solver: {}", jarFile);
                 }
             }
         }
+        return libraries;
+    }
+
+    /**
+     * 创建解析器，每次创建新的源码目录类型解析器
+     *
+     * @param libraries createLibraryTypeSolver 创建的库 JAR 解析器，可为 null
+     */
+    JavaParser createParser(File inputDir, TypeSolver libraries) {
+        CombinedTypeSolver typeSolver = new CombinedTypeSolver();
+
+        // 1. JDK 类型
+        typeSolver.add(new ReflectionTypeSolver());
+
+        // 2. 源码目录本身
+        if (inputDir == null) {
+            log.debug("No source root, skipping source type solver");
+        } else if (memoryBounded) {
+            ParserConfiguration solverConfig = new ParserConfiguration();
+            solverConfig.setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17);
+            typeSolver.add(new JavaParserTypeSolver(inputDir.toPath(), solverConfig, typeSolverCacheSize));
+        } else {
+            typeSolver.add(new JavaParserTypeSolver(inputDir));
+        }
+
+        // 3. 用户配置的库 JAR
+        if (libraries != null) {
+            typeSolver.add(new LibraryTypeSolver(libraries));
+        }
 
         ParserConfiguration config = new ParserConfiguration();
         config.setSymbolResolver(new JavaSymbolSolver(typeSolver));
         config.setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17);
-        JavaParser parser = new JavaParser(config);
+        return new JavaParser(config);
+    }
 
-        int processedCount = 0;
+    /**
+     * 释放编译单元上挂载的解析缓存与 LexicalPreservingPrinter 状态
+     * 类型解析结果与保留格式所需的文本都以数据键挂在 AST 节点上，输出后清除，避免在处理后续文件时仍被引用
+     */
+    static void releaseUnit(CompilationUnit cu) {
+        cu.walk(node -> {
+            for (DataKey<?> key : new ArrayList<>(node.getDataKeys())) {
+                node.removeData(key);
+            }
+        });
+    }
+
+    /**
+     * 堆内存池在上次 GC 后的占用是否超过水位
+     * 不强制 GC，也不受尚未回收的垃圾影响
+     */
+    private boolean isAboveHeapWatermark() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+            if (usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        return used >= Runtime.getRuntime().maxMemory() * heapWatermark;
+    }
 
-        for (File javaFile : javaFiles) {
-            processJavaFile(parser, javaFile, inputDir, outputDir);
-            processedCount++;
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
         }
+        return count;
+    }
 
-        log.info("Java source remapping completed: {} files", processedCount);
-        return processedCount;
+    private void copyUnaffectedFile(byte[] source, File inputFile, File inputDir, File outputDir) throws IOException {
+        Path relativePath = inputDir.toPath().relativize(inputFile.toPath());
+        File outputFile = new File(outputDir, relativePath.toString());
+        FileUtils.ensureDirectory(outputFile.getParentFile());
+        Files.write(outputFile.toPath(), source);
     }
 
-    private void processJavaFile(JavaParser parser, File inputFile, File inputDir, File outputDir) throws IOException {
-        ParseResult<CompilationUnit> parseResult = parser.parse(inputFile);
+    private void processJavaFile(JavaRemapSession session, byte[] source, File inputFile, File inputDir, File outputDir) throws IOException {
+        CompilationUnit cu = session.remapUnit(new String(source, StandardCharsets.UTF_8));
 
-        if (!parseResult.isSuccessful()) {
+        if (cu == null) {
             // 解析失败，直接复制到对应位置
             Path relativePath = inputDir.toPath().relativize(inputFile.toPath());
             File outputFile = new File(outputDir, relativePath.toString());
@@ -324,12 +725,27 @@ public class JavaRemapper {
             return;
         }
 
+        File outputFile = calculateOutputFile(cu, inputFile, inputDir, outputDir);
+
+        FileUtils.ensureDirectory(outputFile.getParentFile());
+        FileUtils.writeStringToFile(outputFile, LexicalPreservingPrinter.print(cu));
+        releaseUnit(cu);
+    }
+
+    /**
+     * 解析并重映射一个编译单元
+     *
+     * @return 重映射后的编译单元，已启用 LexicalPreservingPrinter，解析失败时返回 null
+     */
+    CompilationUnit remapCompilationUnit(JavaParser parser, String source) {
+        ParseResult<CompilationUnit> parseResult = parser.parse(source);
+        if (!parseResult.isSuccessful()) {
+            return null;
+        }
+
         CompilationUnit cu = parseResult.getResult().orElse(null);
         if (cu == null) {
-            Path relativePath = inputDir.toPath().relativize(inputFile.toPath());
-            File outputFile = new File(outputDir, relativePath.toString());
-            FileUtils.copyFile(inputFile, outputFile);
-            return;
+            return null;
         }
 
         // 保持原有代码风格
@@ -337,16 +753,12 @@ public class JavaRemapper {
 
         RemappingVisitor visitor = new RemappingVisitor(
                 mappingData, simpleNameToObfClasses, fieldIndex, methodIndex,
-                packageMappingIndex, uniqueFieldMappings, uniqueMethodMappings);
+                packageMappingIndex, uniqueFieldMappings, uniqueMethodMappings, overloadIndex);
         visitor.initImports(cu);
 
         cu.accept(visitor, null);
         remapPackageDeclaration(cu);
-
-        File outputFile = calculateOutputFile(cu, inputFile, inputDir, outputDir);
-
-        FileUtils.ensureDirectory(outputFile.getParentFile());
-        FileUtils.writeStringToFile(outputFile, LexicalPreservingPrinter.print(cu));
+        return cu;
     }
 
     private void remapPackageDeclaration(CompilationUnit cu) {
@@ -410,6 +822,7 @@ public class JavaRemapper {
         private final Map<String, String> packageMappingIndex;
         private final Map<String, String> uniqueFieldMappings;
         private final Map<String, String> uniqueMethodMappings;
+        private final Map<String, Map<String, List<MethodOverload>>> overloadIndex;
         private final Map<String, String> simpleNameCache = new HashMap<>();
         private final Map<String, String> importedClasses = new HashMap<>();
         private final Set<String> importedPackages = new HashSet<>();
@@ -742,17 +1155,29 @@ public class JavaRemapper {
             String methodName = n.getNameAsString();
             boolean remapped = false;
 
+            // 优先使用重载索引，根据实参个数与静态类型选择重载，避免完整的方法解析
+            String overloadRemapped = selectOverload(n);
+            if (overloadRemapped != null) {
+                if (!overloadRemapped.equals(methodName)) {
+                    n.setName(overloadRemapped);
+                }
+                remapped = true;
+            }
+
             // 尝试 SymbolSolver 解析
-            try {
-                ResolvedMethodDeclaration resolved = n.resolve();
-                String ownerClass = toInternalName(resolved.declaringType().getQualifiedName());
-                String remappedMethod = remapMethod(ownerClass, methodName);
-                if (!remappedMethod.equals(methodName)) {
-                    n.setName(remappedMethod);
+            if (!remapped) {
+                try {
+                    ResolvedMethodDeclaration resolved = n.resolve();
+                    String ownerClass = toInternalName(resolved.declaringType().getQualifiedName());
+                    String remappedMethod = remapMethod(ownerClass, methodName, buildDescriptor(resolved));
+                    if (!remappedMethod.equals(methodName)) {
+                        n.setName(remappedMethod);
+                    }
+                    // 解析成功即已确定目标方法，未改名说明调用的是未映射的方法或重载，不再按名称回退
                     remapped = true;
+                } catch (UnsolvedSymbolException | UnsupportedOperationException e) {
+                    log.debug("Failed to resolve method call '{}': {}", n, e.getMessage());
                 }
-            } catch (UnsolvedSymbolException | UnsupportedOperationException e) {
-                log.debug("Failed to resolve method call '{}': {}", n, e.getMessage());
             }
 
             // 回退 1：从 scope 类型推断
@@ -1119,8 +1544,7 @@ public class JavaRemapper {
         }
 
         private String tryGetFieldMapping(String ownerClass, String fieldName) {
-            String key = ownerClass + "/" + fieldName;
-            return getJarMapping().fields.get(key);
+            return mappingData.findField(ownerClass, fieldName);
         }
 
         private void tryRemapField(NodeWithSimpleName<?> node, String ownerClass, String fieldName) {
@@ -1131,8 +1555,8 @@ public class JavaRemapper {
         }
 
         private void tryRemapMethod(NodeWithSimpleName<?> node, String ownerClass, String methodName, String descriptor) {
-            String key = ownerClass + "/" + methodName + " " + descriptor;
-            String remapped = getJarMapping().methods.get(key);
+            // 包括重写父类的方法
+            String remapped = mappingData.findMethod(ownerClass, methodName, descriptor);
             if (remapped != null) {
                 node.setName(remapped);
             }
@@ -1380,6 +1804,139 @@ public class JavaRemapper {
             return remapped != null ? remapped : fieldName;
         }
 
+        /**
+         * 通过重载索引选择方法调用对应的重载
+         * 1. 按实参个数过滤，末尾数组参数视为可能的可变参数
+         * 2. 剩余重载都未改名时保持原名，无论实际调用哪个重载结果都相同
+         * 3. 否则按实参静态类型精确匹配，唯一命中时采用
+         * <p>
+         * 索引只包含有映射的重载，未映射的同名重载不可见，
+         * 因此即使候选的映射名一致，也必须精确匹配才能改名，否则可能把调用未映射重载的代码改名
+         *
+         * @return 映射后的方法名，无法确定时返回 null 交给 SymbolSolver
+         */
+        private String selectOverload(MethodCallExpr n) {
+            String ownerClass = resolveCallOwner(n);
+            if (ownerClass == null) return null;
+
+            Map<String, List<MethodOverload>> byName = overloadIndex.get(ownerClass);
+            if (byName == null) return null;
+            String methodName = n.getNameAsString();
+            List<MethodOverload> overloads = byName.get(methodName);
+            if (overloads == null) return null;
+
+            int argCount = n.getArguments().size();
+            List<MethodOverload> candidates = new ArrayList<>();
+            boolean allUnchanged = true;
+            for (MethodOverload overload : overloads) {
+                if (overload.acceptsArity(argCount)) {
+                    candidates.add(overload);
+                    allUnchanged &= overload.remapped.equals(methodName);
+                }
+            }
+            if (candidates.isEmpty()) return null;
+            if (allUnchanged) return methodName;
+
+            List<String> argTypes = new ArrayList<>(argCount);
+            for (Expression argument : n.getArguments()) {
+                argTypes.add(staticTypeDescriptor(argument));
+            }
+
+            MethodOverload match = null;
+            for (MethodOverload candidate : candidates) {
+                if (candidate.matchesExactly(argTypes)) {
+                    if (match != null && !match.remapped.equals(candidate.remapped)) return null;
+                    match = candidate;
+                }
+            }
+            return match != null ? match.remapped : null;
+        }
+
+        /**
+         * 确定方法调用的所属类，不进行方法解析
+         * 有 scope 时取 scope 的静态类型，无 scope 时取所在类
+         */
+        private String resolveCallOwner(MethodCallExpr n) {
+            if (!n.getScope().isPresent()) {
+                return getEnclosingClassName(n);
+            }
+            Expression scope = n.getScope().get();
+            if (scope.isThisExpr() && !scope.asThisExpr().getTypeName().isPresent()) {
+                return getEnclosingClassName(n);
+            }
+            try {
+                ResolvedType scopeType = scope.calculateResolvedType();
+                if (scopeType.isReferenceType()) {
+                    return toInternalName(scopeType.asReferenceType().getQualifiedName());
+                }
+            } catch (UnsolvedSymbolException | UnsupportedOperationException e) {
+                log.debug("Failed to resolve scope type for overload selection '{}': {}", n, e.getMessage());
+            }
+            return null;
+        }
+
+        /**
+         * 获取实参的静态类型描述符
+         * 字面量与强制转换直接读取，其余表达式计算类型，无法确定或为 null 字面量时返回 null
+         */
+        private String staticTypeDescriptor(Expression argument) {
+            if (argument.isIntegerLiteralExpr()) return "I";
+            if (argument.isLongLiteralExpr()) return "J";
+            if (argument.isCharLiteralExpr()) return "C";
+            if (argument.isBooleanLiteralExpr()) return "Z";
+            if (argument.isStringLiteralExpr() || argument.isTextBlockLiteralExpr()) return "Ljava/lang/String;";
+            if (argument.isDoubleLiteralExpr()) {
+                String value = argument.asDoubleLiteralExpr().getValue();
+                char suffix = Character.toLowerCase(value.charAt(value.length() - 1));
+                return suffix == 'f' ? "F" : "D";
+            }
+            if (argument.isNullLiteralExpr()) return null;
+            try {
+                ResolvedType type = argument.isCastExpr()
+                        ? argument.asCastExpr().getType().resolve()
+                        : argument.calculateResolvedType();
+                if (type.isNull() || type.isTypeVariable() || type.isWildcard()) return null;
+                return toDescriptor(type);
+            } catch (UnsolvedSymbolException | UnsupportedOperationException e) {
+                log.debug("Failed to calculate argument type '{}': {}", argument, e.getMessage());
+                return null;
+            }
+        }
+
+        /**
+         * 使用完整描述符精确查找方法映射，找不到时回退到按名称查找
+         */
+        private String remapMethod(String ownerClass, String methodName, String descriptor) {
+            String remapped = mappingData.findMethod(ownerClass, methodName, descriptor);
+            if (remapped != null) {
+                return remapped;
+            }
+
+            // 返回类型可能因泛型擦除不一致，仅比较参数类型
+            Map<String, List<MethodOverload>> byName = overloadIndex.get(ownerClass);
+            List<MethodOverload> overloads = byName != null ? byName.get(methodName) : null;
+            List<String> parameterTypes = parseParameterTypes(descriptor);
+            if (overloads == null || parameterTypes == null) {
+                return remapMethod(ownerClass, methodName);
+            }
+            for (MethodOverload overload : overloads) {
+                if (overload.parameterTypes.equals(parameterTypes)) {
+                    return overload.remapped;
+                }
+            }
+
+            // 泛型参数的擦除也可能不一致，只在引用类型位置不同且映射名唯一时采用
+            String erased = null;
+            for (MethodOverload overload : overloads) {
+                if (overload.matchesErasure(parameterTypes)) {
+                    if (erased != null && !erased.equals(overload.remapped)) return methodName;
+                    erased = overload.remapped;
+                }
+            }
+            // 已知的重载都对不上，调用的是未映射的重载
+            return erased != null ? erased : methodName;
+        }
+
         private String remapMethod(String ownerClass, String methodName) {
             Map<String, String> memberMap = methodIndex.get(ownerClass);
             if (memberMap == null) {
@@ -1523,4 +2080,42 @@ public class JavaRemapper {
             return "Ljava/lang/Object;";
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 方法重载，参数类型为 JVM 描述符形式
+     */
+    @RequiredArgsConstructor
+    private static class MethodOverload {
+        private final List<String> parameterTypes;
+        private final String remapped;
+
+        boolean acceptsArity(int argCount) {
+            int size = parameterTypes.size();
+            if (argCount == size) return true;
+            // 末尾为数组时可能是可变参数
+            return size > 0 && argCount >= size - 1 && parameterTypes.get(size - 1).startsWith("[");
+        }
+
+        /**
+         * 实参类型与参数类型逐个完全一致，未知类型（如 null 字面量）不算匹配
+         */
+        boolean matchesExactly(List<String> argTypes) {
+            return argTypes.equals(parameterTypes);
+        }
+
+        /**
+         * 参数个数相同，且不同的位置都是引用类型
+         */
+        boolean matchesErasure(List<String> types) {
+            if (types.size() != parameterTypes.size()) return false;
+            for (int i = 0; i < types.size(); i++) {
+                String type = types.get(i);
+                String paramType = parameterTypes.get(i);
+                if (!type.equals(paramType) && (type.length() == 1 || paramType.length() == 1)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.ecaree.jarremapper.remap;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Java 源码词法预扫描
+ * 直接在原始字节上识别标识符，跳过注释、字符串、字符与文本块字面量
+ * 用于在解析前判断文件是否可能受映射影响，结果偏保守：
+ * 出现 Unicode 转义时无法可靠判断词法边界，视为可能受影响
+ */
+final class JavaSourceScanner {
+    private JavaSourceScanner() {
+    }
+
+    /**
+     * 判断源码中是否存在给定集合内的标识符
+     *
+     * @param source      源码字节（UTF-8）
+     * @param identifiers 映射涉及的标识符
+     * @param maxLength   标识符最大长度，超出的标识符无需查表
+     * @return 可能受映射影响时返回 true
+     */
+    static boolean mayReference(byte[] source, Set<String> identifiers, int maxLength) {
+        int length = source.length;
+        int i = 0;
+
+        while (i < length) {
+            int b = source[i] & 0xFF;
+
+            if (b == '\\') {
+                // 代码区出现反斜杠只可能是 Unicode 转义
+                return true;
+            }
+
+            if (b == '/' && i + 1 < length) {
+                int next = source[i + 1];
+                if (next == '/') {
+                    i = skipLineComment(source, i + 2);
+                    continue;
+                }
+                if (next == '*') {
+                    int end = skipBlockComment(source, i + 2);
+                    if (end < 0) return true;
+                    i = end;
+                    continue;
+                }
+            }
+
+            if (b == '"') {
+                int end = isTextBlockStart(source, i)
+                        ? skipTextBlock(source, i + 3)
+                        : skipQuoted(source, i + 1, '"');
+                if (end < 0) return true;
+                i = end;
+                continue;
+            }
+
+            if (b == '\'') {
+                int end = skipQuoted(source, i + 1, '\'');
+                if (end < 0) return true;
+                i = end;
+                continue;
+            }
+
+            if (b >= '0' && b <= '9') {
+                // 数字字面量，包括 0x1F、10L、1e5 等后缀形式
+                i++;
+                while (i < length && isIdentifierPart(source[i] & 0xFF)) {
+                    i++;
+                }
+                continue;
+            }
+
+            if (isIdentifierStart(b)) {
+                int start = i++;
+                while (i < length && isIdentifierPart(source[i] & 0xFF)) {
+                    i++;
+                }
+                int len = i - start;
+                if (len <= maxLength
+                        && identifiers.contains(new String(source, start, len, StandardCharsets.UTF_8))) {
+                    return true;
+                }
+                continue;
+            }
+
+            i++;
+        }
+
+        return false;
+    }
+
+    private static boolean isIdentifierStart(int b) {
+        // 非 ASCII 字节一律视为标识符的一部分，由集合查找决定是否命中
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_' || b == '$' || b >= 0x80;
+    }
+
+    private static boolean isIdentifierPart(int b) {
+        return isIdentifierStart(b) || (b >= '0' && b <= '9');
+    }
+
+    private static int skipLineComment(byte[] source, int i) {
+        while (i < source.length && source[i] != '\n' && source[i] != '\r') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipBlockComment(byte[] source, int i) {
+        while (i + 1 < source.length) {
+            if (source[i] == '*' && source[i + 1] == '/') {
+                return i + 2;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static boolean isTextBlockStart(byte[] source, int i) {
+        return i + 2 < source.length && source[i + 1] == '"' && source[i + 2] == '"';
+    }
+
+    private static int skipTextBlock(byte[] source, int i) {
+        while (i + 2 < source.length) {
+            if (source[i] == '\\') {
+                i += 2;
+                continue;
+            }
+            if (source[i] == '"' && source[i + 1] == '"' && source[i + 2] == '"') {
+                return i + 3;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static int skipQuoted(byte[] source, int i, char quote) {
+        while (i < source.length) {
+            byte b = source[i];
+            if (b == '\\') {
+                i += 2;
+                continue;
+            }
+            if (b == quote) {
+                return i + 1;
+            }
+            if (b == '\n' || b == '\r') {
+                // 未闭合的字面量交给解析器处理
+                return -1;
+            }
+            i++;
+        }
+        return -1;
+    }
+}
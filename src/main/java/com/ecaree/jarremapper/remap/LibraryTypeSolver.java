@@ -0,0 +1,34 @@
+package com.ecaree.jarremapper.remap;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+
+/**
+ * 库 JAR 类型解析器的引用
+ * 类型解析器只能挂在一个父解析器下，重建源码解析器时用新的引用把同一组库解析器挂到新的组合解析器上，
+ * 库 JAR 无需重新打开与索引
+ */
+final class LibraryTypeSolver implements TypeSolver {
+    private final TypeSolver libraries;
+    private TypeSolver parent;
+
+    LibraryTypeSolver(TypeSolver libraries) {
+        this.libraries = libraries;
+    }
+
+    @Override
+    public TypeSolver getParent() {
+        return parent;
+    }
+
+    @Override
+    public void setParent(TypeSolver parent) {
+        this.parent = parent;
+    }
+
+    @Override
+    public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+        return libraries.tryToSolveType(name);
+    }
+}
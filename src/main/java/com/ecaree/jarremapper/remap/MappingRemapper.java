@@ -0,0 +1,220 @@
+package com.ecaree.jarremapper.remap;
+
+import com.ecaree.jarremapper.mapping.MappingData;
+import net.md_5.specialsource.JarMapping;
+import net.md_5.specialsource.JarRemapper;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.MethodRemapper;
+import org.objectweb.asm.commons.Remapper;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 基于 MappingData 的 ASM Remapper
+ * 映射规则与 SpecialSource 的 JarRemapper 一致：
+ * 类名按包映射与类映射转换，成员沿继承关系查找，private/static 成员的声明不向父类查找
+ * 与 SpecialSource 一样不检查排除的包
+ */
+public class MappingRemapper extends Remapper {
+    private static final String LAMBDA_METAFACTORY = "java/lang/invoke/LambdaMetafactory";
+
+    private final MappingData mappingData;
+    private final JarMapping jarMapping;
+
+    /**
+     * 记录当前类用到的映射查找，供增量重映射判断映射变化的影响范围
+     */
+    private Set<IncrementalIndex.Lookup> recordedLookups;
+
+    public MappingRemapper(MappingData mappingData) {
+        this.mappingData = mappingData;
+        this.jarMapping = mappingData.getJarMapping();
+    }
+
+    @Override
+    public String map(String internalName) {
+        record(IncrementalIndex.Lookup.CLASS, internalName, null, null);
+        return mapClassName(internalName);
+    }
+
+    @Override
+    public String mapFieldName(String owner, String name, String descriptor) {
+        record(IncrementalIndex.Lookup.FIELD, owner, name, null);
+        return findFieldName(owner, name);
+    }
+
+    @Override
+    public String mapMethodName(String owner, String name, String descriptor) {
+        if (name.startsWith("<")) {
+            return name;
+        }
+        record(IncrementalIndex.Lookup.METHOD, owner, name, descriptor);
+        return findMethodName(owner, name, descriptor);
+    }
+
+    @Override
+    public String mapRecordComponentName(String owner, String name, String descriptor) {
+        return mapFieldName(owner, name, descriptor);
+    }
+
+    /**
+     * 映射成员声明，private 与 static 成员不会继承，只查找自身
+     */
+    String mapDeclaredFieldName(String owner, String name, String descriptor, int access) {
+        if (isNotInherited(access)) {
+            record(IncrementalIndex.Lookup.DECLARED_FIELD, owner, name, null);
+            return findDeclaredFieldName(owner, name);
+        }
+        return mapFieldName(owner, name, descriptor);
+    }
+
+    String mapDeclaredMethodName(String owner, String name, String descriptor, int access) {
+        if (isNotInherited(access) && !name.startsWith("<")) {
+            record(IncrementalIndex.Lookup.DECLARED_METHOD, owner, name, descriptor);
+            return findDeclaredMethodName(owner, name, descriptor);
+        }
+        return mapMethodName(owner, name, descriptor);
+    }
+
+    /**
+     * 按当前映射重新计算一次记录过的查找，不会被记录
+     */
+    String evaluate(IncrementalIndex.Lookup lookup) {
+        switch (lookup.getKind()) {
+            case IncrementalIndex.Lookup.CLASS:
+                return mapClassName(lookup.getOwner());
+            case IncrementalIndex.Lookup.FIELD:
+                return findFieldName(lookup.getOwner(), lookup.getName());
+            case IncrementalIndex.Lookup.METHOD:
+                return findMethodName(lookup.getOwner(), lookup.getName(), lookup.getDescriptor());
+            case IncrementalIndex.Lookup.DECLARED_FIELD:
+                return findDeclaredFieldName(lookup.getOwner(), lookup.getName());
+            case IncrementalIndex.Lookup.DECLARED_METHOD:
+                return findDeclaredMethodName(lookup.getOwner(), lookup.getName(), lookup.getDescriptor());
+            default:
+                throw new IllegalArgumentException("Unknown lookup kind: " + lookup.getKind());
+        }
+    }
+
+    /**
+     * 开始记录映射查找，直到 stopRecording() 为止
+     */
+    void startRecording() {
+        recordedLookups = new HashSet<>();
+    }
+
+    /**
+     * 停止记录
+     *
+     * @return 记录期间用到的查找
+     */
+    Set<IncrementalIndex.Lookup> stopRecording() {
+        Set<IncrementalIndex.Lookup> lookups = recordedLookups != null ? recordedLookups : new HashSet<>();
+        recordedLookups = null;
+        return lookups;
+    }
+
+    private void record(char kind, String owner, String name, String descriptor) {
+        if (recordedLookups != null) {
+            recordedLookups.add(new IncrementalIndex.Lookup(kind, owner, name, descriptor));
+        }
+    }
+
+    private String mapClassName(String internalName) {
+        return JarRemapper.mapTypeName(internalName, jarMapping.packages, jarMapping.classes, internalName);
+    }
+
+    private String findFieldName(String owner, String name) {
+        String mapped = mappingData.findField(owner, name);
+        return mapped != null ? mapped : name;
+    }
+
+    private String findMethodName(String owner, String name, String descriptor) {
+        String mapped = mappingData.findMethod(owner, name, descriptor);
+        return mapped != null ? mapped : name;
+    }
+
+    private String findDeclaredFieldName(String owner, String name) {
+        String mapped = jarMapping.fields.get(owner + "/" + name);
+        return mapped != null ? mapped : name;
+    }
+
+    private String findDeclaredMethodName(String owner, String name, String descriptor) {
+        String mapped = jarMapping.methods.get(owner + "/" + name + " " + descriptor);
+        return mapped != null ? mapped : name;
+    }
+
+    private static boolean isNotInherited(int access) {
+        return (access & (Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC)) != 0;
+    }
+
+    /**
+     * 创建类重映射访问器
+     *
+     * @param next 接收重映射后类的访问器
+     */
+    public ClassVisitor createClassVisitor(ClassVisitor next) {
+        return new DeclarationAwareClassRemapper(next, this);
+    }
+
+    /**
+     * 在 ClassRemapper 基础上处理成员声明的访问标志与 lambda 的函数式接口方法名
+     */
+    private static class DeclarationAwareClassRemapper extends ClassRemapper {
+        private final MappingRemapper mappingRemapper;
+
+        DeclarationAwareClassRemapper(ClassVisitor next, MappingRemapper remapper) {
+            super(Opcodes.ASM9, next, remapper);
+            this.mappingRemapper = remapper;
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            FieldVisitor fieldVisitor = cv.visitField(
+                    access,
+                    mappingRemapper.mapDeclaredFieldName(className, name, descriptor, access),
+                    remapper.mapDesc(descriptor),
+                    remapper.mapSignature(signature, true),
+                    value == null ? null : remapper.mapValue(value));
+            return fieldVisitor == null ? null : createFieldRemapper(fieldVisitor);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            MethodVisitor methodVisitor = cv.visitMethod(
+                    access,
+                    mappingRemapper.mapDeclaredMethodName(className, name, descriptor, access),
+                    remapper.mapMethodDesc(descriptor),
+                    remapper.mapSignature(signature, false),
+                    exceptions == null ? null : remapper.mapTypes(exceptions));
+            return methodVisitor == null ? null : createMethodRemapper(methodVisitor);
+        }
+
+        @Override
+        protected MethodVisitor createMethodRemapper(MethodVisitor methodVisitor) {
+            return new MethodRemapper(api, methodVisitor, remapper) {
+                @Override
+                public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle,
+                                                   Object... bootstrapMethodArguments) {
+                    String mappedName = name;
+                    if (LAMBDA_METAFACTORY.equals(bootstrapMethodHandle.getOwner())
+                            && bootstrapMethodArguments.length > 0
+                            && bootstrapMethodArguments[0] instanceof Type) {
+                        // 函数式接口方法名需按接口类型与其方法描述符映射
+                        String samOwner = Type.getReturnType(descriptor).getInternalName();
+                        String samDescriptor = ((Type) bootstrapMethodArguments[0]).getDescriptor();
+                        mappedName = mappingRemapper.mapMethodName(samOwner, name, samDescriptor);
+                    }
+                    super.visitInvokeDynamicInsn(mappedName, descriptor, bootstrapMethodHandle, bootstrapMethodArguments);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.ecaree.jarremapper.task;
+
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+
+import java.io.File;
+import java.util.Collections;
+
+/**
+ * 使用 extension 映射配置的 Worker 任务
+ */
+public abstract class AbstractMappingTask extends AbstractWorkerTask {
+    /**
+     * 配置的映射文件，不存在时视为未设置
+     */
+    @Internal
+    public abstract RegularFileProperty getMappingFile();
+
+    @Input
+    @Optional
+    public abstract Property<String> getSourceNamespace();
+
+    @Input
+    @Optional
+    public abstract Property<String> getTargetNamespace();
+
+    @Input
+    public abstract ListProperty<String> getExcludedPackages();
+
+    public AbstractMappingTask() {
+        getExcludedPackages().convention(Collections.emptyList());
+    }
+
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public File getEffectiveMappingFile() {
+        return existingFile(getMappingFile());
+    }
+
+    protected void setMapping(MappingWorkParameters parameters) {
+        WorkerSupport.setMapping(parameters, getEffectiveMappingFile(),
+                getSourceNamespace().getOrNull(), getTargetNamespace().getOrNull(), getExcludedPackages().get());
+    }
+
+    /**
+     * 属性指向的文件存在时返回该文件，在执行时检查，因此可以是其他任务的输出
+     */
+    static File existingFile(RegularFileProperty property) {
+        if (!property.isPresent()) {
+            return null;
+        }
+        File file = property.get().getAsFile();
+        return file.exists() ? file : null;
+    }
+}
@@ -1,12 +1,12 @@
 package com.ecaree.jarremapper.task;
 
-import com.ecaree.jarremapper.JarRemapperExtension;
 import com.ecaree.jarremapper.util.FileUtils;
 import com.ecaree.jarremapper.util.ReportGenerator;
-import lombok.Getter;
-import lombok.Setter;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.tasks.InputDirectory;
 import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.TaskAction;
 
 import javax.annotation.Nonnull;
@@ -19,22 +19,33 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 
 public abstract class AbstractMigrateTask extends DefaultTask {
+    /**
+     * remap 任务的输出目录
+     */
     @Internal
-    @Getter
-    @Setter
-    private JarRemapperExtension extension;
+    public abstract DirectoryProperty getSourceDir();
 
+    /**
+     * 迁移到的项目目录
+     */
     @Internal
-    protected abstract File getSourceDir();
+    public abstract DirectoryProperty getTargetDir();
 
     @Internal
-    protected abstract File getTargetDir();
+    public abstract DirectoryProperty getBackupDir();
 
     @Internal
-    protected abstract File getBackupDir();
-
-    @Internal
-    protected abstract File getReportsDir();
+    public abstract DirectoryProperty getReportsDir();
+
+    /**
+     * 在执行时检查，源目录由 remap 任务生成
+     */
+    @InputDirectory
+    @Optional
+    public File getExistingSourceDir() {
+        File dir = getSourceDir().get().getAsFile();
+        return dir.exists() ? dir : null;
+    }
 
     @Internal
     protected abstract String getReportName();
@@ -47,15 +58,15 @@ public abstract class AbstractMigrateTask extends DefaultTask {
 
     @TaskAction
     public void migrate() throws IOException {
-        File sourceDir = getSourceDir();
-        File targetDir = getTargetDir();
-        File backupDir = getBackupDir();
+        File sourceDir = getExistingSourceDir();
+        File targetDir = getTargetDir().get().getAsFile();
+        File backupDir = getBackupDir().get().getAsFile();
 
         if (sourceDir == null || !sourceDir.exists()) {
             throw new RuntimeException("Source directory does not exist, please run remap task first");
         }
 
-        ReportGenerator report = new ReportGenerator(getReportsDir(), getReportName());
+        ReportGenerator report = new ReportGenerator(getReportsDir().get().getAsFile(), getReportName());
 
         getLogger().lifecycle("Starting {} migration to readable namespace", getFileTypeDescription());
         getLogger().lifecycle("Source: {}", sourceDir);
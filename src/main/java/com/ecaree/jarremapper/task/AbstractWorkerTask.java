@@ -0,0 +1,41 @@
+package com.ecaree.jarremapper.task;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
+
+import javax.inject.Inject;
+
+/**
+ * 通过 Worker 执行重映射的任务
+ * 配置均为延迟求值的属性，由插件从 extension 连接，任务本身不持有 extension 与 Project
+ */
+public abstract class AbstractWorkerTask extends DefaultTask {
+    /**
+     * Worker 隔离方式，none、classloader 或 process
+     */
+    @Internal
+    public abstract Property<String> getWorkerIsolation();
+
+    /**
+     * process 隔离时 Worker 进程的最大堆内存
+     */
+    @Internal
+    @Optional
+    public abstract Property<String> getWorkerMaxHeapSize();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    public AbstractWorkerTask() {
+        getWorkerIsolation().convention("none");
+    }
+
+    protected WorkQueue createWorkQueue() {
+        return WorkerSupport.createQueue(getWorkerExecutor(),
+                getWorkerIsolation().get(), getWorkerMaxHeapSize().getOrNull());
+    }
+}
@@ -1,27 +1,27 @@
 package com.ecaree.jarremapper.task;
 
-import com.ecaree.jarremapper.JarRemapperExtension;
-import com.ecaree.jarremapper.mapping.MappingChain;
-import com.ecaree.jarremapper.mapping.MappingData;
-import com.ecaree.jarremapper.mapping.MappingLoader;
-import com.ecaree.jarremapper.mapping.MappingResolver;
-import com.ecaree.jarremapper.remap.JarRemapper;
-import lombok.Getter;
-import lombok.Setter;
-import org.gradle.api.DefaultTask;
+import com.ecaree.jarremapper.mapping.ClassHierarchyCache;
 import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFile;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.CompileClasspath;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -30,13 +30,10 @@ import java.util.List;
  * 链式重映射任务
  * 支持多个映射文件按顺序应用，自动合并为单个映射
  */
-public abstract class ChainRemapTask extends DefaultTask {
-    @Internal
-    @Getter
-    @Setter
-    private JarRemapperExtension extension;
-
+@CacheableTask
+public abstract class ChainRemapTask extends AbstractWorkerTask {
     @InputFile
+    @PathSensitive(PathSensitivity.NONE)
     public abstract RegularFileProperty getInputJar();
 
     @OutputFile
@@ -47,8 +44,26 @@ public abstract class ChainRemapTask extends DefaultTask {
      * 按顺序应用
      */
     @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
     public abstract ConfigurableFileCollection getMappingFiles();
 
+    /**
+     * 映射文件的应用顺序，文件指纹本身不区分顺序
+     * 每个位置记录文件名与内容哈希，不同目录下的同名文件交换顺序时也能区分
+     */
+    @Input
+    public List<String> getMappingFileOrder() {
+        List<String> order = new ArrayList<>();
+        for (File file : getMappingFiles().getFiles()) {
+            try {
+                order.add(file.getName() + "@" + (file.isFile() ? ClassHierarchyCache.sha1(file) : "missing"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return order;
+    }
+
     /**
      * Maven 映射坐标列表
      * 按顺序应用
@@ -57,6 +72,14 @@ public abstract class ChainRemapTask extends DefaultTask {
     @Optional
     public abstract ListProperty<String> getMappingCoordinates();
 
+    /**
+     * Maven 坐标解析得到的映射文件，与 mappingCoordinates 一一对应
+     * 坐标解析需要 Project，由插件在配置阶段连接
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ListProperty<RegularFile> getResolvedMappingCoordinates();
+
     /**
      * 每个映射的源命名空间
      * 与映射文件/坐标一一对应
@@ -81,12 +104,35 @@ public abstract class ChainRemapTask extends DefaultTask {
     @Optional
     public abstract ListProperty<Boolean> getReverseFlags();
 
-    @InputFiles
+    /**
+     * 只用于继承关系，按 ABI 指纹，顺序决定同名类的优先级
+     */
+    @CompileClasspath
     @Optional
     public abstract ConfigurableFileCollection getLibraryJars();
 
+    @Input
+    public abstract Property<Integer> getTargetJavaVersion();
+
+    /**
+     * 库 JAR 继承关系缓存目录
+     */
+    @Internal
+    public abstract DirectoryProperty getHierarchyCacheDir();
+
+    /**
+     * 映射预加载服务，由插件连接
+     */
+    @Internal
+    @Optional
+    public abstract Property<MappingPrefetchService> getMappingService();
+
+    public ChainRemapTask() {
+        getTargetJavaVersion().convention(0);
+    }
+
     @TaskAction
-    public void remap() throws IOException {
+    public void remap() {
         File inputJar = getInputJar().get().getAsFile();
         File outputJar = getOutputJar().get().getAsFile();
 
@@ -104,43 +150,51 @@ public abstract class ChainRemapTask extends DefaultTask {
             throw new RuntimeException("No mapping files or coordinates specified");
         }
 
-        getLogger().lifecycle("Loading {} mappings", sources.size());
-
-        MappingChain chain = new MappingChain();
-        MappingResolver resolver = new MappingResolver(getProject());
-
-        for (int i = 0; i < sources.size(); i++) {
-            MappingSource source = sources.get(i);
-            getLogger().lifecycle("Loading mapping {}/{}: {}", i + 1, sources.size(), source.description);
-
-            MappingData mapping = loadMapping(resolver, source);
-
-            getLogger().lifecycle("  {} classes, {} fields, {} methods",
-                    mapping.getClassCount(), mapping.getFieldCount(), mapping.getMethodCount());
-
-            if (source.reverse) {
-                getLogger().lifecycle("  Reversing mapping");
-            }
-            chain.add(mapping, source.reverse);
+        List<String> mappingPaths = new ArrayList<>();
+        List<String> descriptions = new ArrayList<>();
+        List<String> sourceNamespaces = new ArrayList<>();
+        List<String> targetNamespaces = new ArrayList<>();
+        List<Boolean> reverseFlags = new ArrayList<>();
+        for (MappingSource source : sources) {
+            mappingPaths.add(source.file.getAbsolutePath());
+            descriptions.add(source.description);
+            sourceNamespaces.add(source.sourceNamespace != null ? source.sourceNamespace : "");
+            targetNamespaces.add(source.targetNamespace != null ? source.targetNamespace : "");
+            reverseFlags.add(source.reverse);
         }
 
-        getLogger().lifecycle("Merging mapping chain...");
-        MappingData merged = chain.merge();
-
-        getLogger().lifecycle("Merged result: {} classes, {} fields, {} methods",
-                merged.getClassCount(), merged.getFieldCount(), merged.getMethodCount());
-
-        JarRemapper remapper = new JarRemapper(merged);
-        File[] libs = getLibraryJars().getFiles().toArray(new File[0]);
+        // 构建服务不能跨类加载器或进程传递
+        boolean useMappingService = getMappingService().isPresent()
+                && WorkerSupport.Isolation.parse(getWorkerIsolation().get()).sharesDaemonClassLoader();
+
+        createWorkQueue().submit(ChainRemapWork.class, parameters -> {
+            parameters.getInputJar().set(inputJar);
+            parameters.getOutputJar().set(outputJar);
+            parameters.getMappingPaths().set(mappingPaths);
+            parameters.getDescriptions().set(descriptions);
+            parameters.getSourceNamespaces().set(sourceNamespaces);
+            parameters.getTargetNamespaces().set(targetNamespaces);
+            parameters.getReverseFlags().set(reverseFlags);
+            parameters.getLibraryJars().from(getLibraryJars());
+            parameters.getHierarchyCacheDir().set(getHierarchyCacheDir());
+            parameters.getTargetJavaVersion().set(getTargetJavaVersion());
+            if (useMappingService) {
+                parameters.getMappingService().set(getMappingService());
+            }
+        });
+    }
 
-        if (libs.length > 0) {
-            getLogger().lifecycle("Using {} library JARs for inheritance resolution", libs.length);
-            remapper.remapJarWithLibraries(inputJar, outputJar, libs);
-        } else {
-            remapper.remapJar(inputJar, outputJar);
+    /**
+     * 本任务所有映射的预加载请求，由插件在任务图确定后登记到映射预加载服务
+     * 只生成请求，不读取映射文件
+     */
+    public List<String> prefetchRequests() {
+        List<String> requests = new ArrayList<>();
+        for (MappingSource source : collectMappingSources()) {
+            requests.add(MappingPrefetchService.request(getPath(), source.file,
+                    source.sourceNamespace, source.targetNamespace));
         }
-
-        getLogger().lifecycle("Chain remap completed: {}", outputJar);
+        return requests;
     }
 
     private List<MappingSource> collectMappingSources() {
@@ -153,24 +207,29 @@ public abstract class ChainRemapTask extends DefaultTask {
         int index = 0;
 
         for (File file : getMappingFiles().getFiles()) {
-            sources.add(createMappingSource(file, null, file.getName(), sourceNs, targetNs, reverseFlags, index));
+            sources.add(createMappingSource(file, file.getName(), sourceNs, targetNs, reverseFlags, index));
             index++;
         }
 
-        for (String coord : getMappingCoordinates().getOrElse(Collections.emptyList())) {
-            sources.add(createMappingSource(null, coord, coord, sourceNs, targetNs, reverseFlags, index));
+        List<String> coordinates = getMappingCoordinates().getOrElse(Collections.emptyList());
+        List<RegularFile> resolved = getResolvedMappingCoordinates().getOrElse(Collections.emptyList());
+        if (resolved.size() != coordinates.size()) {
+            throw new RuntimeException("Mapping coordinates are not resolved: " + coordinates);
+        }
+        for (int i = 0; i < coordinates.size(); i++) {
+            File file = resolved.get(i).getAsFile();
+            sources.add(createMappingSource(file, coordinates.get(i), sourceNs, targetNs, reverseFlags, index));
             index++;
         }
 
         return sources;
     }
 
-    private MappingSource createMappingSource(File file, String coordinates, String description,
+    private MappingSource createMappingSource(File file, String description,
                                               List<String> sourceNs, List<String> targetNs,
                                               List<Boolean> reverseFlags, int index) {
         MappingSource source = new MappingSource();
         source.file = file;
-        source.coordinates = coordinates;
         source.description = description;
         source.sourceNamespace = index < sourceNs.size() ? sourceNs.get(index) : null;
         source.targetNamespace = index < targetNs.size() ? targetNs.get(index) : null;
@@ -178,22 +237,8 @@ public abstract class ChainRemapTask extends DefaultTask {
         return source;
     }
 
-    private MappingData loadMapping(MappingResolver resolver, MappingSource source) throws IOException {
-        File file;
-        if (source.file != null) {
-            file = source.file;
-        } else if (source.coordinates != null) {
-            file = resolver.resolve(source.coordinates);
-        } else {
-            throw new RuntimeException("Invalid mapping source: no file or coordinates");
-        }
-
-        return MappingLoader.load(file, source.sourceNamespace, source.targetNamespace);
-    }
-
     private static class MappingSource {
         File file;
-        String coordinates;
         String description;
         String sourceNamespace;
         String targetNamespace;
@@ -0,0 +1,135 @@
+package com.ecaree.jarremapper.task;
+
+import com.ecaree.jarremapper.mapping.ClassHierarchyCache;
+import com.ecaree.jarremapper.mapping.MappingChain;
+import com.ecaree.jarremapper.mapping.MappingData;
+import com.ecaree.jarremapper.mapping.MappingLoader;
+import com.ecaree.jarremapper.remap.JarRemapper;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * chainRemap 的 Worker 实现
+ * 映射文件在任务中解析完成，这里只负责加载、合并与重映射
+ * 不隔离时映射从预加载服务获取，通常在任务开始前已加载完成
+ */
+public abstract class ChainRemapWork implements WorkAction<ChainRemapWork.Parameters> {
+    private static final Logger LOGGER = Logging.getLogger(ChainRemapWork.class);
+
+    public interface Parameters extends WorkParameters {
+        RegularFileProperty getInputJar();
+
+        RegularFileProperty getOutputJar();
+
+        /**
+         * 按应用顺序排列的映射文件绝对路径，同一文件可出现多次
+         */
+        ListProperty<String> getMappingPaths();
+
+        ListProperty<String> getDescriptions();
+
+        /**
+         * 与映射文件一一对应，空字符串表示使用默认命名空间
+         */
+        ListProperty<String> getSourceNamespaces();
+
+        ListProperty<String> getTargetNamespaces();
+
+        ListProperty<Boolean> getReverseFlags();
+
+        ConfigurableFileCollection getLibraryJars();
+
+        DirectoryProperty getHierarchyCacheDir();
+
+        Property<Integer> getTargetJavaVersion();
+
+        /**
+         * 映射预加载服务，只在不隔离时设置，未设置时直接加载
+         */
+        Property<MappingPrefetchService> getMappingService();
+    }
+
+    @Override
+    public void execute() {
+        try {
+            remap();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void remap() throws IOException {
+        Parameters parameters = getParameters();
+        File inputJar = parameters.getInputJar().get().getAsFile();
+        File outputJar = parameters.getOutputJar().get().getAsFile();
+        List<String> paths = parameters.getMappingPaths().get();
+        List<String> descriptions = parameters.getDescriptions().get();
+        List<String> sourceNamespaces = parameters.getSourceNamespaces().get();
+        List<String> targetNamespaces = parameters.getTargetNamespaces().get();
+        List<Boolean> reverseFlags = parameters.getReverseFlags().get();
+
+        MappingPrefetchService service = parameters.getMappingService().getOrNull();
+        LOGGER.lifecycle("Loading {} mappings", paths.size());
+
+        MappingChain chain = new MappingChain();
+        for (int i = 0; i < paths.size(); i++) {
+            LOGGER.lifecycle("Loading mapping {}/{}: {}", i + 1, paths.size(), descriptions.get(i));
+
+            File mappingFile = new File(paths.get(i));
+            String sourceNamespace = emptyToNull(sourceNamespaces.get(i));
+            String targetNamespace = emptyToNull(targetNamespaces.get(i));
+            MappingData mapping = service != null
+                    ? service.load(mappingFile, sourceNamespace, targetNamespace)
+                    : MappingLoader.load(mappingFile, sourceNamespace, targetNamespace);
+
+            LOGGER.lifecycle("  {} classes, {} fields, {} methods",
+                    mapping.getClassCount(), mapping.getFieldCount(), mapping.getMethodCount());
+
+            boolean reverse = reverseFlags.get(i);
+            if (reverse) {
+                LOGGER.lifecycle("  Reversing mapping");
+            }
+            chain.add(mapping, reverse);
+        }
+
+        LOGGER.lifecycle("Merging mapping chain...");
+        MappingData merged = chain.merge();
+        if (service != null && chain.size() == 1) {
+            // 只有一个映射时合并结果就是共享的预加载实例，重映射会修改其继承关系
+            merged = merged.copy();
+        }
+
+        LOGGER.lifecycle("Merged result: {} classes, {} fields, {} methods",
+                merged.getClassCount(), merged.getFieldCount(), merged.getMethodCount());
+
+        JarRemapper remapper = new JarRemapper(merged);
+        remapper.setTargetJavaVersion(parameters.getTargetJavaVersion().get());
+        File[] libs = parameters.getLibraryJars().getFiles().toArray(new File[0]);
+
+        if (libs.length > 0) {
+            LOGGER.lifecycle("Using {} library JARs for inheritance resolution", libs.length);
+            remapper.setHierarchyCache(new ClassHierarchyCache(parameters.getHierarchyCacheDir().get().getAsFile()));
+            remapper.remapJarWithLibraries(inputJar, outputJar, libs);
+        } else {
+            remapper.remapJar(inputJar, outputJar);
+        }
+
+        LOGGER.lifecycle("Chain remap completed: {}", outputJar);
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+}
@@ -1,53 +1,64 @@
 package com.ecaree.jarremapper.task;
 
-import com.ecaree.jarremapper.JarRemapperExtension;
-import com.ecaree.jarremapper.mapping.MappingData;
-import com.ecaree.jarremapper.mapping.MappingHelper;
-import com.ecaree.jarremapper.remap.AnnotationInjector;
-import lombok.Getter;
-import lombok.Setter;
-import org.gradle.api.DefaultTask;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.Internal;
-import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.DisableCachingByDefault;
 
 import java.io.File;
-import java.io.IOException;
 
-public class InjectJarAnnotationsTask extends DefaultTask {
+/**
+ * 原地修改 remapJar 的输出，输入与输出是同一个文件，无法按输入复用缓存的输出
+ * 默认配置下注解在 remapJar 中一并注入，可缓存的是 remapJar
+ */
+@DisableCachingByDefault(because = "Modifies the remapJar output in place")
+public abstract class InjectJarAnnotationsTask extends AbstractMappingTask {
+    /**
+     * 原地注入注解的 JAR
+     */
     @Internal
-    @Getter
-    @Setter
-    private JarRemapperExtension extension;
+    public abstract RegularFileProperty getJar();
 
-    @InputFile
-    public File getInputJar() {
-        return extension.getOutputJar().get().getAsFile();
+    @Input
+    public abstract Property<Boolean> getIncludeReadableInfo();
+
+    @Input
+    public abstract Property<String> getCompression();
+
+    @Input
+    public abstract Property<Integer> getCompressionLevel();
+
+    @Internal
+    public abstract Property<Integer> getParallelism();
+
+    public InjectJarAnnotationsTask() {
+        getIncludeReadableInfo().convention(false);
+        getCompression().convention("deflate");
+        getCompressionLevel().convention(6);
+        getParallelism().convention(Runtime.getRuntime().availableProcessors());
     }
 
     @InputFile
-    @Optional
-    public File getMappingFile() {
-        return extension.getEffectiveMappingFile();
+    @PathSensitive(PathSensitivity.NONE)
+    public File getInputJar() {
+        return getJar().get().getAsFile();
     }
 
     @OutputFile
     public File getOutputJar() {
-        return extension.getOutputJar().get().getAsFile();
-    }
-
-    @Input
-    public boolean getIncludeReadableInfo() {
-        return extension.getInjectReadableInfo().get();
+        return getJar().get().getAsFile();
     }
 
     @TaskAction
-    public void injectAnnotations() throws IOException {
+    public void injectAnnotations() {
         File jar = getInputJar();
-        boolean includeReadable = getIncludeReadableInfo();
+        boolean includeReadable = getIncludeReadableInfo().get();
 
         if (!jar.exists()) {
             throw new RuntimeException("JAR file does not exist: " + jar + ", please run remapJar task first");
@@ -55,14 +66,16 @@ public class InjectJarAnnotationsTask extends DefaultTask {
 
         getLogger().lifecycle("Starting annotation injection");
         getLogger().lifecycle("JAR: {}", jar);
-        getLogger().lifecycle("Mapping: {}", extension.getEffectiveMappingFile());
+        getLogger().lifecycle("Mapping: {}", getEffectiveMappingFile());
         getLogger().lifecycle("Include readable info: {}", includeReadable);
 
-        MappingData mappingData = MappingHelper.loadFromExtension(extension);
-
-        AnnotationInjector injector = new AnnotationInjector(mappingData, includeReadable);
-        injector.injectAnnotations(jar, jar);
-
-        getLogger().lifecycle("Annotation injection completed");
+        createWorkQueue().submit(InjectJarAnnotationsWork.class, parameters -> {
+            setMapping(parameters);
+            parameters.getJar().set(jar);
+            parameters.getIncludeReadableInfo().set(includeReadable);
+            parameters.getParallelism().set(getParallelism());
+            parameters.getCompression().set(getCompression());
+            parameters.getCompressionLevel().set(getCompressionLevel());
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,63 @@
+package com.ecaree.jarremapper.task;
+
+import com.ecaree.jarremapper.mapping.MappingData;
+import com.ecaree.jarremapper.remap.AnnotationInjector;
+import com.ecaree.jarremapper.util.OutputCompression;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * injectJarAnnotations 的 Worker 实现
+ */
+public abstract class InjectJarAnnotationsWork implements WorkAction<InjectJarAnnotationsWork.Parameters> {
+    private static final Logger LOGGER = Logging.getLogger(InjectJarAnnotationsWork.class);
+
+    public interface Parameters extends MappingWorkParameters {
+        /**
+         * 原地注入注解的 JAR
+         */
+        RegularFileProperty getJar();
+
+        Property<Boolean> getIncludeReadableInfo();
+
+        Property<Integer> getParallelism();
+
+        Property<String> getCompression();
+
+        Property<Integer> getCompressionLevel();
+    }
+
+    @Override
+    public void execute() {
+        try {
+            injectAnnotations();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void injectAnnotations() throws IOException {
+        Parameters parameters = getParameters();
+        File jar = parameters.getJar().get().getAsFile();
+
+        MappingData mappingData = WorkerSupport.loadMapping(parameters, false);
+
+        AnnotationInjector injector = new AnnotationInjector(mappingData, parameters.getIncludeReadableInfo().get());
+        injector.setParallelism(parameters.getParallelism().get());
+        try (OutputCompression compression = new OutputCompression(
+                OutputCompression.Mode.parse(parameters.getCompression().get()), parameters.getCompressionLevel().get())) {
+            injector.setCompression(compression);
+            injector.injectAnnotations(jar, jar);
+            LOGGER.lifecycle("Output compression: {}", compression.getSummary());
+        }
+
+        LOGGER.lifecycle("Annotation injection completed: {} KB", jar.length() / 1024);
+    }
+}
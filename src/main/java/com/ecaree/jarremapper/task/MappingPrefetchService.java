@@ -0,0 +1,183 @@
+package com.ecaree.jarremapper.task;
+
+import com.ecaree.jarremapper.mapping.MappingData;
+import com.ecaree.jarremapper.mapping.MappingLoader;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationCompletionListener;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 映射预加载服务
+ * 插件在任务图确定后把链式任务用到的映射登记为预加载请求，服务在执行阶段开始时以低优先级在后台加载
+ * 请求保存在服务参数中，配置缓存命中时同样在构建开始时预加载
+ * 预加载只是提示：任务需要映射时若加载尚未开始则直接在当前线程加载，不排队等待
+ * 登记请求的任务结束（包括 UP-TO-DATE、FROM-CACHE 与跳过）后，尚未开始的预加载取消，已加载的结果释放
+ * 依赖重映射转换也经由此服务加载，同一次构建中的多个构件共用一次解析
+ * 同一次构建中相同的文件与命名空间只加载一次，构建结束时释放
+ * <p>
+ * 返回的 MappingData 在任务与转换间共享，调用方不应修改，需要修改时使用 {@link MappingData#copy()}
+ * 只能在同一 JVM 中使用，Worker 使用 classloader 或 process 隔离时不经过此服务
+ */
+public abstract class MappingPrefetchService
+        implements BuildService<MappingPrefetchService.Params>, OperationCompletionListener, AutoCloseable {
+    public static final String NAME = "jarRemapperMappingPrefetch";
+    private static final Logger LOGGER = Logging.getLogger(MappingPrefetchService.class);
+
+    public interface Params extends BuildServiceParameters {
+        /**
+         * 预加载请求，由 {@link #request} 生成
+         */
+        ListProperty<String> getRequests();
+    }
+
+    private final Map<String, FutureTask<MappingData>> loads = new ConcurrentHashMap<>();
+    /**
+     * 预加载请求的键与登记它的任务，所有登记的任务结束后释放
+     */
+    private final Map<String, Set<String>> requestingTasks = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())), r -> {
+                Thread thread = new Thread(r, "mapping-prefetch");
+                thread.setDaemon(true);
+                // 预加载不应与正在执行的任务争抢 CPU
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+
+    public MappingPrefetchService() {
+        for (String request : getParameters().getRequests().get()) {
+            String[] parts = request.split("\n", -1);
+            File file = new File(parts[1]);
+            if (file.isFile()) {
+                String sourceNamespace = emptyToNull(parts[2]);
+                String targetNamespace = emptyToNull(parts[3]);
+                String key = key(file, sourceNamespace, targetNamespace, false);
+                submit(key, file, sourceNamespace, targetNamespace, false, true);
+                requestingTasks.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(parts[0]);
+            }
+        }
+    }
+
+    /**
+     * 生成预加载请求
+     *
+     * @param taskPath 使用映射的任务，任务结束后释放预加载结果
+     */
+    public static String request(String taskPath, File file, String sourceNamespace, String targetNamespace) {
+        return taskPath + '\n' + file.getAbsolutePath() + '\n'
+                + (sourceNamespace != null ? sourceNamespace : "") + '\n'
+                + (targetNamespace != null ? targetNamespace : "");
+    }
+
+    /**
+     * 获取映射，预加载尚未开始时在当前线程加载，正在加载时等待其完成
+     */
+    public MappingData load(File file, String sourceNamespace, String targetNamespace) throws IOException {
+        return load(file, sourceNamespace, targetNamespace, false);
+    }
+
+    /**
+     * 获取映射，reverse 为 true 时加载反向映射
+     */
+    public MappingData load(File file, String sourceNamespace, String targetNamespace, boolean reverse) throws IOException {
+        FutureTask<MappingData> future = submit(key(file, sourceNamespace, targetNamespace, reverse),
+                file, sourceNamespace, targetNamespace, reverse, false);
+        boolean preloaded = future.isDone();
+        if (!preloaded) {
+            // 尚未开始时直接运行，已在其他线程运行时不做处理
+            future.run();
+        }
+        try {
+            MappingData mapping = future.get();
+            LOGGER.info("Served mapping {} from prefetch service ({})", file.getName(), preloaded ? "preloaded" : "loaded on demand");
+            return mapping;
+        } catch (CancellationException e) {
+            // 登记请求的任务已结束，预加载被释放，重新加载
+            return load(file, sourceNamespace, targetNamespace, reverse);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading " + file);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 登记预加载请求的任务结束后，释放只为它预加载的映射
+     */
+    @Override
+    public void onFinish(FinishEvent event) {
+        if (!(event instanceof TaskFinishEvent)) return;
+
+        String taskPath = ((TaskFinishEvent) event).getDescriptor().getTaskPath();
+        for (Map.Entry<String, Set<String>> entry : requestingTasks.entrySet()) {
+            Set<String> tasks = entry.getValue();
+            if (tasks.remove(taskPath) && tasks.isEmpty() && requestingTasks.remove(entry.getKey(), tasks)) {
+                FutureTask<MappingData> future = loads.remove(entry.getKey());
+                if (future != null && !future.isDone()) {
+                    future.cancel(false);
+                    LOGGER.info("Cancelled unused mapping prefetch after {}", taskPath);
+                }
+            }
+        }
+    }
+
+    /**
+     * 文件在构建中被重写时键随之变化，不会取到旧内容
+     */
+    private static String key(File file, String sourceNamespace, String targetNamespace, boolean reverse) {
+        return file.getAbsolutePath() + '\n' + file.length() + '\n' + file.lastModified()
+                + '\n' + sourceNamespace + '\n' + targetNamespace + '\n' + reverse;
+    }
+
+    /**
+     * @param prefetch 为 true 时在后台线程开始加载，否则由调用方运行
+     */
+    private FutureTask<MappingData> submit(String key, File file, String sourceNamespace, String targetNamespace,
+                                           boolean reverse, boolean prefetch) {
+        return loads.computeIfAbsent(key, k -> {
+            FutureTask<MappingData> task = new FutureTask<>(() -> {
+                long start = System.nanoTime();
+                MappingData mapping = MappingLoader.load(file, sourceNamespace, targetNamespace, reverse);
+                LOGGER.info("Prefetched mapping {} in {} ms", file.getName(), (System.nanoTime() - start) / 1_000_000);
+                return mapping;
+            });
+            if (prefetch) {
+                executor.execute(task);
+            }
+            return task;
+        });
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        loads.clear();
+        requestingTasks.clear();
+    }
+}
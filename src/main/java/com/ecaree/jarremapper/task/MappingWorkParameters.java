@@ -0,0 +1,19 @@
+package com.ecaree.jarremapper.task;
+
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkParameters;
+
+/**
+ * Worker 加载映射所需的参数
+ */
+public interface MappingWorkParameters extends WorkParameters {
+    RegularFileProperty getMappingFile();
+
+    Property<String> getSourceNamespace();
+
+    Property<String> getTargetNamespace();
+
+    ListProperty<String> getExcludedPackages();
+}
@@ -1,52 +1,50 @@
 package com.ecaree.jarremapper.task;
 
-import com.ecaree.jarremapper.JarRemapperExtension;
-import com.ecaree.jarremapper.mapping.MappingData;
-import com.ecaree.jarremapper.mapping.MappingHelper;
-import com.ecaree.jarremapper.mapping.MappingLoader;
-import com.ecaree.jarremapper.remap.JarRemapper;
-import lombok.Getter;
-import lombok.Setter;
-import org.gradle.api.DefaultTask;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 
+import javax.inject.Inject;
 import java.io.File;
-import java.io.IOException;
-
-public class RemapJarTask extends DefaultTask {
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 输入均按内容指纹，与所在路径无关，因此不同机器可共享构建缓存中的输出
+ */
+@CacheableTask
+public abstract class RemapJarTask extends AbstractWorkerTask {
     /**
      * 独立模式：直接指定输入 JAR
-     * 优先级高于 extension 配置
+     * 优先级高于 extension 配置，由 getEffective 系列属性声明为任务输入输出
      */
-    @InputFile
-    @Optional
-    @Getter
-    private final RegularFileProperty inputJar = getProject().getObjects().fileProperty();
+    @Internal
+    public abstract RegularFileProperty getInputJar();
 
     /**
      * 独立模式：直接指定输出 JAR
-     * 优先级高于 extension 配置
+     * 优先级高于 extension 配置，由 getEffective 系列属性声明为任务输入输出
      */
-    @OutputFile
-    @Optional
-    @Getter
-    private final RegularFileProperty outputJar = getProject().getObjects().fileProperty();
+    @Internal
+    public abstract RegularFileProperty getOutputJar();
 
     /**
      * 独立模式：直接指定映射文件
-     * 优先级高于 extension 配置
+     * 优先级高于 extension 配置，由 getEffective 系列属性声明为任务输入输出
      */
-    @InputFile
-    @Optional
-    @Getter
-    private final RegularFileProperty mappingFile = getProject().getObjects().fileProperty();
+    @Internal
+    public abstract RegularFileProperty getMappingFile();
 
     /**
      * 是否反向映射
@@ -54,44 +52,140 @@ public class RemapJarTask extends DefaultTask {
      */
     @Input
     @Optional
-    @Getter
-    private final Property<Boolean> reverse = getProject().getObjects().property(Boolean.class);
+    public abstract Property<Boolean> getReverse();
+
+    /**
+     * extension 模式的默认值，由插件从 extension 连接，独立模式的属性未设置时使用
+     */
+    @Internal
+    public abstract RegularFileProperty getDefaultInputJar();
+
+    @Internal
+    public abstract RegularFileProperty getDefaultOutputJar();
+
+    @Internal
+    public abstract RegularFileProperty getDefaultMappingFile();
+
+    @Internal
+    public abstract Property<String> getDefaultSourceNamespace();
 
     @Internal
-    @Getter
-    @Setter
-    private JarRemapperExtension extension;
+    public abstract Property<String> getDefaultTargetNamespace();
+
+    @Internal
+    public abstract ListProperty<String> getDefaultExcludedPackages();
+
+    /**
+     * extension 是否要求注入字节码注解
+     */
+    @Internal
+    public abstract Property<Boolean> getInjectAnnotations();
+
+    @Internal
+    public abstract Property<Boolean> getInjectReadableInfo();
+
+    @Input
+    public abstract Property<String> getCompression();
+
+    @Input
+    public abstract Property<Integer> getCompressionLevel();
+
+    @Input
+    public abstract Property<Integer> getTargetJavaVersion();
+
+    /**
+     * 是否增量重映射，输出与完整重映射一致，因此不作为任务输入
+     */
+    @Internal
+    public abstract Property<Boolean> getIncremental();
+
+    @Inject
+    protected abstract ProviderFactory getProviders();
+
+    public RemapJarTask() {
+        getDefaultExcludedPackages().convention(Collections.emptyList());
+        getInjectAnnotations().convention(false);
+        getInjectReadableInfo().convention(false);
+        getCompression().convention("deflate");
+        getCompressionLevel().convention(6);
+        getTargetJavaVersion().convention(0);
+        getIncremental().convention(false);
+    }
 
     @InputFile
+    @PathSensitive(PathSensitivity.NONE)
     public File getEffectiveInputJar() {
-        if (inputJar.isPresent()) {
-            return inputJar.get().getAsFile();
-        }
-        return extension.getInputJar().get().getAsFile();
+        return getInputJar().orElse(getDefaultInputJar()).get().getAsFile();
     }
 
     @OutputFile
     public File getEffectiveOutputJar() {
-        if (outputJar.isPresent()) {
-            return outputJar.get().getAsFile();
-        }
-        return extension.getOutputJar().get().getAsFile();
+        return getOutputJar().orElse(getDefaultOutputJar()).get().getAsFile();
     }
 
     @InputFile
     @Optional
+    @PathSensitive(PathSensitivity.NONE)
     public File getEffectiveMappingFile() {
-        if (mappingFile.isPresent()) {
-            return mappingFile.get().getAsFile();
+        if (getMappingFile().isPresent()) {
+            return getMappingFile().get().getAsFile();
         }
-        return extension != null ? extension.getEffectiveMappingFile() : null;
+        return AbstractMappingTask.existingFile(getDefaultMappingFile());
+    }
+
+    /**
+     * extension 模式下加载映射使用的源命名空间
+     */
+    @Input
+    @Optional
+    public String getSourceNamespace() {
+        return isExtensionMapping() ? getDefaultSourceNamespace().getOrNull() : null;
+    }
+
+    @Input
+    @Optional
+    public String getTargetNamespace() {
+        return isExtensionMapping() ? getDefaultTargetNamespace().getOrNull() : null;
+    }
+
+    @Input
+    public List<String> getExcludedPackages() {
+        return isExtensionMapping() ? getDefaultExcludedPackages().get() : Collections.<String>emptyList();
+    }
+
+    private boolean isExtensionMapping() {
+        return !getMappingFile().isPresent();
+    }
+
+    /**
+     * 是否在重映射的同一遍处理中注入字节码注解
+     * 仅在 extension 模式下正向重映射到 extension 的 outputJar 时启用，此时 injectJarAnnotations 任务会跳过
+     */
+    @Input
+    public boolean isFusedAnnotationInjection() {
+        return !getMappingFile().isPresent()
+                && !getOutputJar().isPresent()
+                && !getReverse().getOrElse(false)
+                && getInjectAnnotations().get();
+    }
+
+    /**
+     * 延迟求值的 isFusedAnnotationInjection()，供其他任务的 onlyIf 使用而不引用本任务
+     */
+    public Provider<Boolean> fusedAnnotationInjection() {
+        return getProviders().provider(this::isFusedAnnotationInjection);
+    }
+
+    @Input
+    public boolean getIncludeReadableInfo() {
+        return isFusedAnnotationInjection() && getInjectReadableInfo().get();
     }
 
     @TaskAction
-    public void remapJar() throws IOException {
+    public void remapJar() {
         File inputJar = getEffectiveInputJar();
         File outputJar = getEffectiveOutputJar();
-        boolean reverse = this.reverse.getOrElse(false);
+        boolean reverse = getReverse().getOrElse(false);
 
         if (!inputJar.exists()) {
             throw new RuntimeException("Input JAR file does not exist: " + inputJar);
@@ -101,50 +195,33 @@ public class RemapJarTask extends DefaultTask {
         getLogger().lifecycle("Input: {}", inputJar);
         getLogger().lifecycle("Output: {}", outputJar);
         getLogger().lifecycle("Reverse: {}", reverse);
-
-        MappingData mappingData;
-
-        // 独立模式：直接指定映射文件
-        if (mappingFile.isPresent()) {
-            File mf = mappingFile.get().getAsFile();
-            getLogger().lifecycle("Mapping: {}", mf);
-            mappingData = MappingLoader.load(mf, reverse);
-        } else {
-            // Extension 模式
-            getLogger().lifecycle("Mapping: {}", extension.getEffectiveMappingFile());
-            logNamespaces();
-            mappingData = MappingHelper.loadFromExtension(extension, reverse);
-        }
-
-        logExcludedPackages(mappingData);
-        logMappingStats(mappingData);
-
-        JarRemapper remapper = new JarRemapper(mappingData);
-        remapper.remapJar(inputJar, outputJar);
-
-        getLogger().lifecycle("JAR remapping completed: {}", outputJar);
+        getLogger().lifecycle("Mapping: {}", getEffectiveMappingFile());
+        logNamespaces();
+
+        // 映射加载与重映射在 Worker 中执行，workerIsolation 为 process 时映射数据只占用 Worker 进程的堆
+        // 默认的 none 隔离下 Worker 与任务同在守护进程中
+        createWorkQueue().submit(RemapJarWork.class, parameters -> {
+            WorkerSupport.setMapping(parameters, getEffectiveMappingFile(),
+                    getSourceNamespace(), getTargetNamespace(), getExcludedPackages());
+            parameters.getInputJar().set(inputJar);
+            parameters.getOutputJar().set(outputJar);
+            parameters.getReverse().set(reverse);
+            parameters.getInjectAnnotations().set(isFusedAnnotationInjection());
+            parameters.getIncludeReadableInfo().set(getIncludeReadableInfo());
+            parameters.getCompression().set(getCompression());
+            parameters.getCompressionLevel().set(getCompressionLevel());
+            parameters.getIncremental().set(getIncremental());
+            parameters.getTargetJavaVersion().set(getTargetJavaVersion());
+        });
     }
 
     private void logNamespaces() {
-        String sourceNs = extension.getSourceNamespace().getOrNull();
-        String targetNs = extension.getTargetNamespace().getOrNull();
+        String sourceNs = getSourceNamespace();
+        String targetNs = getTargetNamespace();
         if (sourceNs != null || targetNs != null) {
             getLogger().lifecycle("Namespaces: {} -> {}",
                     sourceNs != null ? sourceNs : "(default)",
                     targetNs != null ? targetNs : "(default)");
         }
     }
-
-    private void logExcludedPackages(MappingData mappingData) {
-        if (!mappingData.getExcludedPackages().isEmpty()) {
-            getLogger().lifecycle("Excluded packages: {}", mappingData.getExcludedPackages());
-        }
-    }
-
-    private void logMappingStats(MappingData mappingData) {
-        getLogger().lifecycle("Loaded mappings: {} classes, {} fields, {} methods",
-                mappingData.getClassCount(),
-                mappingData.getFieldCount(),
-                mappingData.getMethodCount());
-    }
-}
\ No newline at end of file
+}
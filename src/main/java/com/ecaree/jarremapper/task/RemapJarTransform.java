@@ -0,0 +1,218 @@
+package com.ecaree.jarremapper.task;
+
+import com.ecaree.jarremapper.mapping.ClassHierarchyCache;
+import com.ecaree.jarremapper.mapping.MappingData;
+import com.ecaree.jarremapper.mapping.MappingHelper;
+import com.ecaree.jarremapper.remap.JarRemapper;
+import com.ecaree.jarremapper.util.OutputCompression;
+import com.ecaree.jarremapper.util.ZipWriter;
+import org.gradle.api.artifacts.transform.CacheableTransform;
+import org.gradle.api.artifacts.transform.InputArtifact;
+import org.gradle.api.artifacts.transform.InputArtifactDependencies;
+import org.gradle.api.artifacts.transform.TransformAction;
+import org.gradle.api.artifacts.transform.TransformOutputs;
+import org.gradle.api.artifacts.transform.TransformParameters;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileSystemLocation;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CompileClasspath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+/**
+ * 依赖构件的重映射转换
+ * 请求 remapped 属性的配置在解析时按需执行，由 Gradle 并行调度，
+ * 结果保存在转换缓存中，同一构建的多个项目及后续构建共用，启用构建缓存时也可远程共享
+ * 依赖构件只用于继承关系，不参与重映射
+ * 类目录（如项目依赖的输出）打包后重映射为 JAR，不是 JAR 的文件直接报错，不会未经重映射就标记为已重映射
+ */
+@CacheableTransform
+public abstract class RemapJarTransform implements TransformAction<RemapJarTransform.Parameters> {
+    private static final Logger LOGGER = Logging.getLogger(RemapJarTransform.class);
+
+    public interface Parameters extends TransformParameters {
+        /**
+         * 转换总是注册，未设置或文件不存在时在转换执行时报错，而不是由 Gradle 报告通用的校验错误
+         */
+        @InputFiles
+        @Optional
+        @PathSensitive(PathSensitivity.NONE)
+        RegularFileProperty getMappingFile();
+
+        @Input
+        @Optional
+        Property<String> getSourceNamespace();
+
+        @Input
+        @Optional
+        Property<String> getTargetNamespace();
+
+        @Input
+        ListProperty<String> getExcludedPackages();
+
+        @Input
+        Property<Boolean> getReverse();
+
+        @Input
+        Property<String> getCompression();
+
+        @Input
+        Property<Integer> getCompressionLevel();
+
+        @Input
+        Property<Integer> getTargetJavaVersion();
+
+        /**
+         * 只影响解析速度，不影响输出
+         */
+        @Internal
+        DirectoryProperty getHierarchyCacheDir();
+
+        /**
+         * 构建内共享的映射加载服务，多个构件只解析一次映射，不影响输出
+         */
+        @Internal
+        @Optional
+        Property<MappingPrefetchService> getMappingService();
+    }
+
+    @InputArtifact
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract Provider<FileSystemLocation> getInputArtifact();
+
+    @InputArtifactDependencies
+    @CompileClasspath
+    public abstract FileCollection getInputArtifactDependencies();
+
+    @Override
+    public void transform(TransformOutputs outputs) {
+        File input = getInputArtifact().get().getAsFile();
+        File mappingFile = getMappingFile(input);
+        try {
+            if (input.isDirectory()) {
+                File packed = File.createTempFile(input.getName(), ".jar");
+                try {
+                    packDirectory(input, packed);
+                    File output = outputs.file(input.getName() + "-remapped.jar");
+                    remap(mappingFile, packed, output);
+                    LOGGER.info("Remapped class directory {} -> {}", input, output.getName());
+                } finally {
+                    Files.deleteIfExists(packed.toPath());
+                }
+                return;
+            }
+            if (!isZipArchive(input)) {
+                throw new RuntimeException("Cannot remap dependency " + input.getName()
+                        + ": not a JAR archive or class directory");
+            }
+
+            String name = input.getName();
+            int dot = name.lastIndexOf('.');
+            File output = outputs.file((dot > 0 ? name.substring(0, dot) : name) + "-remapped.jar");
+            remap(mappingFile, input, output);
+            LOGGER.info("Remapped dependency {} -> {}", name, output.getName());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private File getMappingFile(File input) {
+        if (!getParameters().getMappingFile().isPresent()) {
+            throw new RuntimeException("Cannot remap dependency " + input.getName()
+                    + ": jarRemapper.mappingsFile is not set");
+        }
+        File mappingFile = getParameters().getMappingFile().get().getAsFile();
+        if (!mappingFile.isFile()) {
+            throw new RuntimeException("Cannot remap dependency " + input.getName()
+                    + ": jarRemapper.mappingsFile does not exist: " + mappingFile);
+        }
+        return mappingFile;
+    }
+
+    private static boolean isZipArchive(File file) throws IOException {
+        if (!file.isFile()) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return in.read() == 'P' && in.read() == 'K';
+        }
+    }
+
+    /**
+     * 按路径顺序把类目录打包为 JAR，条目时间固定，输出与目录的遍历顺序无关
+     */
+    private static void packDirectory(File directory, File jar) throws IOException {
+        Path root = directory.toPath();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        try (ZipWriter writer = new ZipWriter(Files.newOutputStream(jar.toPath()))) {
+            for (Path file : files) {
+                String name = root.relativize(file).toString().replace(File.separatorChar, '/');
+                writer.write(ZipWriter.deflate(name, Files.readAllBytes(file), -1, Deflater.BEST_SPEED));
+            }
+        }
+    }
+
+    private void remap(File mappingFile, File input, File output) throws IOException {
+        Parameters parameters = getParameters();
+        MappingData mappingData = loadMapping(parameters, mappingFile);
+
+        JarRemapper remapper = new JarRemapper(mappingData);
+        remapper.setTargetJavaVersion(parameters.getTargetJavaVersion().get());
+        if (parameters.getHierarchyCacheDir().isPresent()) {
+            remapper.setHierarchyCache(new ClassHierarchyCache(parameters.getHierarchyCacheDir().get().getAsFile()));
+        }
+
+        try (OutputCompression compression = new OutputCompression(
+                OutputCompression.Mode.parse(parameters.getCompression().get()), parameters.getCompressionLevel().get())) {
+            remapper.setCompression(compression);
+            remapper.remapJarWithLibraries(input, output, getInputArtifactDependencies().getFiles().toArray(new File[0]));
+        }
+    }
+
+    /**
+     * 有共享服务时复用已解析的映射，否则各自加载
+     * MappingData 在重映射时会修改继承关系与查找缓存，并行的转换之间不能共用同一实例，共享的映射先复制
+     */
+    private static MappingData loadMapping(Parameters parameters, File mappingFile) throws IOException {
+        if (!parameters.getMappingService().isPresent()) {
+            return MappingHelper.load(mappingFile,
+                    parameters.getSourceNamespace().getOrNull(),
+                    parameters.getTargetNamespace().getOrNull(),
+                    parameters.getReverse().get(),
+                    parameters.getExcludedPackages().get());
+        }
+
+        MappingData mappingData = parameters.getMappingService().get().load(mappingFile,
+                parameters.getSourceNamespace().getOrNull(),
+                parameters.getTargetNamespace().getOrNull(),
+                parameters.getReverse().get()).copy();
+        for (String pkg : parameters.getExcludedPackages().get()) {
+            mappingData.addExcludedPackage(pkg);
+        }
+        return mappingData;
+    }
+}
@@ -0,0 +1,83 @@
+package com.ecaree.jarremapper.task;
+
+import com.ecaree.jarremapper.mapping.MappingData;
+import com.ecaree.jarremapper.remap.AnnotationInjector;
+import com.ecaree.jarremapper.remap.JarRemapper;
+import com.ecaree.jarremapper.util.OutputCompression;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * remapJar 的 Worker 实现
+ */
+public abstract class RemapJarWork implements WorkAction<RemapJarWork.Parameters> {
+    private static final Logger LOGGER = Logging.getLogger(RemapJarWork.class);
+
+    public interface Parameters extends MappingWorkParameters {
+        RegularFileProperty getInputJar();
+
+        RegularFileProperty getOutputJar();
+
+        Property<Boolean> getReverse();
+
+        Property<Boolean> getInjectAnnotations();
+
+        Property<Boolean> getIncludeReadableInfo();
+
+        Property<String> getCompression();
+
+        Property<Integer> getCompressionLevel();
+
+        Property<Boolean> getIncremental();
+
+        Property<Integer> getTargetJavaVersion();
+    }
+
+    @Override
+    public void execute() {
+        try {
+            remapJar();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void remapJar() throws IOException {
+        Parameters parameters = getParameters();
+        File inputJar = parameters.getInputJar().get().getAsFile();
+        File outputJar = parameters.getOutputJar().get().getAsFile();
+
+        MappingData mappingData = WorkerSupport.loadMapping(parameters, parameters.getReverse().get());
+        if (!mappingData.getExcludedPackages().isEmpty()) {
+            LOGGER.lifecycle("Excluded packages: {}", mappingData.getExcludedPackages());
+        }
+        LOGGER.lifecycle("Loaded mappings: {} classes, {} fields, {} methods",
+                mappingData.getClassCount(),
+                mappingData.getFieldCount(),
+                mappingData.getMethodCount());
+
+        JarRemapper remapper = new JarRemapper(mappingData);
+        if (parameters.getInjectAnnotations().get()) {
+            boolean includeReadable = parameters.getIncludeReadableInfo().get();
+            LOGGER.lifecycle("Injecting annotations during remapping, include readable info: {}", includeReadable);
+            remapper.setAnnotationInjector(new AnnotationInjector(mappingData, includeReadable));
+        }
+        try (OutputCompression compression = new OutputCompression(
+                OutputCompression.Mode.parse(parameters.getCompression().get()), parameters.getCompressionLevel().get())) {
+            remapper.setCompression(compression);
+            remapper.setIncremental(parameters.getIncremental().get());
+            remapper.setTargetJavaVersion(parameters.getTargetJavaVersion().get());
+            remapper.remapJar(inputJar, outputJar);
+            LOGGER.lifecycle("Output compression: {}", compression.getSummary());
+        }
+
+        LOGGER.lifecycle("JAR remapping completed: {} ({} KB)", outputJar, outputJar.length() / 1024);
+    }
+}
@@ -0,0 +1,164 @@
+package com.ecaree.jarremapper.task;
+
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileType;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.CompileClasspath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SkipWhenEmpty;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.ChangeType;
+import org.gradle.work.FileChange;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 批量重映射多个 JAR，输出到 outputDir 下的同名文件
+ * 映射与继承关系只加载一次，继承关系覆盖所有输入 JAR，跨 JAR 的继承可正确解析
+ * 只有输入 JAR 变化时增量执行：变化的 JAR 重新重映射，其余 JAR 按增量索引判断是否受影响
+ */
+@CacheableTask
+public abstract class RemapJarsTask extends AbstractMappingTask {
+    @InputFiles
+    @SkipWhenEmpty
+    @Incremental
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getInputJars();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDir();
+
+    /**
+     * 只用于继承关系，按 ABI 指纹
+     */
+    @CompileClasspath
+    @Optional
+    public abstract ConfigurableFileCollection getLibraryJars();
+
+    @Input
+    public abstract Property<Boolean> getReverse();
+
+    @Input
+    public abstract Property<String> getCompression();
+
+    @Input
+    public abstract Property<Integer> getCompressionLevel();
+
+    @Input
+    public abstract Property<Integer> getTargetJavaVersion();
+
+    /**
+     * 同时重映射的 JAR 数
+     */
+    @Internal
+    public abstract Property<Integer> getParallelism();
+
+    @Internal
+    public abstract DirectoryProperty getHierarchyCacheDir();
+
+    public RemapJarsTask() {
+        getReverse().convention(false);
+        getCompression().convention("deflate");
+        getCompressionLevel().convention(6);
+        getTargetJavaVersion().convention(0);
+        getParallelism().convention(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TaskAction
+    public void remapJars(InputChanges inputChanges) {
+        File outputDir = getOutputDir().get().getAsFile();
+        Set<File> inputJars = new LinkedHashSet<>();
+        Map<String, File> byName = new HashMap<>();
+        for (File jar : getInputJars().getFiles()) {
+            if (!jar.isFile()) continue;
+            File previous = byName.put(jar.getName(), jar);
+            if (previous != null) {
+                throw new RuntimeException("Input JARs share the same file name: " + previous + ", " + jar);
+            }
+            inputJars.add(jar);
+        }
+
+        Set<File> changedJars = new LinkedHashSet<>();
+        if (inputChanges.isIncremental()) {
+            for (FileChange change : inputChanges.getFileChanges(getInputJars())) {
+                if (change.getFileType() == FileType.DIRECTORY) continue;
+                if (change.getChangeType() == ChangeType.REMOVED) {
+                    deleteOutput(new File(outputDir, change.getFile().getName()));
+                } else {
+                    changedJars.add(change.getFile());
+                }
+            }
+        } else {
+            changedJars.addAll(inputJars);
+            deleteStaleOutputs(outputDir, byName.keySet());
+        }
+
+        Set<File> unchangedJars = new LinkedHashSet<>(inputJars);
+        unchangedJars.removeAll(changedJars);
+
+        getLogger().lifecycle("Starting batch JAR remapping");
+        getLogger().lifecycle("Input JARs: {}, changed: {}", inputJars.size(), changedJars.size());
+        getLogger().lifecycle("Output: {}", outputDir);
+        getLogger().lifecycle("Mapping: {}", getEffectiveMappingFile());
+
+        createWorkQueue().submit(RemapJarsWork.class, parameters -> {
+            setMapping(parameters);
+            parameters.getInputJars().from(inputJars);
+            parameters.getChangedJars().from(changedJars);
+            parameters.getUnchangedJars().from(unchangedJars);
+            parameters.getOutputDir().set(outputDir);
+            parameters.getLibraryJars().from(getLibraryJars());
+            parameters.getHierarchyCacheDir().set(getHierarchyCacheDir());
+            parameters.getReverse().set(getReverse());
+            parameters.getCompression().set(getCompression());
+            parameters.getCompressionLevel().set(getCompressionLevel());
+            parameters.getTargetJavaVersion().set(getTargetJavaVersion());
+            parameters.getParallelism().set(getParallelism());
+        });
+    }
+
+    /**
+     * 删除不再对应输入 JAR 的输出及其增量索引
+     */
+    private void deleteStaleOutputs(File outputDir, Set<String> jarNames) {
+        File[] files = outputDir.listFiles();
+        if (files == null) return;
+        Set<String> keep = new HashSet<>();
+        for (String name : jarNames) {
+            keep.add(name);
+            keep.add(name + ".remap-index");
+        }
+        for (File file : files) {
+            if (file.isFile() && !keep.contains(file.getName())) {
+                deleteOutput(file);
+            }
+        }
+    }
+
+    private void deleteOutput(File outputJar) {
+        try {
+            Files.deleteIfExists(outputJar.toPath());
+            Files.deleteIfExists(new File(outputJar.getParentFile(), outputJar.getName() + ".remap-index").toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.ecaree.jarremapper.task;
+
+import com.ecaree.jarremapper.mapping.ClassHierarchyCache;
+import com.ecaree.jarremapper.mapping.MappingData;
+import com.ecaree.jarremapper.remap.JarRemapper;
+import com.ecaree.jarremapper.util.OutputCompression;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * remapJars 的 Worker 实现
+ * 映射与继承关系只加载一次，所有 JAR 共用
+ */
+public abstract class RemapJarsWork implements WorkAction<RemapJarsWork.Parameters> {
+    private static final Logger LOGGER = Logging.getLogger(RemapJarsWork.class);
+
+    public interface Parameters extends MappingWorkParameters {
+        /**
+         * 所有输入 JAR，用于构建继承关系
+         */
+        ConfigurableFileCollection getInputJars();
+
+        /**
+         * 新增或修改的 JAR，需要重映射
+         */
+        ConfigurableFileCollection getChangedJars();
+
+        /**
+         * 未变化的 JAR，映射查找结果变化时才重映射
+         */
+        ConfigurableFileCollection getUnchangedJars();
+
+        DirectoryProperty getOutputDir();
+
+        ConfigurableFileCollection getLibraryJars();
+
+        DirectoryProperty getHierarchyCacheDir();
+
+        Property<Boolean> getReverse();
+
+        Property<String> getCompression();
+
+        Property<Integer> getCompressionLevel();
+
+        Property<Integer> getTargetJavaVersion();
+
+        Property<Integer> getParallelism();
+    }
+
+    @Override
+    public void execute() {
+        try {
+            remapJars();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void remapJars() throws IOException {
+        Parameters parameters = getParameters();
+        File outputDir = parameters.getOutputDir().get().getAsFile();
+
+        MappingData mappingData = WorkerSupport.loadMapping(parameters, parameters.getReverse().get());
+        LOGGER.lifecycle("Loaded mappings: {} classes, {} fields, {} methods",
+                mappingData.getClassCount(),
+                mappingData.getFieldCount(),
+                mappingData.getMethodCount());
+
+        JarRemapper remapper = new JarRemapper(mappingData);
+        // 输出旁保存增量索引，用于判断未变化的 JAR 是否受其他 JAR 或映射变化影响
+        remapper.setIncremental(true);
+        remapper.setTargetJavaVersion(parameters.getTargetJavaVersion().get());
+        if (parameters.getHierarchyCacheDir().isPresent()) {
+            remapper.setHierarchyCache(new ClassHierarchyCache(parameters.getHierarchyCacheDir().get().getAsFile()));
+        }
+
+        try (OutputCompression compression = new OutputCompression(
+                OutputCompression.Mode.parse(parameters.getCompression().get()), parameters.getCompressionLevel().get())) {
+            remapper.setCompression(compression);
+            remapper.prepareHierarchy(parameters.getInputJars().getFiles(),
+                    parameters.getLibraryJars().getFiles().toArray(new File[0]));
+
+            Map<File, File> jars = new LinkedHashMap<>();
+            for (File jar : parameters.getChangedJars()) {
+                jars.put(jar, new File(outputDir, jar.getName()));
+            }
+            int upToDate = 0;
+            for (File jar : parameters.getUnchangedJars()) {
+                File outputJar = new File(outputDir, jar.getName());
+                if (remapper.isOutputCurrent(outputJar)) {
+                    upToDate++;
+                } else {
+                    jars.put(jar, outputJar);
+                }
+            }
+
+            remapper.remapJars(jars, parameters.getParallelism().get());
+            LOGGER.lifecycle("Remapped {} JARs, {} up-to-date", jars.size(), upToDate);
+            LOGGER.lifecycle("Output compression: {}", compression.getSummary());
+        }
+    }
+}
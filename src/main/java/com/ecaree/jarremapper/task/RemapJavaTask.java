@@ -1,61 +1,99 @@
 package com.ecaree.jarremapper.task;
 
-import com.ecaree.jarremapper.JarRemapperExtension;
-import com.ecaree.jarremapper.mapping.MappingData;
-import com.ecaree.jarremapper.mapping.MappingHelper;
-import com.ecaree.jarremapper.remap.JavaRemapper;
-import lombok.Getter;
-import lombok.Setter;
-import org.gradle.api.DefaultTask;
-import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.CompileClasspath;
 import org.gradle.api.tasks.InputDirectory;
 import org.gradle.api.tasks.InputFile;
-import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-public class RemapJavaTask extends DefaultTask {
+@CacheableTask
+public abstract class RemapJavaTask extends AbstractMappingTask {
     @Internal
-    @Getter
-    @Setter
-    private JarRemapperExtension extension;
+    public abstract DirectoryProperty getInputDir();
+
+    /**
+     * 混淆 JAR，用于构建类继承关系
+     */
+    @Internal
+    public abstract RegularFileProperty getInputJar();
+
+    /**
+     * 重映射后的 JAR，存在时自动加入类型解析
+     */
+    @Internal
+    public abstract RegularFileProperty getRemappedJar();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDir();
+
+    /**
+     * 只用于类型解析与继承关系，按 ABI 指纹
+     */
+    @CompileClasspath
+    @Optional
+    public abstract ConfigurableFileCollection getLibraryJars();
+
+    @Internal
+    public abstract Property<Boolean> getMemoryBounded();
+
+    @Internal
+    public abstract Property<Integer> getTypeSolverCacheSize();
+
+    @Internal
+    public abstract Property<Integer> getHeapWatermark();
+
+    @Internal
+    public abstract Property<Integer> getParallelism();
+
+    public RemapJavaTask() {
+        getMemoryBounded().convention(false);
+        getTypeSolverCacheSize().convention(500);
+        getHeapWatermark().convention(80);
+        getParallelism().convention(1);
+    }
 
     @InputDirectory
     @Optional
-    public File getInputDir() {
-        File dir = extension.getJavaInputDir().get().getAsFile();
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public File getExistingInputDir() {
+        File dir = getInputDir().get().getAsFile();
         return dir.exists() ? dir : null;
     }
 
     @InputFile
     @Optional
-    public File getMappingFile() {
-        return extension.getEffectiveMappingFile();
-    }
-
-    @OutputDirectory
-    public File getOutputDir() {
-        return extension.getJavaOutputDir().get().getAsFile();
+    @PathSensitive(PathSensitivity.NONE)
+    public File getExistingInputJar() {
+        return existingFile(getInputJar());
     }
 
-    @InputFiles
+    /**
+     * 自动加入类型解析的重映射后 JAR
+     */
+    @CompileClasspath
     @Optional
-    public FileCollection getLibraryJars() {
-        return extension.getJavaLibraryJars();
+    public File getTypeResolutionJar() {
+        return existingFile(getRemappedJar());
     }
 
     @TaskAction
-    public void remapJava() throws IOException {
-        File inputDir = extension.getJavaInputDir().get().getAsFile();
-        File outputDir = getOutputDir();
-        FileCollection libraryJars = getLibraryJars();
+    public void remapJava() {
+        File inputDir = getInputDir().get().getAsFile();
+        File outputDir = getOutputDir().get().getAsFile();
+        ConfigurableFileCollection libraryJars = getLibraryJars();
 
         if (!inputDir.exists()) {
             getLogger().warn("Java input directory does not exist: {}, skipping remapping", inputDir);
@@ -65,41 +103,42 @@ public class RemapJavaTask extends DefaultTask {
         getLogger().lifecycle("Starting Java source remapping");
         getLogger().lifecycle("Input: {}", inputDir);
         getLogger().lifecycle("Output: {}", outputDir);
-        getLogger().lifecycle("Mapping: {}", extension.getEffectiveMappingFile());
+        getLogger().lifecycle("Mapping: {}", getEffectiveMappingFile());
 
         List<File> jarList = new ArrayList<>();
 
         // 1. 自动添加 outputJar，重映射后的 JAR 包含类型信息
-        File outputJar = extension.getOutputJar().get().getAsFile();
-        if (outputJar.exists()) {
+        File outputJar = getTypeResolutionJar();
+        if (outputJar != null) {
             jarList.add(outputJar);
             getLogger().lifecycle("Auto added output JAR for type resolution: {}", outputJar);
         }
 
         // 2. 用户配置的额外库 JAR
-        if (libraryJars != null) {
-            for (File jar : libraryJars) {
-                if (jar.exists() && !jar.equals(outputJar)) {
-                    jarList.add(jar);
-                    getLogger().lifecycle("Library JAR: {}", jar);
-                }
+        for (File jar : libraryJars) {
+            if (jar.exists() && !jar.equals(outputJar)) {
+                jarList.add(jar);
+                getLogger().lifecycle("Library JAR: {}", jar);
             }
         }
 
-        MappingData mappingData = MappingHelper.loadFromExtension(extension);
-
-        if (!mappingData.getExcludedPackages().isEmpty()) {
-            getLogger().lifecycle("Excluded packages: {}", mappingData.getExcludedPackages());
+        // 继承关系需使用混淆命名空间的类，因此使用 inputJar 而非 outputJar
+        List<File> hierarchyJars = new ArrayList<>();
+        if (getExistingInputJar() != null) {
+            hierarchyJars.add(getExistingInputJar());
         }
-
-        getLogger().lifecycle("Loaded mappings: {} classes, {} fields, {} methods",
-                mappingData.getClassCount(),
-                mappingData.getFieldCount(),
-                mappingData.getMethodCount());
-
-        JavaRemapper remapper = new JavaRemapper(mappingData, jarList);
-        int processedCount = remapper.remapJavaSource(inputDir, outputDir);
-
-        getLogger().lifecycle("Java source remapping completed: {} files", processedCount);
+        hierarchyJars.addAll(libraryJars.getFiles());
+
+        createWorkQueue().submit(RemapJavaWork.class, parameters -> {
+            setMapping(parameters);
+            parameters.getInputDir().set(inputDir);
+            parameters.getOutputDir().set(outputDir);
+            parameters.getTypeResolutionJars().from(jarList);
+            parameters.getHierarchyJars().from(hierarchyJars);
+            parameters.getMemoryBounded().set(getMemoryBounded());
+            parameters.getTypeSolverCacheSize().set(getTypeSolverCacheSize());
+            parameters.getHeapWatermark().set(getHeapWatermark());
+            parameters.getParallelism().set(getParallelism());
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,93 @@
+package com.ecaree.jarremapper.task;
+
+import com.ecaree.jarremapper.mapping.MappingData;
+import com.ecaree.jarremapper.mapping.MappingHelper;
+import com.ecaree.jarremapper.remap.JavaRemapper;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+
+/**
+ * remapJava 的 Worker 实现
+ * JavaParser 的 AST 与类型解析缓存只存在于 Worker 中
+ */
+public abstract class RemapJavaWork implements WorkAction<RemapJavaWork.Parameters> {
+    private static final Logger LOGGER = Logging.getLogger(RemapJavaWork.class);
+
+    public interface Parameters extends MappingWorkParameters {
+        DirectoryProperty getInputDir();
+
+        DirectoryProperty getOutputDir();
+
+        /**
+         * 用于类型解析的 JAR，按顺序使用
+         */
+        ConfigurableFileCollection getTypeResolutionJars();
+
+        /**
+         * 用于构建类继承关系的混淆命名 JAR
+         */
+        ConfigurableFileCollection getHierarchyJars();
+
+        Property<Boolean> getMemoryBounded();
+
+        Property<Integer> getTypeSolverCacheSize();
+
+        /**
+         * 堆占用水位百分比
+         */
+        Property<Integer> getHeapWatermark();
+
+        Property<Integer> getParallelism();
+    }
+
+    @Override
+    public void execute() {
+        try {
+            remapJava();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void remapJava() throws IOException {
+        Parameters parameters = getParameters();
+
+        MappingData mappingData = WorkerSupport.loadMapping(parameters, false);
+        if (!mappingData.getExcludedPackages().isEmpty()) {
+            LOGGER.lifecycle("Excluded packages: {}", mappingData.getExcludedPackages());
+        }
+        LOGGER.lifecycle("Loaded mappings: {} classes, {} fields, {} methods",
+                mappingData.getClassCount(),
+                mappingData.getFieldCount(),
+                mappingData.getMethodCount());
+
+        MappingHelper.attachClassHierarchy(mappingData, new ArrayList<>(parameters.getHierarchyJars().getFiles()));
+        if (mappingData.getClassHierarchy() != null) {
+            LOGGER.lifecycle("Loaded class hierarchy: {} classes", mappingData.getClassHierarchy().size());
+        }
+
+        JavaRemapper remapper = new JavaRemapper(mappingData, new ArrayList<>(parameters.getTypeResolutionJars().getFiles()));
+        remapper.setParallelism(parameters.getParallelism().get());
+        if (parameters.getMemoryBounded().get()) {
+            remapper.setMemoryBounded(true);
+            remapper.setTypeSolverCacheSize(parameters.getTypeSolverCacheSize().get());
+            remapper.setHeapWatermark(parameters.getHeapWatermark().get() / 100.0);
+            LOGGER.lifecycle("Memory bounded mode enabled");
+        }
+        int processedCount = remapper.remapJavaSource(parameters.getInputDir().get().getAsFile(),
+                parameters.getOutputDir().get().getAsFile());
+
+        LOGGER.lifecycle("Java source remapping completed: {} files", processedCount);
+        if (remapper.getSkippedCount() > 0) {
+            LOGGER.lifecycle("Copied {} files without mapped identifiers as-is", remapper.getSkippedCount());
+        }
+    }
+}
@@ -1,50 +1,52 @@
 package com.ecaree.jarremapper.task;
 
-import com.ecaree.jarremapper.JarRemapperExtension;
-import com.ecaree.jarremapper.mapping.MappingData;
-import com.ecaree.jarremapper.mapping.MappingHelper;
-import com.ecaree.jarremapper.remap.SmaliRemapper;
-import lombok.Getter;
-import lombok.Setter;
-import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.InputDirectory;
 import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 
 import java.io.File;
-import java.io.IOException;
 
-public class RemapSmaliTask extends DefaultTask {
+@CacheableTask
+public abstract class RemapSmaliTask extends AbstractMappingTask {
     @Internal
-    @Getter
-    @Setter
-    private JarRemapperExtension extension;
+    public abstract DirectoryProperty getInputDir();
+
+    /**
+     * 混淆 JAR，用于构建类继承关系
+     */
+    @Internal
+    public abstract RegularFileProperty getInputJar();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDir();
 
     @InputDirectory
     @Optional
-    public File getInputDir() {
-        File dir = extension.getSmaliInputDir().get().getAsFile();
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public File getExistingInputDir() {
+        File dir = getInputDir().get().getAsFile();
         return dir.exists() ? dir : null;
     }
 
     @InputFile
     @Optional
-    public File getMappingFile() {
-        return extension.getEffectiveMappingFile();
-    }
-
-    @OutputDirectory
-    public File getOutputDir() {
-        return extension.getSmaliOutputDir().get().getAsFile();
+    @PathSensitive(PathSensitivity.NONE)
+    public File getExistingInputJar() {
+        return existingFile(getInputJar());
     }
 
     @TaskAction
-    public void remapSmali() throws IOException {
-        File inputDir = extension.getSmaliInputDir().get().getAsFile();
-        File outputDir = getOutputDir();
+    public void remapSmali() {
+        File inputDir = getInputDir().get().getAsFile();
+        File outputDir = getOutputDir().get().getAsFile();
 
         if (!inputDir.exists()) {
             getLogger().warn("Smali input directory does not exist: {}, skipping remapping", inputDir);
@@ -54,19 +56,16 @@ public class RemapSmaliTask extends DefaultTask {
         getLogger().lifecycle("Starting smali remapping");
         getLogger().lifecycle("Input: {}", inputDir);
         getLogger().lifecycle("Output: {}", outputDir);
-        getLogger().lifecycle("Mapping: {}", extension.getEffectiveMappingFile());
-
-        MappingData mappingData = MappingHelper.loadFromExtension(extension);
-
-        if (!mappingData.getExcludedPackages().isEmpty()) {
-            getLogger().lifecycle("Excluded packages: {}", mappingData.getExcludedPackages());
-        }
-
-        getLogger().lifecycle("Loaded mappings: {} classes", mappingData.getClassCount());
-
-        SmaliRemapper remapper = new SmaliRemapper(mappingData);
-        remapper.remapSmali(inputDir, outputDir);
+        getLogger().lifecycle("Mapping: {}", getEffectiveMappingFile());
 
-        getLogger().lifecycle("Smali remapping completed: {}", outputDir);
+        File inputJar = getExistingInputJar();
+        createWorkQueue().submit(RemapSmaliWork.class, parameters -> {
+            setMapping(parameters);
+            parameters.getInputDir().set(inputDir);
+            parameters.getOutputDir().set(outputDir);
+            if (inputJar != null) {
+                parameters.getInputJar().set(inputJar);
+            }
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,64 @@
+package com.ecaree.jarremapper.task;
+
+import com.ecaree.jarremapper.mapping.MappingData;
+import com.ecaree.jarremapper.mapping.MappingHelper;
+import com.ecaree.jarremapper.remap.SmaliRemapper;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.workers.WorkAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+
+/**
+ * remapSmali 的 Worker 实现
+ */
+public abstract class RemapSmaliWork implements WorkAction<RemapSmaliWork.Parameters> {
+    private static final Logger LOGGER = Logging.getLogger(RemapSmaliWork.class);
+
+    public interface Parameters extends MappingWorkParameters {
+        DirectoryProperty getInputDir();
+
+        DirectoryProperty getOutputDir();
+
+        /**
+         * 混淆 JAR，用于构建类继承关系
+         */
+        RegularFileProperty getInputJar();
+    }
+
+    @Override
+    public void execute() {
+        try {
+            remapSmali();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void remapSmali() throws IOException {
+        Parameters parameters = getParameters();
+        File outputDir = parameters.getOutputDir().get().getAsFile();
+
+        MappingData mappingData = WorkerSupport.loadMapping(parameters, false);
+        if (!mappingData.getExcludedPackages().isEmpty()) {
+            LOGGER.lifecycle("Excluded packages: {}", mappingData.getExcludedPackages());
+        }
+        LOGGER.lifecycle("Loaded mappings: {} classes", mappingData.getClassCount());
+
+        File inputJar = parameters.getInputJar().isPresent() ? parameters.getInputJar().get().getAsFile() : null;
+        MappingHelper.attachClassHierarchy(mappingData, Collections.singletonList(inputJar));
+        if (mappingData.getClassHierarchy() != null) {
+            LOGGER.lifecycle("Loaded class hierarchy: {} classes", mappingData.getClassHierarchy().size());
+        }
+
+        SmaliRemapper remapper = new SmaliRemapper(mappingData);
+        remapper.remapSmali(parameters.getInputDir().get().getAsFile(), outputDir);
+
+        LOGGER.lifecycle("Smali remapping completed: {}", outputDir);
+    }
+}
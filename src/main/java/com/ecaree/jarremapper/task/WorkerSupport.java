@@ -0,0 +1,84 @@
+package com.ecaree.jarremapper.task;
+
+import com.ecaree.jarremapper.mapping.MappingData;
+import com.ecaree.jarremapper.mapping.MappingHelper;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 重映射任务提交 Worker 的公共逻辑
+ */
+final class WorkerSupport {
+    private WorkerSupport() {
+    }
+
+    /**
+     * Worker 隔离方式，对应 workerIsolation 的取值
+     */
+    enum Isolation {
+        NONE, CLASSLOADER, PROCESS;
+
+        static Isolation parse(String isolation) {
+            switch (isolation.trim().toLowerCase(Locale.ROOT)) {
+                case "none":
+                    return NONE;
+                case "classloader":
+                    return CLASSLOADER;
+                case "process":
+                    return PROCESS;
+                default:
+                    throw new IllegalArgumentException("Unknown worker isolation: " + isolation
+                            + ", expected one of none, classloader, process");
+            }
+        }
+
+        /**
+         * 构建服务与共享的映射数据只能在守护进程的同一类加载器中传递
+         */
+        boolean sharesDaemonClassLoader() {
+            return this == NONE;
+        }
+    }
+
+    /**
+     * 按配置的隔离方式创建 WorkQueue
+     */
+    static WorkQueue createQueue(WorkerExecutor executor, String isolation, String maxHeapSize) {
+        switch (Isolation.parse(isolation)) {
+            case CLASSLOADER:
+                return executor.classLoaderIsolation();
+            case PROCESS:
+                return executor.processIsolation(spec -> {
+                    if (maxHeapSize != null) {
+                        spec.getForkOptions().setMaxHeapSize(maxHeapSize);
+                    }
+                });
+            default:
+                return executor.noIsolation();
+        }
+    }
+
+    static void setMapping(MappingWorkParameters parameters, File mappingFile, String sourceNs, String targetNs,
+                           List<String> excludedPackages) {
+        if (mappingFile != null) {
+            parameters.getMappingFile().set(mappingFile);
+        }
+        parameters.getSourceNamespace().set(sourceNs);
+        parameters.getTargetNamespace().set(targetNs);
+        parameters.getExcludedPackages().set(excludedPackages);
+    }
+
+    static MappingData loadMapping(MappingWorkParameters parameters, boolean reverse) throws IOException {
+        return MappingHelper.load(
+                parameters.getMappingFile().isPresent() ? parameters.getMappingFile().get().getAsFile() : null,
+                parameters.getSourceNamespace().getOrNull(),
+                parameters.getTargetNamespace().getOrNull(),
+                reverse,
+                parameters.getExcludedPackages().get());
+    }
+}
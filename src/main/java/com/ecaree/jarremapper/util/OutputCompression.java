@@ -0,0 +1,227 @@
+package com.ecaree.jarremapper.util;
+
+import lombok.Getter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 输出 JAR 的压缩方式
+ * 只作用于重新生成的条目，原样复制的条目保持源 JAR 的压缩方式
+ * 同时统计压缩耗时与压缩前后大小，用于在任务日志中比较不同配置
+ */
+public class OutputCompression implements Closeable {
+    /**
+     * 块压缩的块大小，小于两个块的条目直接整体压缩
+     */
+    static final int BLOCK_SIZE = 128 * 1024;
+
+    /**
+     * deflate 的最大回溯距离，块之间以前一块末尾的这部分数据作为字典
+     */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    @Getter
+    private final Mode mode;
+    @Getter
+    private final int level;
+
+    private final AtomicLong entryCount = new AtomicLong();
+    private final AtomicLong inputBytes = new AtomicLong();
+    private final AtomicLong outputBytes = new AtomicLong();
+    private final AtomicLong compressNanos = new AtomicLong();
+
+    private ExecutorService blockExecutor;
+
+    public OutputCompression(Mode mode, int level) {
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.mode = mode;
+        this.level = level;
+    }
+
+    /**
+     * 默认配置，与 ZipOutputStream 一致
+     */
+    public static OutputCompression defaults() {
+        return new OutputCompression(Mode.DEFLATE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * 压缩替换后的条目数据，保留源条目的修改时间，可在任意线程调用
+     *
+     * @param name 输出条目名称，可与源条目不同
+     */
+    public ZipWriter.Entry compress(ZipReader.Entry source, String name, byte[] data) throws IOException {
+        return compressWithDosTime(name, data, source.getDosTime());
+    }
+
+    /**
+     * 压缩新生成的条目数据，可在任意线程调用
+     *
+     * @param time 修改时间（毫秒），-1 表示未知
+     */
+    public ZipWriter.Entry compress(String name, byte[] data, long time) throws IOException {
+        return compressWithDosTime(name, data, ZipWriter.toDosTime(time));
+    }
+
+    private ZipWriter.Entry compressWithDosTime(String name, byte[] data, long dosTime) throws IOException {
+        long start = System.nanoTime();
+        ZipWriter.Entry entry;
+        switch (mode) {
+            case STORE:
+                entry = ZipWriter.store(name, data, dosTime);
+                break;
+            case PARALLEL:
+                entry = data.length >= BLOCK_SIZE * 2
+                        ? deflateBlocks(name, data, dosTime)
+                        : ZipWriter.compress(name, data, level, dosTime);
+                break;
+            default:
+                entry = ZipWriter.compress(name, data, level, dosTime);
+                break;
+        }
+        compressNanos.addAndGet(System.nanoTime() - start);
+        entryCount.incrementAndGet();
+        inputBytes.addAndGet(data.length);
+        outputBytes.addAndGet(entry.getCompressedSize());
+        return entry;
+    }
+
+    /**
+     * 将条目拆分为固定大小的块并行压缩后拼接
+     * 除最后一块外都以 SYNC_FLUSH 结束，结果是一个完整的 deflate 流
+     */
+    private ZipWriter.Entry deflateBlocks(String name, byte[] data, long dosTime) throws IOException {
+        int blockCount = (data.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        List<Future<byte[]>> blocks = new ArrayList<>(blockCount);
+        ExecutorService executor = getBlockExecutor();
+        for (int i = 0; i < blockCount; i++) {
+            int offset = i * BLOCK_SIZE;
+            int length = Math.min(BLOCK_SIZE, data.length - offset);
+            boolean last = i == blockCount - 1;
+            blocks.add(executor.submit(() -> deflateBlock(data, offset, length, last)));
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 2);
+        try {
+            for (Future<byte[]> block : blocks) {
+                bos.write(block.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Block compression interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Block compression failed for " + name, e.getCause());
+        }
+
+        byte[] compressed = bos.toByteArray();
+        if (compressed.length >= data.length) {
+            return ZipWriter.store(name, data, dosTime);
+        }
+        return ZipWriter.deflated(name, crc.getValue(), data.length, compressed, dosTime);
+    }
+
+    private byte[] deflateBlock(byte[] data, int offset, int length, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (offset > 0) {
+                int dictionaryLength = Math.min(DICTIONARY_SIZE, offset);
+                deflater.setDictionary(data, offset - dictionaryLength, dictionaryLength);
+            }
+            deflater.setInput(data, offset, length);
+
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(length / 2);
+            byte[] buffer = new byte[8192];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buffer);
+                    bos.write(buffer, 0, n);
+                }
+            } else {
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    bos.write(buffer, 0, n);
+                } while (n == buffer.length);
+            }
+            return bos.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private synchronized ExecutorService getBlockExecutor() {
+        if (blockExecutor == null) {
+            blockExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                Thread thread = new Thread(r, "jar-remapper-deflate");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return blockExecutor;
+    }
+
+    /**
+     * 压缩统计摘要，用于任务日志
+     */
+    public String getSummary() {
+        long in = inputBytes.get();
+        long out = outputBytes.get();
+        return String.format(Locale.ROOT, "%s%s: %d entries, %d KB -> %d KB (%.1f%%), %d ms compressing",
+                mode.name().toLowerCase(Locale.ROOT),
+                mode == Mode.STORE ? "" : " level " + (level == Deflater.DEFAULT_COMPRESSION ? 6 : level),
+                entryCount.get(), in / 1024, out / 1024,
+                in == 0 ? 100.0 : out * 100.0 / in,
+                compressNanos.get() / 1_000_000);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (blockExecutor != null) {
+            blockExecutor.shutdownNow();
+            blockExecutor = null;
+        }
+    }
+
+    public enum Mode {
+        /**
+         * 每个条目整体 deflate 压缩
+         */
+        DEFLATE,
+        /**
+         * 不压缩，写入最快，输出最大
+         */
+        STORE,
+        /**
+         * 大条目拆分为块并行 deflate 压缩，压缩率略低于 DEFLATE
+         */
+        PARALLEL;
+
+        public static Mode parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown JAR compression mode: " + value
+                        + ", expected one of deflate, store, parallel");
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.ecaree.jarremapper.util;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * ZIP 读取器
+ * 直接解析中央目录，可以按原样读取条目的压缩数据，配合 ZipWriter 实现无需解压再压缩的复制
+ * 文件以只读方式整体映射到内存，STORED 条目可零拷贝访问，DEFLATED 条目直接从映射区域解压
+ * 超过 2GB 的文件无法整体映射，退回 FileChannel 定位读取
+ * 映射区域由 GC 释放，不强制解除映射，close() 后仍被引用的视图可以安全访问
+ * Windows 上映射会锁定文件直到被 GC 回收，导致原地替换失败，因此默认不映射
+ * 多个线程可同时读取不同条目
+ */
+public class ZipReader implements Closeable {
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+    private static final int EOCD_MIN_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private static final int INFLATE_CHUNK_SIZE = 64 * 1024;
+
+    private static final boolean MAP_BY_DEFAULT = !System.getProperty("os.name", "")
+            .toLowerCase(Locale.ROOT).startsWith("windows");
+
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final List<Entry> entries;
+
+    public ZipReader(File file) throws IOException {
+        this(file, MAP_BY_DEFAULT);
+    }
+
+    /**
+     * @param memoryMapped 是否整体映射文件，为 false 或文件超过 2GB 时使用 FileChannel 定位读取
+     */
+    public ZipReader(File file, boolean memoryMapped) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            this.mapped = memoryMapped && size <= Integer.MAX_VALUE
+                    ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : null;
+            this.entries = Collections.unmodifiableList(readCentralDirectory());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 按中央目录顺序返回所有条目
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * 获取条目原始数据的只读视图，不解压
+     * 映射模式下不复制数据，返回的缓冲区持有映射区域，直到缓冲区本身不再被引用
+     */
+    public ByteBuffer rawBuffer(Entry entry) throws IOException {
+        ByteBuffer header = read(entry.localHeaderOffset, 30);
+        if (header.getInt(0) != LOCAL_SIGNATURE) {
+            throw new ZipException("Invalid local header for " + entry.name);
+        }
+        long dataOffset = entry.localHeaderOffset + 30
+                + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+        return read(dataOffset, toIntSize(entry.compressedSize, entry.name)).asReadOnlyBuffer();
+    }
+
+    /**
+     * 读取并解压条目数据，校验 CRC
+     */
+    public byte[] readData(Entry entry) throws IOException {
+        byte[] data = inflate(entry);
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        if (crc.getValue() != entry.crc) {
+            throw new ZipException(String.format("CRC mismatch for %s: expected %08x, got %08x",
+                    entry.name, entry.crc, crc.getValue()));
+        }
+        return data;
+    }
+
+    private byte[] inflate(Entry entry) throws IOException {
+        ByteBuffer raw = rawBuffer(entry);
+        byte[] data = new byte[toIntSize(entry.size, entry.name)];
+
+        if (entry.method == ZipWriter.METHOD_STORED) {
+            if (raw.remaining() != data.length) {
+                throw new ZipException("Size mismatch for stored entry " + entry.name);
+            }
+            raw.get(data);
+            return data;
+        }
+        if (entry.method != ZipWriter.METHOD_DEFLATED) {
+            throw new ZipException("Unsupported compression method " + entry.method + " for " + entry.name);
+        }
+
+        // Java 8 的 Inflater 只接受数组输入，按块从映射区域取数据，不复制整个压缩数据
+        byte[] chunk = new byte[Math.min(raw.remaining(), INFLATE_CHUNK_SIZE)];
+        Inflater inflater = new Inflater(true);
+        try {
+            int offset = 0;
+            while (offset < data.length) {
+                if (inflater.needsInput()) {
+                    if (!raw.hasRemaining()) {
+                        throw new ZipException("Truncated deflate data for " + entry.name);
+                    }
+                    int n = Math.min(raw.remaining(), chunk.length);
+                    raw.get(chunk, 0, n);
+                    inflater.setInput(chunk, 0, n);
+                }
+                int n = inflater.inflate(data, offset, data.length - offset);
+                if (n == 0 && (inflater.finished() || inflater.needsDictionary())) {
+                    throw new ZipException("Truncated deflate data for " + entry.name);
+                }
+                offset += n;
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException("Invalid deflate data for " + entry.name + ": " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+        return data;
+    }
+
+    /**
+     * 关闭文件
+     * 映射区域不强制释放，已返回的 rawBuffer 视图在 close() 后仍可访问，映射随最后一个视图被 GC 回收
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private List<Entry> readCentralDirectory() throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < EOCD_MIN_SIZE) {
+            throw new ZipException("Not a ZIP file");
+        }
+
+        int tailSize = (int) Math.min(fileSize, EOCD_MIN_SIZE + MAX_COMMENT_SIZE);
+        long tailStart = fileSize - tailSize;
+        ByteBuffer tail = read(tailStart, tailSize);
+
+        int eocd = -1;
+        for (int i = tailSize - EOCD_MIN_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == EOCD_SIGNATURE) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) {
+            throw new ZipException("End of central directory not found");
+        }
+
+        long count = tail.getShort(eocd + 10) & 0xFFFF;
+        long centralSize = tail.getInt(eocd + 12) & 0xFFFFFFFFL;
+        long centralOffset = tail.getInt(eocd + 16) & 0xFFFFFFFFL;
+
+        long locatorOffset = tailStart + eocd - 20;
+        if (locatorOffset >= 0) {
+            ByteBuffer locator = read(locatorOffset, 20);
+            if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+                ByteBuffer zip64 = read(locator.getLong(8), 56);
+                if (zip64.getInt(0) != ZIP64_EOCD_SIGNATURE) {
+                    throw new ZipException("Invalid ZIP64 end of central directory");
+                }
+                count = zip64.getLong(32);
+                centralSize = zip64.getLong(40);
+                centralOffset = zip64.getLong(48);
+            }
+        }
+
+        ByteBuffer central = read(centralOffset, toIntSize(centralSize, "central directory"));
+        List<Entry> result = new ArrayList<>((int) Math.min(count, 1 << 16));
+        int pos = 0;
+        for (long i = 0; i < count; i++) {
+            if (central.getInt(pos) != CENTRAL_SIGNATURE) {
+                throw new ZipException("Invalid central directory entry at " + (centralOffset + pos));
+            }
+            int flags = central.getShort(pos + 8) & 0xFFFF;
+            int method = central.getShort(pos + 10) & 0xFFFF;
+            long dosTime = central.getInt(pos + 12) & 0xFFFFFFFFL;
+            long crc = central.getInt(pos + 16) & 0xFFFFFFFFL;
+            long compressedSize = central.getInt(pos + 20) & 0xFFFFFFFFL;
+            long size = central.getInt(pos + 24) & 0xFFFFFFFFL;
+            int nameLength = central.getShort(pos + 28) & 0xFFFF;
+            int extraLength = central.getShort(pos + 30) & 0xFFFF;
+            int commentLength = central.getShort(pos + 32) & 0xFFFF;
+            long localOffset = central.getInt(pos + 42) & 0xFFFFFFFFL;
+
+            byte[] nameBytes = new byte[nameLength];
+            ((Buffer) central).position(pos + 46);
+            central.get(nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            // ZIP64 扩展字段按 size、compressedSize、offset 的顺序只包含被置为 0xFFFFFFFF 的值
+            int extra = pos + 46 + nameLength;
+            int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                int id = central.getShort(extra) & 0xFFFF;
+                int length = central.getShort(extra + 2) & 0xFFFF;
+                if (id == 0x0001) {
+                    int field = extra + 4;
+                    if (size == 0xFFFFFFFFL) {
+                        size = central.getLong(field);
+                        field += 8;
+                    }
+                    if (compressedSize == 0xFFFFFFFFL) {
+                        compressedSize = central.getLong(field);
+                        field += 8;
+                    }
+                    if (localOffset == 0xFFFFFFFFL) {
+                        localOffset = central.getLong(field);
+                    }
+                }
+                extra += 4 + length;
+            }
+
+            if ((flags & 1) != 0) {
+                throw new ZipException("Encrypted entries are not supported: " + name);
+            }
+
+            result.add(new Entry(name, method, crc, size, compressedSize, dosTime, localOffset));
+            pos += 46 + nameLength + extraLength + commentLength;
+        }
+        return result;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        if (mapped != null) {
+            if (position < 0 || position + length > mapped.capacity()) {
+                throw new EOFException("Unexpected end of ZIP file");
+            }
+            // duplicate 后各线程拥有独立的位置，可并发读取
+            ByteBuffer view = mapped.duplicate();
+            // 转为 Buffer 调用，避免高版本 JDK 编译出 Java 8 不存在的协变方法
+            ((Buffer) view).position((int) position);
+            ((Buffer) view).limit((int) position + length);
+            return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) {
+                throw new EOFException("Unexpected end of ZIP file");
+            }
+        }
+        ((Buffer) buffer).clear();
+        return buffer;
+    }
+
+    private static int toIntSize(long size, String name) throws ZipException {
+        if (size < 0 || size > Integer.MAX_VALUE - 8) {
+            throw new ZipException("Entry too large: " + name);
+        }
+        return (int) size;
+    }
+
+    /**
+     * 中央目录中的条目
+     */
+    public static final class Entry {
+        private final String name;
+        private final int method;
+        private final long crc;
+        private final long size;
+        private final long compressedSize;
+        private final long dosTime;
+        private final long localHeaderOffset;
+
+        private Entry(String name, int method, long crc, long size, long compressedSize,
+                      long dosTime, long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = compressedSize;
+            this.dosTime = dosTime;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        public int getMethod() {
+            return method;
+        }
+
+        public long getCrc() {
+            return crc;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        /**
+         * MS-DOS 格式的修改时间
+         */
+        public long getDosTime() {
+            return dosTime;
+        }
+    }
+}
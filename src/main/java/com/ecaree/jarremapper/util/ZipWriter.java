@@ -0,0 +1,336 @@
+package com.ecaree.jarremapper.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+/**
+ * ZIP 写入器
+ * 与 ZipOutputStream 不同，条目在写入前已完成压缩并算好 CRC，
+ * 因此压缩可以在多个线程上并行进行，写入器只负责按顺序拼接字节
+ * 超出 ZIP 限制时写入 ZIP64 目录结尾记录
+ */
+public class ZipWriter implements Closeable {
+    static final int METHOD_STORED = 0;
+    static final int METHOD_DEFLATED = 8;
+    private static final int FLAG_UTF8 = 1 << 11;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+    private final OutputStream out;
+    private final List<CentralEntry> centralEntries = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+    private final byte[] copyBuffer = new byte[64 * 1024];
+    private long offset;
+    private boolean closed;
+
+    public ZipWriter(OutputStream out) {
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+    }
+
+    /**
+     * 压缩条目数据，可在任意线程调用
+     * 压缩后不小于原数据时改为 STORED
+     *
+     * @param time 修改时间（毫秒），-1 表示未知
+     */
+    public static Entry deflate(String name, byte[] data, long time, int level) {
+        return compress(name, data, level, toDosTime(time));
+    }
+
+    static Entry compress(String name, byte[] data, int level, long dosTime) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                bos.write(buffer, 0, n);
+            }
+            byte[] compressed = bos.toByteArray();
+            if (compressed.length >= data.length) {
+                return new Entry(name, METHOD_STORED, crc.getValue(), data.length, ByteBuffer.wrap(data), dosTime);
+            }
+            return deflated(name, crc.getValue(), data.length, compressed, dosTime);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static Entry deflated(String name, long crc, long size, byte[] compressed, long dosTime) {
+        return new Entry(name, METHOD_DEFLATED, crc, size, ByteBuffer.wrap(compressed), dosTime);
+    }
+
+    /**
+     * 创建不压缩的条目，可在任意线程调用
+     */
+    public static Entry stored(String name, byte[] data, long time) {
+        return store(name, data, toDosTime(time));
+    }
+
+    static Entry store(String name, byte[] data, long dosTime) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return new Entry(name, METHOD_STORED, crc.getValue(), data.length, ByteBuffer.wrap(data), dosTime);
+    }
+
+    /**
+     * 创建目录条目
+     */
+    public static Entry directory(String name, long time) {
+        return new Entry(name.endsWith("/") ? name : name + "/", METHOD_STORED, 0, 0, ByteBuffer.allocate(0), toDosTime(time));
+    }
+
+    /**
+     * 使用 ZipReader 读出的原始数据创建条目，保留压缩方式、CRC 与修改时间，不重新压缩
+     * 数据可以是 ZipReader 映射区域的视图，视图持有映射，ZipReader 关闭后仍可写入
+     *
+     * @param source  源条目
+     * @param rawData ZipReader.rawBuffer 返回的数据
+     */
+    public static Entry raw(ZipReader.Entry source, ByteBuffer rawData) {
+        return new Entry(source.getName(), source.getMethod(), source.getCrc(), source.getSize(), rawData,
+                source.getDosTime());
+    }
+
+    /**
+     * 按调用顺序写入条目
+     */
+    public void write(Entry entry) throws IOException {
+        if (closed) {
+            throw new IOException("ZipWriter is closed");
+        }
+        long compressedSize = entry.data.remaining();
+        if (entry.size >= ZIP64_MAGIC || compressedSize >= ZIP64_MAGIC) {
+            throw new IOException("Entry too large: " + entry.name);
+        }
+        if (!names.add(entry.name)) {
+            throw new ZipException("duplicate entry: " + entry.name);
+        }
+
+        byte[] nameBytes = entry.name.getBytes(StandardCharsets.UTF_8);
+        // 中央目录只保留元数据，条目数据写出后即可释放
+        centralEntries.add(new CentralEntry(nameBytes, entry.method, entry.crc, compressedSize, entry.size,
+                entry.dosTime, offset));
+
+        writeInt(0x04034b50);
+        writeShort(entry.method == METHOD_DEFLATED ? 20 : 10);
+        writeShort(FLAG_UTF8);
+        writeShort(entry.method);
+        writeInt(entry.dosTime);
+        writeInt(entry.crc);
+        writeInt(compressedSize);
+        writeInt(entry.size);
+        writeShort(nameBytes.length);
+        writeShort(0);
+        writeBytes(nameBytes);
+        writeBuffer(entry.data.duplicate());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+
+        try {
+            long centralStart = offset;
+            for (CentralEntry central : centralEntries) {
+                writeCentralEntry(central);
+            }
+            long centralSize = offset - centralStart;
+            int count = centralEntries.size();
+
+            if (count >= ZIP64_MAGIC_COUNT || centralStart >= ZIP64_MAGIC || centralSize >= ZIP64_MAGIC) {
+                long zip64Start = offset;
+                // ZIP64 目录结尾记录
+                writeInt(0x06064b50);
+                writeLong(44);
+                writeShort(45);
+                writeShort(45);
+                writeInt(0);
+                writeInt(0);
+                writeLong(count);
+                writeLong(count);
+                writeLong(centralSize);
+                writeLong(centralStart);
+                // ZIP64 目录结尾定位器
+                writeInt(0x07064b50);
+                writeInt(0);
+                writeLong(zip64Start);
+                writeInt(1);
+            }
+
+            writeInt(0x06054b50);
+            writeShort(0);
+            writeShort(0);
+            writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+            writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+            writeInt(Math.min(centralSize, ZIP64_MAGIC));
+            writeInt(Math.min(centralStart, ZIP64_MAGIC));
+            writeShort(0);
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeCentralEntry(CentralEntry central) throws IOException {
+        boolean zip64Offset = central.localOffset >= ZIP64_MAGIC;
+
+        writeInt(0x02014b50);
+        writeShort(zip64Offset ? 45 : 20);
+        writeShort(zip64Offset ? 45 : (central.method == METHOD_DEFLATED ? 20 : 10));
+        writeShort(FLAG_UTF8);
+        writeShort(central.method);
+        writeInt(central.dosTime);
+        writeInt(central.crc);
+        writeInt(central.compressedSize);
+        writeInt(central.size);
+        writeShort(central.nameBytes.length);
+        writeShort(zip64Offset ? 12 : 0);
+        writeShort(0);
+        writeShort(0);
+        writeShort(0);
+        writeInt(0);
+        writeInt(zip64Offset ? ZIP64_MAGIC : central.localOffset);
+        writeBytes(central.nameBytes);
+        if (zip64Offset) {
+            writeShort(0x0001);
+            writeShort(8);
+            writeLong(central.localOffset);
+        }
+    }
+
+    static long toDosTime(long time) {
+        if (time < 0) {
+            // 与 ZipOutputStream 对未设置时间的条目一致
+            time = System.currentTimeMillis();
+        }
+        LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+        int year = dateTime.getYear();
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return ((long) (year - 1980) << 25)
+                | ((long) dateTime.getMonthValue() << 21)
+                | ((long) dateTime.getDayOfMonth() << 16)
+                | ((long) dateTime.getHour() << 11)
+                | ((long) dateTime.getMinute() << 5)
+                | ((long) dateTime.getSecond() >> 1);
+    }
+
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+        offset += 2;
+    }
+
+    private void writeInt(long value) throws IOException {
+        writeShort((int) (value & 0xFFFF));
+        writeShort((int) ((value >>> 16) & 0xFFFF));
+    }
+
+    private void writeLong(long value) throws IOException {
+        writeInt(value & 0xFFFFFFFFL);
+        writeInt(value >>> 32);
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        out.write(bytes);
+        offset += bytes.length;
+    }
+
+    private void writeBuffer(ByteBuffer buffer) throws IOException {
+        int length = buffer.remaining();
+        if (buffer.hasArray()) {
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+        } else {
+            // 映射缓冲区按块复制，避免为每个条目分配完整数组
+            while (buffer.hasRemaining()) {
+                int n = Math.min(buffer.remaining(), copyBuffer.length);
+                buffer.get(copyBuffer, 0, n);
+                out.write(copyBuffer, 0, n);
+            }
+        }
+        offset += length;
+    }
+
+    /**
+     * 已完成压缩的条目
+     */
+    public static final class Entry {
+        private final String name;
+        private final int method;
+        private final long crc;
+        private final long size;
+        private final ByteBuffer data;
+        private final long dosTime;
+
+        private Entry(String name, int method, long crc, long size, ByteBuffer data, long dosTime) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.data = data;
+            this.dosTime = dosTime;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 未压缩大小
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * 写入 ZIP 的数据大小
+         */
+        public long getCompressedSize() {
+            return data.remaining();
+        }
+    }
+
+    private static final class CentralEntry {
+        private final byte[] nameBytes;
+        private final int method;
+        private final long crc;
+        private final long compressedSize;
+        private final long size;
+        private final long dosTime;
+        private final long localOffset;
+
+        private CentralEntry(byte[] nameBytes, int method, long crc, long compressedSize, long size,
+                             long dosTime, long localOffset) {
+            this.nameBytes = nameBytes;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.dosTime = dosTime;
+            this.localOffset = localOffset;
+        }
+    }
+}
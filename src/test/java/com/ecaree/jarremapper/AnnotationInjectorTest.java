@@ -20,6 +20,8 @@ import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
 import java.util.zip.ZipEntry;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -125,4 +127,58 @@ public class AnnotationInjectorTest {
         assertTrue(tempJar.exists(), "JAR should exist");
         assertTrue(tempJar.length() >= originalSize, "JAR size should be same or larger after injection");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testParallelInjectionMatchesSerial() throws IOException {
+        File serialJar = tempDir.resolve("serial.jar").toFile();
+        File parallelJar = tempDir.resolve("parallel.jar").toFile();
+
+        AnnotationInjector injector = new AnnotationInjector(mappingData);
+        injector.injectAnnotations(inputJar, serialJar);
+
+        injector.setParallelism(4);
+        injector.injectAnnotations(inputJar, parallelJar);
+
+        assertArrayEquals(Files.readAllBytes(serialJar.toPath()), Files.readAllBytes(parallelJar.toPath()),
+                "Parallel output should be identical to serial output");
+
+        try (JarFile jarFile = new JarFile(parallelJar)) {
+            assertNotNull(jarFile.getJarEntry("com/example/TestClass.class"), "Should contain class file");
+        }
+    }
+
+    @Test
+    public void testUnmappedEntriesCopiedUnchanged() throws IOException {
+        File mixedJar = tempDir.resolve("mixed.jar").toFile();
+        byte[] otherClass;
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(mixedJar))) {
+            ClassWriter cw = new ClassWriter(0);
+            cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, "com/example/Other", null, "java/lang/Object", null);
+            cw.visitField(Opcodes.ACC_PRIVATE, "mValue", "I", null, null).visitEnd();
+            cw.visitEnd();
+            otherClass = cw.toByteArray();
+
+            jos.putNextEntry(new ZipEntry("com/example/Other.class"));
+            jos.write(otherClass);
+            jos.closeEntry();
+
+            jos.putNextEntry(new ZipEntry("assets/config.txt"));
+            jos.write("key=value".getBytes());
+            jos.closeEntry();
+        }
+
+        AnnotationInjector injector = new AnnotationInjector(mappingData);
+        injector.injectAnnotations(mixedJar, outputJar);
+
+        try (JarFile original = new JarFile(mixedJar);
+             JarFile jarFile = new JarFile(outputJar)) {
+            JarEntry entry = jarFile.getJarEntry("com/example/Other.class");
+            assertNotNull(entry, "Should contain unmapped class");
+            assertEquals(original.getJarEntry("com/example/Other.class").getCompressedSize(), entry.getCompressedSize(),
+                    "Unmapped class should be copied without recompression");
+            assertArrayEquals(otherClass, jarFile.getInputStream(entry).readAllBytes());
+            assertArrayEquals("key=value".getBytes(),
+                    jarFile.getInputStream(jarFile.getJarEntry("assets/config.txt")).readAllBytes());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.ecaree.jarremapper;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BuildCacheTest {
+    @TempDir
+    Path tempDir;
+
+    private BuildResult runWithBuildCache(File projectDir, String... tasks) {
+        String[] arguments = new String[tasks.length + 2];
+        System.arraycopy(tasks, 0, arguments, 0, tasks.length);
+        arguments[tasks.length] = "--build-cache";
+        arguments[tasks.length + 1] = "--stacktrace";
+
+        return GradleRunner.create()
+                .withProjectDir(projectDir)
+                .withPluginClasspath()
+                .withArguments(arguments)
+                .forwardOutput()
+                .build();
+    }
+
+    /**
+     * 两个目录中的项目内容相同，共用同一个本地构建缓存
+     */
+    private static void writeProject(File projectDir, File cacheDir) throws IOException {
+        Files.createDirectories(projectDir.toPath());
+        Files.writeString(new File(projectDir, "settings.gradle").toPath(), """
+                rootProject.name = 'test'
+
+                buildCache {
+                    local {
+                        directory = file('%s')
+                    }
+                }
+                """.formatted(cacheDir.getAbsolutePath().replace('\\', '/')));
+        Files.writeString(new File(projectDir, "mappings.yaml").toPath(), """
+                version: "1.0"
+                classes:
+                  - obfuscated: a/b
+                    readable: com/example/TestClass
+                """);
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(new File(projectDir, "in.jar").toPath()))) {
+            jar.putNextEntry(new JarEntry("res.txt"));
+            jar.write("resource".getBytes());
+            jar.closeEntry();
+            jar.putNextEntry(new JarEntry("a/b.class"));
+            jar.write(createEmptyClass("a/b"));
+            jar.closeEntry();
+        }
+        File sourceDir = new File(projectDir, "src/obf/java/x");
+        Files.createDirectories(sourceDir.toPath());
+        Files.writeString(new File(sourceDir, "Use.java").toPath(), """
+                package x;
+
+                public class Use {
+                    a.b value;
+                }
+                """);
+        Files.writeString(new File(projectDir, "build.gradle").toPath(), """
+                plugins {
+                    id 'java'
+                    id 'com.ecaree.jarremapper'
+                }
+
+                jarRemapper {
+                    mappingsFile = 'mappings.yaml'
+                    inputJar = 'in.jar'
+                    outputJar = 'build/out.jar'
+                    injectBytecodeAnnotations = false
+                    remapSmali = false
+                    enableSmaliMigrateTask = false
+                    enableJavaMigrateTask = false
+                    javaInputDir = 'src/obf/java'
+                }
+                """);
+    }
+
+    private static byte[] createEmptyClass(String name) {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    @Test
+    public void testRemapTasksLoadFromCacheAfterRelocation() throws IOException {
+        File cacheDir = tempDir.resolve("build-cache").toFile();
+        File original = tempDir.resolve("original/test").toFile();
+        File relocated = tempDir.resolve("relocated/nested/test").toFile();
+        writeProject(original, cacheDir);
+        writeProject(relocated, cacheDir);
+
+        BuildResult first = runWithBuildCache(original, "remapJar", "remapJava");
+        assertEquals(TaskOutcome.SUCCESS, first.task(":remapJar").getOutcome());
+        assertEquals(TaskOutcome.SUCCESS, first.task(":remapJava").getOutcome());
+
+        // 路径不同的同一项目应命中缓存，输入指纹不包含绝对路径
+        BuildResult second = runWithBuildCache(relocated, "remapJar", "remapJava");
+        assertEquals(TaskOutcome.FROM_CACHE, second.task(":remapJar").getOutcome(), "remapJar should be relocatable");
+        assertEquals(TaskOutcome.FROM_CACHE, second.task(":remapJava").getOutcome(), "remapJava should be relocatable");
+
+        try (JarFile jar = new JarFile(new File(relocated, "build/out.jar"))) {
+            assertNotNull(jar.getEntry("com/example/TestClass.class"), "Cached JAR should be restored");
+        }
+        assertTrue(new File(relocated, "build/generated/remappedJava/x/Use.java").isFile(),
+                "Cached Java sources should be restored");
+    }
+}
@@ -0,0 +1,269 @@
+package com.ecaree.jarremapper;
+
+import com.ecaree.jarremapper.mapping.ClassHierarchy;
+import com.ecaree.jarremapper.mapping.ClassHierarchyCache;
+import com.ecaree.jarremapper.mapping.JdkHierarchySnapshot;
+import com.ecaree.jarremapper.mapping.MappingData;
+import com.ecaree.jarremapper.mapping.MappingLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClassHierarchyTest {
+    @TempDir
+    Path tempDir;
+
+    private MappingData mappingData;
+    private File inputJar;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        String yaml = """
+                version: "1.0"
+
+                classes:
+                  - obfuscated: a/a
+                    readable: com/example/Base
+
+                    fields:
+                      - obfuscated: a
+                        readable: mValue
+                        type: I
+
+                    methods:
+                      - obfuscated: b
+                        readable: getValue
+                        descriptor: ()I
+
+                  - obfuscated: a/i
+                    readable: com/example/Listener
+
+                    methods:
+                      - obfuscated: c
+                        readable: onEvent
+                        descriptor: ()V
+
+                  - obfuscated: a/b
+                    readable: com/example/Middle
+
+                    methods:
+                      - obfuscated: b
+                        readable: getMiddleValue
+                        descriptor: ()I
+
+                  - obfuscated: a/c
+                    readable: com/example/Leaf
+                """;
+
+        File yamlFile = tempDir.resolve("mappings.yaml").toFile();
+        Files.writeString(yamlFile.toPath(), yaml);
+        mappingData = MappingLoader.loadYaml(yamlFile);
+
+        inputJar = tempDir.resolve("input.jar").toFile();
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(inputJar))) {
+            writeClass(jos, "a/i", null, Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT);
+            writeClass(jos, "a/a", "java/lang/Object", Opcodes.ACC_PUBLIC);
+            writeClass(jos, "a/b", "a/a", Opcodes.ACC_PUBLIC, "a/i");
+            writeClass(jos, "a/c", "a/b", Opcodes.ACC_PUBLIC);
+        }
+    }
+
+    private void writeClass(JarOutputStream jos, String name, String superName, int access, String... interfaces)
+            throws IOException {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(Opcodes.V1_8, access, name, null,
+                superName != null ? superName : "java/lang/Object", interfaces);
+        cw.visitEnd();
+        jos.putNextEntry(new JarEntry(name + ".class"));
+        jos.write(cw.toByteArray());
+        jos.closeEntry();
+    }
+
+    @Test
+    public void testBuildFromJar() throws IOException {
+        ClassHierarchy hierarchy = ClassHierarchy.fromJars(Collections.singletonList(inputJar));
+
+        assertEquals(4, hierarchy.size());
+        assertEquals(Arrays.asList("a/a", "a/i"), hierarchy.getParents("a/b"));
+        assertEquals(Collections.singletonList("a/b"), hierarchy.getParents("a/c"));
+        assertNull(hierarchy.getParents("a/unknown"));
+    }
+
+    @Test
+    public void testInheritedMemberLookup() throws IOException {
+        mappingData.setClassHierarchy(ClassHierarchy.fromJars(Collections.singletonList(inputJar)));
+
+        // 继承自祖先类的字段
+        assertEquals("mValue", mappingData.mapField("a/c", "a"));
+        assertEquals("mValue", mappingData.mapField("a/b", "a"));
+
+        // 子类自身的映射优先于父类
+        assertEquals("getMiddleValue", mappingData.mapMethod("a/c", "b", "()I"));
+        assertEquals("getValue", mappingData.mapMethod("a/a", "b", "()I"));
+
+        // 继承自接口的方法
+        assertEquals("onEvent", mappingData.mapMethod("a/c", "c", "()V"));
+
+        // 未映射成员保持原名
+        assertEquals("z", mappingData.mapField("a/c", "z"));
+        assertNull(mappingData.findMethod("a/c", "c", "(I)V"));
+    }
+
+    @Test
+    public void testExcludedOwnerNotRemapped() throws IOException {
+        mappingData.setClassHierarchy(ClassHierarchy.fromJars(Collections.singletonList(inputJar)));
+        mappingData.addExcludedPackage("a");
+
+        assertEquals("a", mappingData.mapField("a/c", "a"));
+        assertEquals("mValue", mappingData.findField("a/c", "a"));
+    }
+
+    @Test
+    public void testFlattenSharesParentView() {
+        ClassHierarchy hierarchy = new ClassHierarchy();
+        hierarchy.addClass("x/Parent", Collections.singletonList("java/lang/Object"));
+        hierarchy.addClass("x/Child", Collections.singletonList("x/Parent"));
+        hierarchy.addClass("x/Cycle", Collections.singletonList("x/Cycle"));
+
+        var flattened = hierarchy.flatten(Collections.singletonMap("x/Parent", Collections.singletonMap("f", "field")));
+
+        assertEquals("field", flattened.get("x/Child").get("f"));
+        assertTrue(flattened.get("x/Child") == flattened.get("x/Parent"),
+                "Child without own members should share the parent view");
+        assertNull(flattened.get("x/Cycle"));
+    }
+
+    @Test
+    public void testFlattenMergesInheritedValues() {
+        ClassHierarchy hierarchy = new ClassHierarchy();
+        hierarchy.addClass("x/Parent", Collections.singletonList("java/lang/Object"));
+        hierarchy.addClass("x/Child", Collections.singletonList("x/Parent"));
+
+        Map<String, Map<String, List<String>>> own = new HashMap<>();
+        own.put("x/Parent", Collections.singletonMap("foo", List.of("(Ljava/lang/String;)V")));
+        own.put("x/Child", Collections.singletonMap("foo", List.of("(I)V")));
+
+        var merged = hierarchy.flatten(own, (first, second) -> {
+            List<String> list = new ArrayList<>(first);
+            list.addAll(second);
+            return list;
+        });
+        assertEquals(List.of("(I)V", "(Ljava/lang/String;)V"), merged.get("x/Child").get("foo"),
+                "Own and inherited values should both be kept, own first");
+        assertEquals(List.of("(Ljava/lang/String;)V"), merged.get("x/Parent").get("foo"));
+
+        assertEquals(List.of("(I)V"), hierarchy.flatten(own).get("x/Child").get("foo"),
+                "Without a merger the own value should win");
+    }
+
+    @Test
+    public void testHierarchyCacheReusesParsedJar() throws IOException {
+        File cacheDir = tempDir.resolve("cache").toFile();
+        ClassHierarchyCache cache = new ClassHierarchyCache(cacheDir);
+
+        ClassHierarchy first = new ClassHierarchy();
+        cache.addJar(first, inputJar);
+        File[] cacheFiles = cacheDir.listFiles((dir, name) -> name.endsWith(".hierarchy"));
+        assertEquals(1, cacheFiles.length, "Cache entry should be written");
+
+        // 内容相同的 JAR 命中同一缓存条目
+        File copy = tempDir.resolve("copy.jar").toFile();
+        Files.copy(inputJar.toPath(), copy.toPath());
+        ClassHierarchy second = new ClassHierarchy();
+        second.addClass("a/c", Collections.singletonList("x/Existing"));
+        cache.addJar(second, copy);
+
+        assertEquals("1 cached, 1 parsed", cache.getSummary());
+        assertEquals(1, cacheDir.listFiles((dir, name) -> name.endsWith(".hierarchy")).length);
+        assertEquals(first.getClassNames(), second.getClassNames());
+        assertEquals(Arrays.asList("a/a", "a/i"), second.getParents("a/b"));
+        assertEquals(Collections.singletonList("x/Existing"), second.getParents("a/c"),
+                "Existing classes should not be overwritten");
+    }
+
+    @Test
+    public void testClimbLookupsAreMemoized() {
+        AtomicInteger parentQueries = new AtomicInteger();
+        mappingData.setFallbackInheritanceProvider(className -> {
+            parentQueries.incrementAndGet();
+            return "x/Sub".equals(className) ? Collections.singletonList("a/a") : null;
+        });
+
+        assertEquals("mValue", mappingData.findField("x/Sub", "a"));
+        assertNull(mappingData.findMethod("x/Sub", "z", "()V"));
+        int queries = parentQueries.get();
+
+        // 命中与未命中的结果都被缓存
+        assertEquals("mValue", mappingData.findField("x/Sub", "a"));
+        assertNull(mappingData.findMethod("x/Sub", "z", "()V"));
+        assertEquals(queries, parentQueries.get());
+
+        // 修改映射后需清空缓存
+        mappingData.getJarMapping().methods.put("a/a/z ()V", "onReset");
+        mappingData.invalidateCaches();
+        assertEquals("onReset", mappingData.findMethod("x/Sub", "z", "()V"));
+    }
+
+    @Test
+    public void testClimbCacheKeepsHotLookupsWhenFull() {
+        AtomicInteger subQueries = new AtomicInteger();
+        mappingData.setFallbackInheritanceProvider(className -> {
+            if ("x/Sub".equals(className)) {
+                subQueries.incrementAndGet();
+                return Collections.singletonList("a/a");
+            }
+            return null;
+        });
+
+        assertEquals("mValue", mappingData.findField("x/Sub", "a"));
+        int queries = subQueries.get();
+
+        // 超过缓存上限的查找只淘汰较旧的条目，反复使用的查找一直保留
+        for (int i = 0; i < 250_000; i++) {
+            assertNull(mappingData.findField("y/Other" + i, "a"));
+            if (i % 1000 == 0) {
+                assertEquals("mValue", mappingData.findField("x/Sub", "a"));
+            }
+        }
+        assertEquals(queries, subQueries.get(), "Hot lookup should survive eviction");
+    }
+
+    @Test
+    public void testJdkHierarchySnapshot() throws IOException {
+        assertEquals(8, JdkHierarchySnapshot.selectVersion(0));
+        assertEquals(11, JdkHierarchySnapshot.selectVersion(16));
+        assertEquals(21, JdkHierarchySnapshot.selectVersion(25));
+
+        ClassHierarchy java17 = JdkHierarchySnapshot.load(17);
+        assertEquals(Arrays.asList("java/util/AbstractList", "java/util/List", "java/util/RandomAccess",
+                "java/lang/Cloneable", "java/io/Serializable"), java17.getParents("java/util/ArrayList"));
+        assertEquals(Collections.singletonList("java/lang/Object"), java17.getParents("java/lang/Record"));
+        assertNull(JdkHierarchySnapshot.load(8).getParents("java/lang/Record"), "Record should not exist in Java 8");
+        assertTrue(java17 == JdkHierarchySnapshot.load(20), "Loaded snapshots should be shared");
+
+        // 快照中只有 java.* 与 javax.* 的类
+        assertTrue(java17.getClassNames().stream().allMatch(n -> n.startsWith("java/") || n.startsWith("javax/")));
+        assertEquals(8, ClassHierarchy.fromJars(Collections.singletonList(inputJar)).getJavaVersion());
+    }
+}
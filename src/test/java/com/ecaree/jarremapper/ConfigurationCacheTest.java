@@ -0,0 +1,450 @@
+package com.ecaree.jarremapper;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConfigurationCacheTest {
+    @TempDir
+    Path tempDir;
+
+    private BuildResult runWithConfigurationCache(String... tasks) {
+        String[] arguments = new String[tasks.length + 2];
+        System.arraycopy(tasks, 0, arguments, 0, tasks.length);
+        arguments[tasks.length] = "--configuration-cache";
+        arguments[tasks.length + 1] = "--stacktrace";
+
+        return GradleRunner.create()
+                .withProjectDir(tempDir.toFile())
+                .withPluginClasspath()
+                .withArguments(arguments)
+                .forwardOutput()
+                .build();
+    }
+
+    @Test
+    public void testConfigurationCacheReused() throws IOException {
+        File projectDir = tempDir.toFile();
+        Files.writeString(new File(projectDir, "settings.gradle").toPath(), "rootProject.name = 'test'");
+        Files.writeString(new File(projectDir, "build.gradle").toPath(), """
+                plugins {
+                    id 'java'
+                    id 'com.ecaree.jarremapper'
+                }
+                
+                jarRemapper {
+                    remapJar = false
+                    injectBytecodeAnnotations = false
+                    remapSmali = false
+                    enableSmaliMigrateTask = false
+                    enableJavaMigrateTask = false
+                    javaInputDir = 'src/obf/java'
+                }
+                """);
+
+        String[] tasks = {"remapJar", "injectJarAnnotations", "remapSmali", "migrateSmali",
+                "remapJava", "migrateJava", "compileJava"};
+
+        BuildResult first = runWithConfigurationCache(tasks);
+        assertTrue(first.getOutput().contains("Configuration cache entry stored"), "First build should store the entry");
+        assertFalse(first.getOutput().contains("problems were found"), "No configuration cache problems expected");
+
+        BuildResult second = runWithConfigurationCache(tasks);
+        assertTrue(second.getOutput().contains("Reusing configuration cache"), "Second build should reuse the entry");
+        assertNotNull(second.task(":remapJava"), "remapJava should run from the cached configuration");
+    }
+
+    @Test
+    public void testRemappedAttributeTransformsDependencies() throws IOException {
+        File projectDir = tempDir.toFile();
+        Files.writeString(new File(projectDir, "settings.gradle").toPath(), "rootProject.name = 'test'");
+        Files.writeString(new File(projectDir, "mappings.yaml").toPath(), """
+                version: "1.0"
+                classes:
+                  - obfuscated: a/b
+                    readable: com/example/TestClass
+                """);
+        File libsDir = new File(projectDir, "libs");
+        Files.createDirectories(libsDir.toPath());
+        // 两个构件共用同一份映射
+        for (String name : new String[]{"lib", "other"}) {
+            try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(new File(libsDir, name + ".jar").toPath()))) {
+                jar.putNextEntry(new JarEntry("res.txt"));
+                jar.write("resource".getBytes());
+                jar.closeEntry();
+                jar.putNextEntry(new JarEntry("a/b.class"));
+                jar.write(createEmptyClass("a/b"));
+                jar.closeEntry();
+            }
+        }
+        Files.writeString(new File(projectDir, "build.gradle").toPath(), """
+                import com.ecaree.jarremapper.JarRemapperPlugin
+                
+                plugins {
+                    id 'java'
+                    id 'com.ecaree.jarremapper'
+                }
+                
+                jarRemapper {
+                    remapJar = false
+                    injectBytecodeAnnotations = false
+                    remapSmali = false
+                    mappingsFile = 'mappings.yaml'
+                }
+                
+                dependencies {
+                    implementation files('libs/lib.jar', 'libs/other.jar')
+                }
+                
+                def remapped = configurations.compileClasspath.incoming.artifactView {
+                    attributes.attribute(JarRemapperPlugin.REMAPPED_ATTRIBUTE, true)
+                }.files
+                
+                tasks.register('printRemapped') {
+                    inputs.files(remapped)
+                    doLast {
+                        remapped.each { println "REMAPPED: " + it.name + " @ " + it.absolutePath }
+                    }
+                }
+                """);
+
+        BuildResult first = runWithConfigurationCache("printRemapped");
+        assertTrue(first.getOutput().contains("REMAPPED: lib-remapped.jar"), "Dependency should be transformed");
+        assertRemappedClass(first.getOutput(), "lib-remapped.jar");
+        assertRemappedClass(first.getOutput(), "other-remapped.jar");
+
+        BuildResult second = runWithConfigurationCache("printRemapped");
+        assertTrue(second.getOutput().contains("Reusing configuration cache"), "Second build should reuse the entry");
+        assertTrue(second.getOutput().contains("REMAPPED: lib-remapped.jar"), "Transformed dependency should be reused");
+        assertRemappedClass(second.getOutput(), "lib-remapped.jar");
+    }
+
+    @Test
+    public void testRemapJarInProcessIsolation() throws IOException {
+        File projectDir = tempDir.toFile();
+        Files.writeString(new File(projectDir, "settings.gradle").toPath(), "rootProject.name = 'test'");
+        Files.writeString(new File(projectDir, "mappings.yaml").toPath(), """
+                version: "1.0"
+                classes:
+                  - obfuscated: a/b
+                    readable: com/example/TestClass
+                """);
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(new File(projectDir, "in.jar").toPath()))) {
+            jar.putNextEntry(new JarEntry("res.txt"));
+            jar.write("resource".getBytes());
+            jar.closeEntry();
+            jar.putNextEntry(new JarEntry("a/b.class"));
+            jar.write(createEmptyClass("a/b"));
+            jar.closeEntry();
+        }
+        Files.writeString(new File(projectDir, "build.gradle").toPath(), """
+                plugins {
+                    id 'java'
+                    id 'com.ecaree.jarremapper'
+                }
+                
+                jarRemapper {
+                    mappingsFile = 'mappings.yaml'
+                    inputJar = 'in.jar'
+                    outputJar = 'out.jar'
+                    injectBytecodeAnnotations = false
+                    remapSmali = false
+                    workerIsolation = 'process'
+                    workerMaxHeapSize = '256m'
+                }
+                """);
+
+        BuildResult result = runWithConfigurationCache("remapJar");
+        assertFalse(result.getOutput().contains("problems were found"), "No configuration cache problems expected");
+        try (JarFile jar = new JarFile(new File(projectDir, "out.jar"))) {
+            assertNotNull(jar.getEntry("com/example/TestClass.class"), "Class should be remapped in the worker process");
+            assertNull(jar.getEntry("a/b.class"), "Obfuscated class should not remain");
+            assertNotNull(jar.getEntry("res.txt"), "Resource should be kept");
+        }
+    }
+
+    @Test
+    public void testRemapTransformRequiresMappingsFile() throws IOException {
+        File projectDir = tempDir.toFile();
+        Files.writeString(new File(projectDir, "settings.gradle").toPath(), "rootProject.name = 'test'");
+        File libsDir = new File(projectDir, "libs");
+        Files.createDirectories(libsDir.toPath());
+        writeObfuscatedJar(new File(libsDir, "lib.jar"));
+        Files.writeString(new File(projectDir, "build.gradle").toPath(), """
+                import com.ecaree.jarremapper.JarRemapperPlugin
+                
+                plugins {
+                    id 'java'
+                    id 'com.ecaree.jarremapper'
+                }
+                
+                jarRemapper {
+                    remapJar = false
+                    injectBytecodeAnnotations = false
+                    remapSmali = false
+                }
+                
+                dependencies {
+                    implementation files('libs/lib.jar')
+                }
+                
+                def remapped = configurations.compileClasspath.incoming.artifactView {
+                    attributes.attribute(JarRemapperPlugin.REMAPPED_ATTRIBUTE, true)
+                }.files
+                
+                tasks.register('printRemapped') {
+                    inputs.files(remapped)
+                    doLast {
+                        remapped.each { println "REMAPPED: " + it.name }
+                    }
+                }
+                """);
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(projectDir)
+                .withPluginClasspath()
+                .withArguments("printRemapped", "--configuration-cache", "--stacktrace")
+                .forwardOutput()
+                .buildAndFail();
+        assertTrue(result.getOutput().contains("Cannot remap dependency lib.jar: jarRemapper.mappingsFile is not set"),
+                "Missing mapping file should be reported by the plugin");
+    }
+
+    /**
+     * 从 printRemapped 的输出找到转换后的 JAR，检查其中的类已按映射重命名
+     */
+    private static void assertRemappedClass(String output, String jarName) throws IOException {
+        String prefix = "REMAPPED: " + jarName + " @ ";
+        String path = output.lines()
+                .filter(line -> line.startsWith(prefix))
+                .map(line -> line.substring(prefix.length()).trim())
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Missing transformed " + jarName));
+        try (JarFile jar = new JarFile(path)) {
+            assertNotNull(jar.getEntry("com/example/TestClass.class"), "Class should be remapped in " + jarName);
+            assertNull(jar.getEntry("a/b.class"), "Obfuscated class should not remain in " + jarName);
+            assertNotNull(jar.getEntry("res.txt"), "Resource should be kept in " + jarName);
+        }
+    }
+
+    private static byte[] createEmptyClass(String name) {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    @Test
+    public void testChainRemapUsesPrefetchedMappings() throws IOException {
+        File projectDir = tempDir.toFile();
+        Files.writeString(new File(projectDir, "settings.gradle").toPath(), "rootProject.name = 'test'");
+        Files.writeString(new File(projectDir, "first.yaml").toPath(), """
+                version: "1.0"
+                classes:
+                  - obfuscated: a/b
+                    readable: c/d
+                """);
+        Files.writeString(new File(projectDir, "second.yaml").toPath(), """
+                version: "1.0"
+                classes:
+                  - obfuscated: c/d
+                    readable: com/example/TestClass
+                """);
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(new File(projectDir, "in.jar").toPath()))) {
+            jar.putNextEntry(new JarEntry("res.txt"));
+            jar.write("resource".getBytes());
+            jar.closeEntry();
+        }
+        Files.writeString(new File(projectDir, "build.gradle").toPath(), """
+                plugins {
+                    id 'java'
+                    id 'com.ecaree.jarremapper'
+                }
+                
+                jarRemapper {
+                    remapJar = false
+                    injectBytecodeAnnotations = false
+                    remapSmali = false
+                }
+                
+                tasks.named('chainRemapJar') {
+                    inputJar = file('in.jar')
+                    outputJar = layout.buildDirectory.file('chained.jar')
+                    mappingFiles.from('first.yaml', 'second.yaml')
+                }
+                """);
+
+        BuildResult first = runWithConfigurationCache("chainRemapJar", "--info");
+        assertFalse(first.getOutput().contains("problems were found"), "No configuration cache problems expected");
+        assertTrue(first.getOutput().contains("Merged result: 1 classes"), "Both mappings should be loaded");
+        assertTrue(new File(projectDir, "build/chained.jar").isFile(), "Chained JAR should be written");
+        assertServedByPrefetchService(first.getOutput());
+
+        // 配置缓存命中时没有任务图回调，预加载请求随服务参数从缓存恢复
+        new File(projectDir, "build/chained.jar").delete();
+        BuildResult second = runWithConfigurationCache("chainRemapJar", "--info");
+        assertTrue(second.getOutput().contains("Reusing configuration cache"), "Second build should reuse the entry");
+        assertTrue(second.getOutput().contains("Merged result: 1 classes"), "Mappings should load from the cached graph");
+        assertServedByPrefetchService(second.getOutput());
+
+        // 任务 UP-TO-DATE 时预加载只是提示，不应有任务等待映射
+        BuildResult third = runWithConfigurationCache("chainRemapJar", "--info");
+        assertEquals(TaskOutcome.UP_TO_DATE, third.task(":chainRemapJar").getOutcome());
+        assertFalse(third.getOutput().contains("Served mapping"), "Up-to-date task should not request mappings");
+    }
+
+    @Test
+    public void testChainRemapWithCoordinatesReusesConfigurationCache() throws IOException {
+        File projectDir = tempDir.toFile();
+        Files.writeString(new File(projectDir, "settings.gradle").toPath(), "rootProject.name = 'test'");
+        // 只有构件没有 POM 的本地 Maven 仓库
+        writeRepositoryMapping(projectDir, "first", """
+                version: "1.0"
+                classes:
+                  - obfuscated: a/b
+                    readable: c/d
+                """);
+        writeRepositoryMapping(projectDir, "second", """
+                version: "1.0"
+                classes:
+                  - obfuscated: c/d
+                    readable: com/example/TestClass
+                """);
+        writeObfuscatedJar(new File(projectDir, "in.jar"));
+        Files.writeString(new File(projectDir, "build.gradle").toPath(), """
+                plugins {
+                    id 'java'
+                    id 'com.ecaree.jarremapper'
+                }
+                
+                repositories {
+                    maven {
+                        url = uri('repo')
+                        metadataSources { artifact() }
+                    }
+                }
+                
+                jarRemapper {
+                    remapJar = false
+                    injectBytecodeAnnotations = false
+                    remapSmali = false
+                }
+                
+                tasks.named('chainRemapJar') {
+                    inputJar = file('in.jar')
+                    outputJar = layout.buildDirectory.file('chained.jar')
+                    mappingCoordinates = ['com.example:first:1.0@yaml', 'com.example:second:1.0@yaml']
+                }
+                """);
+
+        File output = new File(projectDir, "build/chained.jar");
+        BuildResult first = runWithConfigurationCache("chainRemapJar");
+        assertTrue(first.getOutput().contains("Configuration cache entry stored"), "First build should store the entry");
+        assertFalse(first.getOutput().contains("problems were found"), "No configuration cache problems expected");
+        assertRemappedJar(output);
+
+        output.delete();
+        BuildResult second = runWithConfigurationCache("chainRemapJar");
+        assertTrue(second.getOutput().contains("Reusing configuration cache"), "Second build should reuse the entry");
+        assertTrue(second.getOutput().contains("Merged result: 1 classes"), "Resolved coordinates should be reused");
+        assertRemappedJar(output);
+    }
+
+    @Test
+    public void testRemapJarsReusesConfigurationCache() throws IOException {
+        File projectDir = tempDir.toFile();
+        Files.writeString(new File(projectDir, "settings.gradle").toPath(), "rootProject.name = 'test'");
+        Files.writeString(new File(projectDir, "mappings.yaml").toPath(), """
+                version: "1.0"
+                classes:
+                  - obfuscated: a/b
+                    readable: com/example/TestClass
+                """);
+        File libsDir = new File(projectDir, "libs");
+        Files.createDirectories(libsDir.toPath());
+        writeObfuscatedJar(new File(libsDir, "lib.jar"));
+        writeObfuscatedJar(new File(libsDir, "other.jar"));
+        Files.writeString(new File(projectDir, "build.gradle").toPath(), """
+                plugins {
+                    id 'java'
+                    id 'com.ecaree.jarremapper'
+                }
+                
+                jarRemapper {
+                    remapJar = false
+                    injectBytecodeAnnotations = false
+                    remapSmali = false
+                    mappingsFile = 'mappings.yaml'
+                }
+                
+                tasks.named('remapJars') {
+                    inputJars.from('libs/lib.jar', 'libs/other.jar')
+                }
+                """);
+
+        File outputDir = new File(projectDir, "build/remappedJars");
+        BuildResult first = runWithConfigurationCache("remapJars");
+        assertTrue(first.getOutput().contains("Configuration cache entry stored"), "First build should store the entry");
+        assertFalse(first.getOutput().contains("problems were found"), "No configuration cache problems expected");
+        assertRemappedJar(new File(outputDir, "lib.jar"));
+        assertRemappedJar(new File(outputDir, "other.jar"));
+
+        new File(outputDir, "lib.jar").delete();
+        BuildResult second = runWithConfigurationCache("remapJars");
+        assertTrue(second.getOutput().contains("Reusing configuration cache"), "Second build should reuse the entry");
+        assertNotNull(second.task(":remapJars"), "remapJars should run from the cached configuration");
+        assertRemappedJar(new File(outputDir, "lib.jar"));
+    }
+
+    private static void writeRepositoryMapping(File projectDir, String name, String content) throws IOException {
+        File dir = new File(projectDir, "repo/com/example/" + name + "/1.0");
+        Files.createDirectories(dir.toPath());
+        Files.writeString(new File(dir, name + "-1.0.yaml").toPath(), content);
+    }
+
+    private static void writeObfuscatedJar(File file) throws IOException {
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(file.toPath()))) {
+            jar.putNextEntry(new JarEntry("res.txt"));
+            jar.write("resource".getBytes());
+            jar.closeEntry();
+            jar.putNextEntry(new JarEntry("a/b.class"));
+            jar.write(createEmptyClass("a/b"));
+            jar.closeEntry();
+        }
+    }
+
+    private static void assertRemappedJar(File file) throws IOException {
+        assertTrue(file.isFile(), file + " should be written");
+        try (JarFile jar = new JarFile(file)) {
+            assertNotNull(jar.getEntry("com/example/TestClass.class"), "Class should be remapped in " + file.getName());
+            assertNull(jar.getEntry("a/b.class"), "Obfuscated class should not remain in " + file.getName());
+            assertNotNull(jar.getEntry("res.txt"), "Resource should be kept in " + file.getName());
+        }
+    }
+
+    private static void assertServedByPrefetchService(String output) {
+        for (String name : new String[]{"first.yaml", "second.yaml"}) {
+            assertTrue(output.contains("Prefetched mapping " + name), name + " should be loaded by the prefetch service");
+            assertTrue(output.contains("Served mapping " + name + " from prefetch service"),
+                    name + " should be served to the work by the prefetch service");
+        }
+    }
+}
@@ -7,21 +7,36 @@ import com.ecaree.jarremapper.remap.JarRemapper;
 import com.ecaree.jarremapper.remap.JavaRemapper;
 import com.ecaree.jarremapper.remap.SmaliRemapper;
 import com.ecaree.jarremapper.util.FileUtils;
+import com.ecaree.jarremapper.util.OutputCompression;
 import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -188,6 +203,334 @@ public class IntegrationTest {
         assertTrue(annotatedJar.exists(), "Annotated JAR should exist");
     }
 
+    @Test
+    public void testRemapCopiesResourcesRaw() throws IOException {
+        Path tempDir = getTestDir("resourceCopy");
+
+        MappingData mappingData = MappingLoader.load(createMappingFile(tempDir));
+        File obfuscatedJar = createObfuscatedJar(tempDir);
+
+        File withResources = tempDir.resolve("with-resources.jar").toFile();
+        byte[] asset = "a".repeat(4096).getBytes();
+        try (JarFile source = new JarFile(obfuscatedJar);
+             JarOutputStream jos = new JarOutputStream(new FileOutputStream(withResources))) {
+            for (ZipEntry entry : source.stream().toList()) {
+                jos.putNextEntry(new ZipEntry(entry.getName()));
+                jos.write(source.getInputStream(entry).readAllBytes());
+                jos.closeEntry();
+            }
+            jos.putNextEntry(new ZipEntry("assets/data.txt"));
+            jos.write(asset);
+            jos.closeEntry();
+        }
+
+        File remappedJar = tempDir.resolve("remapped.jar").toFile();
+        new JarRemapper(mappingData).remapJar(withResources, remappedJar);
+
+        try (JarFile original = new JarFile(withResources);
+             JarFile jar = new JarFile(remappedJar)) {
+            ZipEntry originalEntry = original.getEntry("assets/data.txt");
+            ZipEntry entry = jar.getEntry("assets/data.txt");
+            assertNotNull(entry, "Should contain resource");
+            assertEquals(originalEntry.getCrc(), entry.getCrc());
+            assertEquals(originalEntry.getCompressedSize(), entry.getCompressedSize(),
+                    "Resource should be copied without recompression");
+            assertArrayEquals(asset, jar.getInputStream(entry).readAllBytes());
+            assertNotNull(jar.getEntry("com/example/util/Helper.class"), "Should contain Helper");
+        }
+    }
+
+    @Test
+    public void testRemapWithOutputCompressionModes() throws IOException {
+        Path tempDir = getTestDir("compressionModes");
+
+        MappingData mappingData = MappingLoader.load(createMappingFile(tempDir));
+        File obfuscatedJar = createObfuscatedJar(tempDir);
+        File largeJar = createLargeClassJar(tempDir);
+
+        byte[] expectedLarge = null;
+        for (OutputCompression.Mode mode : OutputCompression.Mode.values()) {
+            File remappedJar = tempDir.resolve("remapped-" + mode + ".jar").toFile();
+            File remappedLargeJar = tempDir.resolve("remapped-large-" + mode + ".jar").toFile();
+            JarRemapper remapper = new JarRemapper(mappingData);
+            try (OutputCompression compression = new OutputCompression(mode, 1)) {
+                remapper.setCompression(compression);
+                remapper.remapJar(obfuscatedJar, remappedJar);
+                remapper.remapJar(largeJar, remappedLargeJar);
+                assertTrue(compression.getSummary().startsWith(mode.name().toLowerCase()));
+            }
+
+            try (JarFile jar = new JarFile(remappedJar)) {
+                ZipEntry entry = jar.getEntry("com/example/app/MainActivity.class");
+                assertNotNull(entry, "Should contain MainActivity for " + mode);
+                if (mode == OutputCompression.Mode.STORE) {
+                    assertEquals(ZipEntry.STORED, entry.getMethod(), "Class should be stored");
+                }
+                new ClassReader(jar.getInputStream(entry).readAllBytes());
+            }
+
+            // 超过两个块的类在 PARALLEL 模式下分块压缩，解压结果与 CRC 需与其他模式一致
+            try (JarFile jar = new JarFile(remappedLargeJar)) {
+                ZipEntry entry = jar.getEntry("b/D.class");
+                assertNotNull(entry, "Should contain large class for " + mode);
+                byte[] data = jar.getInputStream(entry).readAllBytes();
+                assertTrue(data.length >= 256 * 1024, "Large class should span multiple blocks");
+                assertEquals(data.length, entry.getSize(), "Size should match for " + mode);
+                CRC32 crc = new CRC32();
+                crc.update(data);
+                assertEquals(crc.getValue(), entry.getCrc(), "CRC should match content for " + mode);
+                if (expectedLarge == null) {
+                    expectedLarge = data;
+                } else {
+                    assertArrayEquals(expectedLarge, data, "Large class should match across modes: " + mode);
+                }
+                new ClassReader(data);
+            }
+        }
+    }
+
+    /**
+     * 创建包含大常量池类的 JAR，类文件超过 256 KB
+     */
+    private File createLargeClassJar(Path tempDir) throws IOException {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, "b/D", null, "java/lang/Object", null);
+        Random random = new Random(42);
+        for (int i = 0; i < 6; i++) {
+            // 随机内容避免压缩后过小，单个常量不超过常量池的 64 KB 限制
+            char[] chars = new char[60_000];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = (char) ('!' + random.nextInt(90));
+            }
+            cw.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "c" + i,
+                    "Ljava/lang/String;", null, new String(chars)).visitEnd();
+        }
+        cw.visitEnd();
+
+        File jarFile = tempDir.resolve("large.jar").toFile();
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jarFile))) {
+            jos.putNextEntry(new ZipEntry("b/D.class"));
+            jos.write(cw.toByteArray());
+            jos.closeEntry();
+        }
+        return jarFile;
+    }
+
+    @Test
+    public void testIncrementalRemapMatchesFullRemap() throws IOException {
+        Path tempDir = getTestDir("incrementalRemap");
+
+        File mappingFile = createMappingFile(tempDir);
+        File obfuscatedJar = createObfuscatedJar(tempDir);
+        File incrementalJar = tempDir.resolve("incremental.jar").toFile();
+        File fullJar = tempDir.resolve("full.jar").toFile();
+
+        JarRemapper incremental = new JarRemapper(MappingLoader.load(mappingFile));
+        incremental.setIncremental(true);
+        incremental.remapJar(obfuscatedJar, incrementalJar);
+        assertTrue(new File(tempDir.toFile(), "incremental.jar.remap-index").exists(), "Index should be written");
+
+        // 修改一个方法映射后再次增量重映射
+        Files.writeString(mappingFile.toPath(), Files.readString(mappingFile.toPath())
+                .replace("readable: onCreate", "readable: onCreated"));
+        MappingData changed = MappingLoader.load(mappingFile);
+
+        incremental = new JarRemapper(changed);
+        incremental.setIncremental(true);
+        incremental.remapJar(obfuscatedJar, incrementalJar);
+        new JarRemapper(changed).remapJar(obfuscatedJar, fullJar);
+
+        try (JarFile actual = new JarFile(incrementalJar); JarFile expected = new JarFile(fullJar)) {
+            assertEquals(expected.size(), actual.size(), "Entry count should match full remap");
+            for (ZipEntry entry : Collections.list(expected.entries())) {
+                ZipEntry actualEntry = actual.getEntry(entry.getName());
+                assertNotNull(actualEntry, "Should contain " + entry.getName());
+                assertArrayEquals(expected.getInputStream(entry).readAllBytes(),
+                        actual.getInputStream(actualEntry).readAllBytes(),
+                        "Entry should match full remap: " + entry.getName());
+            }
+
+            ClassNode classNode = new ClassNode();
+            new ClassReader(actual.getInputStream(actual.getEntry("com/example/app/MainActivity.class")).readAllBytes())
+                    .accept(classNode, 0);
+            assertTrue(classNode.methods.stream().anyMatch(m -> m.name.equals("onCreated")),
+                    "Changed mapping should be applied");
+        }
+    }
+
+    private File createSingleClassJar(File jarFile, String name, String superName, boolean overrideA) throws IOException {
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jarFile))) {
+            ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+            cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, superName, null);
+
+            if (overrideA) {
+                MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "a", "()V", null, null);
+                mv.visitCode();
+                mv.visitInsn(Opcodes.RETURN);
+                mv.visitMaxs(0, 1);
+                mv.visitEnd();
+            }
+
+            cw.visitEnd();
+
+            jos.putNextEntry(new ZipEntry(name + ".class"));
+            jos.write(cw.toByteArray());
+            jos.closeEntry();
+        }
+        return jarFile;
+    }
+
+    @Test
+    public void testBatchRemapResolvesCrossJarInheritance() throws IOException {
+        Path tempDir = getTestDir("batchRemap");
+
+        File mappingFile = createMappingFile(tempDir);
+        File baseJar = createObfuscatedJar(tempDir);
+
+        // d/E 与 d/D 位于另外两个 JAR，d/D 经 d/E 继承 b/C 并重写 a()V，只能通过整个集合的继承关系得到映射
+        File middleJar = createSingleClassJar(tempDir.resolve("middle.jar").toFile(), "d/E", "b/C", false);
+        File pluginJar = createSingleClassJar(tempDir.resolve("plugin.jar").toFile(), "d/D", "d/E", true);
+
+        File outputDir = tempDir.resolve("remapped").toFile();
+        File baseOutput = new File(outputDir, baseJar.getName());
+        File pluginOutput = new File(outputDir, pluginJar.getName());
+        Map<File, File> jars = new LinkedHashMap<>();
+        jars.put(baseJar, baseOutput);
+        jars.put(middleJar, new File(outputDir, middleJar.getName()));
+        jars.put(pluginJar, pluginOutput);
+
+        JarRemapper remapper = new JarRemapper(MappingLoader.load(mappingFile));
+        remapper.setIncremental(true);
+        remapper.prepareHierarchy(jars.keySet());
+        remapper.remapJars(jars, 2);
+
+        assertTrue(baseOutput.exists(), "Base JAR should be remapped");
+        try (JarFile jar = new JarFile(pluginOutput)) {
+            ClassNode classNode = new ClassNode();
+            new ClassReader(jar.getInputStream(jar.getEntry("d/D.class")).readAllBytes()).accept(classNode, 0);
+            assertEquals("d/E", classNode.superName);
+            assertTrue(classNode.methods.stream().anyMatch(m -> m.name.equals("doWork")),
+                    "Override in another JAR should follow the inherited mapping");
+        }
+
+        assertTrue(remapper.isOutputCurrent(pluginOutput), "Unchanged output should be current");
+
+        // 映射变化后，未变化的 JAR 也需要重新重映射
+        Files.writeString(mappingFile.toPath(), Files.readString(mappingFile.toPath())
+                .replace("readable: doWork", "readable: doMoreWork"));
+        JarRemapper changed = new JarRemapper(MappingLoader.load(mappingFile));
+        changed.setIncremental(true);
+        changed.prepareHierarchy(jars.keySet());
+        assertFalse(changed.isOutputCurrent(pluginOutput), "Output should be stale after mapping change");
+    }
+
+    @Test
+    public void testParallelBatchRemapResolvesInheritedMembers() throws IOException {
+        Path tempDir = getTestDir("parallelBatchRemap");
+
+        File baseJar = createObfuscatedJar(tempDir);
+        File middleJar = createSingleClassJar(tempDir.resolve("middle.jar").toFile(), "d/E", "b/C", false);
+
+        // 多个 JAR 中的子类并行查找经 d/E 继承自 b/C 的 a()V，以及继承关系之外的 JDK 成员
+        File outputDir = tempDir.resolve("remapped").toFile();
+        Map<File, File> jars = new LinkedHashMap<>();
+        jars.put(baseJar, new File(outputDir, baseJar.getName()));
+        jars.put(middleJar, new File(outputDir, middleJar.getName()));
+        for (int i = 0; i < 8; i++) {
+            File pluginJar = createCallerJar(tempDir.resolve("plugin" + i + ".jar").toFile(), "p/P" + i);
+            jars.put(pluginJar, new File(outputDir, pluginJar.getName()));
+        }
+
+        JarRemapper remapper = new JarRemapper(MappingLoader.load(createMappingFile(tempDir)));
+        remapper.prepareHierarchy(jars.keySet());
+        remapper.remapJars(jars, 4);
+
+        for (int i = 0; i < 8; i++) {
+            try (JarFile jar = new JarFile(new File(outputDir, "plugin" + i + ".jar"))) {
+                ClassNode classNode = new ClassNode();
+                new ClassReader(jar.getInputStream(jar.getEntry("p/P" + i + ".class")).readAllBytes())
+                        .accept(classNode, 0);
+                assertTrue(classNode.methods.stream().anyMatch(m -> m.name.equals("doWork")),
+                        "Override in p/P" + i + " should follow the inherited mapping");
+                MethodNode caller = classNode.methods.stream()
+                        .filter(m -> m.name.equals("call")).findFirst().orElseThrow();
+                List<String> calls = new ArrayList<>();
+                for (AbstractInsnNode insn : caller.instructions) {
+                    if (insn instanceof MethodInsnNode) {
+                        calls.add(((MethodInsnNode) insn).name);
+                    }
+                }
+                assertEquals(List.of("doWork", "doWork", "hashCode"), calls,
+                        "Inherited calls in p/P" + i + " should be remapped");
+            }
+        }
+    }
+
+    /**
+     * 创建继承 d/E 的类，重写 a()V，并分别经自身、d/E 调用 a()V 以及调用 JDK 方法
+     */
+    private File createCallerJar(File jarFile, String name) throws IOException {
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jarFile))) {
+            ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+            cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, "d/E", null);
+
+            MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "a", "()V", null, null);
+            mv.visitCode();
+            mv.visitInsn(Opcodes.RETURN);
+            mv.visitMaxs(0, 1);
+            mv.visitEnd();
+
+            mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "call", "()I", null, null);
+            mv.visitCode();
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, name, "a", "()V", false);
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "d/E", "a", "()V", false);
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Object", "hashCode", "()I", false);
+            mv.visitInsn(Opcodes.IRETURN);
+            mv.visitMaxs(1, 1);
+            mv.visitEnd();
+
+            cw.visitEnd();
+
+            jos.putNextEntry(new ZipEntry(name + ".class"));
+            jos.write(cw.toByteArray());
+            jos.closeEntry();
+        }
+        return jarFile;
+    }
+
+    @Test
+    public void testRemapWithFusedAnnotationInjection() throws IOException {
+        Path tempDir = getTestDir("fusedInjection");
+
+        MappingData mappingData = MappingLoader.load(createMappingFile(tempDir));
+        File obfuscatedJar = createObfuscatedJar(tempDir);
+
+        File remappedJar = tempDir.resolve("remapped.jar").toFile();
+        JarRemapper remapper = new JarRemapper(mappingData);
+        remapper.setAnnotationInjector(new AnnotationInjector(mappingData));
+        remapper.remapJar(obfuscatedJar, remappedJar);
+
+        try (JarFile jar = new JarFile(remappedJar)) {
+            ZipEntry entry = jar.getEntry("com/example/app/MainActivity.class");
+            assertNotNull(entry, "Should contain MainActivity");
+
+            ClassNode classNode = new ClassNode();
+            new ClassReader(jar.getInputStream(entry).readAllBytes()).accept(classNode, 0);
+
+            assertTrue(classNode.visibleAnnotations.stream()
+                            .anyMatch(a -> a.desc.endsWith("MappingInfo;")),
+                    "Class should be annotated during remapping");
+            assertTrue(classNode.fields.stream().anyMatch(f -> f.name.equals("mBinding")),
+                    "Field should be remapped");
+            assertTrue(classNode.methods.stream().anyMatch(m -> m.name.equals("onCreate")
+                            && m.visibleAnnotations != null && !m.visibleAnnotations.isEmpty()),
+                    "Method should be remapped and annotated");
+        }
+    }
+
     @Test
     public void testSmaliWorkflow() throws IOException {
         Path tempDir = getTestDir("smaliWorkflow");
@@ -1,7 +1,9 @@
 package com.ecaree.jarremapper;
 
+import com.ecaree.jarremapper.mapping.ClassHierarchy;
 import com.ecaree.jarremapper.mapping.MappingData;
 import com.ecaree.jarremapper.mapping.MappingLoader;
+import com.ecaree.jarremapper.remap.JavaRemapSession;
 import com.ecaree.jarremapper.remap.JavaRemapper;
 import com.ecaree.jarremapper.util.FileUtils;
 import lombok.extern.slf4j.Slf4j;
@@ -13,10 +15,16 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @Slf4j
@@ -479,6 +487,73 @@ public class JavaRemapperTest {
         assertTrue(outputFile.exists(), "Commented file should keep original path");
     }
 
+    @Test
+    public void testUnaffectedFileCopiedWithoutParsing() throws IOException {
+        File inputDir = tempDir.resolve("test-unaffected-input").toFile();
+        File outputDir = tempDir.resolve("test-unaffected-output").toFile();
+        createTestJavaFiles(inputDir);
+
+        File utilDir = new File(inputDir, "util");
+        FileUtils.ensureDirectory(utilDir);
+
+        // 映射标识符只出现在注释、字符串与字符字面量中
+        String plain = """
+                package util;
+                
+                /**
+                 * Wraps a.b and c
+                 */
+                public class Plain {
+                    private final String text = "a.b c";
+                    private final char ch = 'c';
+                
+                    public   String   getText() {
+                        return text + ch; // a.b
+                    }
+                }
+                """;
+        Files.writeString(new File(utilDir, "Plain.java").toPath(), plain);
+
+        JavaRemapper remapper = new JavaRemapper(mappingData);
+        int count = remapper.remapJavaSource(inputDir, outputDir);
+
+        assertEquals(3, count, "Should process 3 files");
+        assertEquals(1, remapper.getSkippedCount(), "Only Plain.java should skip parsing");
+
+        File plainFile = new File(outputDir, "util/Plain.java");
+        assertTrue(plainFile.exists(), "Unaffected file should keep original path");
+        assertEquals(plain, Files.readString(plainFile.toPath()),
+                "Unaffected file should be copied byte for byte");
+
+        assertNotNull(findJavaFile(outputDir, "TestClass.java"), "Affected files should still be remapped");
+    }
+
+    @Test
+    public void testMemoryBoundedModeMatchesDefault() throws IOException {
+        File inputDir = tempDir.resolve("test-bounded-input").toFile();
+        File defaultOutput = tempDir.resolve("test-bounded-default").toFile();
+        File boundedOutput = tempDir.resolve("test-bounded-output").toFile();
+        createTestJavaFiles(inputDir);
+
+        new JavaRemapper(mappingData).remapJavaSource(inputDir, defaultOutput);
+
+        JavaRemapper bounded = new JavaRemapper(mappingData);
+        bounded.setMemoryBounded(true);
+        bounded.setTypeSolverCacheSize(1);
+        // 水位为 0 时总是超过水位，会重建会话的解析器
+        bounded.setHeapWatermark(0);
+        int count = bounded.remapJavaSource(inputDir, boundedOutput);
+
+        assertEquals(2, count, "Should process 2 files");
+        for (String name : new String[]{"TestClass.java", "Helper.java"}) {
+            File expected = findJavaFile(defaultOutput, name);
+            File actual = findJavaFile(boundedOutput, name);
+            assertNotNull(actual, name + " should exist");
+            assertEquals(Files.readString(expected.toPath()), Files.readString(actual.toPath()),
+                    name + " should match default mode output");
+        }
+    }
+
     @Test
     public void testRemapEnumDeclaration() throws IOException {
         File inputDir = tempDir.resolve("test-enum-input").toFile();
@@ -1655,6 +1730,322 @@ public class JavaRemapperTest {
                 "Deeply nested generic types should be remapped");
     }
 
+    @Test
+    public void testRemapOverloadedMethodCalls() throws IOException {
+        File inputDir = tempDir.resolve("test-overload-input").toFile();
+        File outputDir = tempDir.resolve("test-overload-output").toFile();
+
+        File packageDir = new File(inputDir, "a");
+        FileUtils.ensureDirectory(packageDir);
+
+        String yaml = """
+                version: "1.0"
+                
+                classes:
+                  - obfuscated: a/b
+                    readable: com/example/TestClass
+                
+                    methods:
+                      - obfuscated: a
+                        readable: setInt
+                        descriptor: (I)V
+                
+                      - obfuscated: a
+                        readable: setText
+                        descriptor: (Ljava/lang/String;)V
+                
+                      - obfuscated: a
+                        readable: reset
+                        descriptor: ()V
+                
+                      - obfuscated: a
+                        readable: setPair
+                        descriptor: (JJ)V
+                
+                  - obfuscated: a/c
+                    readable: com/example/Helper
+                """;
+        File yamlFile = tempDir.resolve("mappings-overload.yaml").toFile();
+        Files.writeString(yamlFile.toPath(), yaml);
+        MappingData overloadMappingData = MappingLoader.loadYaml(yamlFile);
+
+        String classB = """
+                package a;
+                
+                public class b {
+                    public void a(int value) {}
+                
+                    public void a(String value) {}
+                
+                    public void a() {}
+                
+                    public void a(long first, long second) {}
+                
+                    public void init() {
+                        a();
+                        a(1);
+                        this.a("text");
+                    }
+                }
+                """;
+        Files.writeString(new File(packageDir, "b.java").toPath(), classB);
+
+        String classC = """
+                package a;
+                
+                public class c {
+                    public void use(b target, String name) {
+                        target.a(name);
+                        target.a(2);
+                        target.a(1L, 2L);
+                        target.a();
+                    }
+                }
+                """;
+        Files.writeString(new File(packageDir, "c.java").toPath(), classC);
+
+        JavaRemapper remapper = new JavaRemapper(overloadMappingData);
+        remapper.remapJavaSource(inputDir, outputDir);
+
+        File classFile = findJavaFile(outputDir, "TestClass.java");
+        assertNotNull(classFile, "TestClass.java should exist");
+        String content = Files.readString(classFile.toPath());
+        log.info("Overload declaration test:\n{}", content);
+
+        assertTrue(content.contains("void setInt(int value)"), "a(int) should be remapped to setInt");
+        assertTrue(content.contains("void setText(String value)"), "a(String) should be remapped to setText");
+        assertTrue(content.contains("void reset()"), "a() should be remapped to reset");
+        assertTrue(content.contains("void setPair(long first, long second)"), "a(long, long) should be remapped to setPair");
+        assertTrue(content.contains("reset();"), "Unscoped a() call should be remapped to reset");
+        assertTrue(content.contains("setInt(1);"), "Unscoped a(1) call should be remapped to setInt");
+        assertTrue(content.contains("this.setText(\"text\");"), "this.a(String) call should be remapped to setText");
+
+        File helperFile = findJavaFile(outputDir, "Helper.java");
+        assertNotNull(helperFile, "Helper.java should exist");
+        String helperContent = Files.readString(helperFile.toPath());
+        log.info("Overload call test:\n{}", helperContent);
+
+        assertTrue(helperContent.contains("target.setText(name);"), "a(String) call should be remapped to setText");
+        assertTrue(helperContent.contains("target.setInt(2);"), "a(int) call should be remapped to setInt");
+        assertTrue(helperContent.contains("target.setPair(1L, 2L);"), "a(long, long) call should be remapped to setPair");
+        assertTrue(helperContent.contains("target.reset();"), "a() call should be remapped to reset");
+    }
+
+    @Test
+    public void testRemapCallToUnmappedOverload() throws IOException {
+        File inputDir = tempDir.resolve("test-unmapped-overload-input").toFile();
+        File outputDir = tempDir.resolve("test-unmapped-overload-output").toFile();
+
+        File packageDir = new File(inputDir, "a");
+        FileUtils.ensureDirectory(packageDir);
+
+        // 只映射 a(int)，a(String) 没有映射
+        String yaml = """
+                version: "1.0"
+                
+                classes:
+                  - obfuscated: a/b
+                    readable: com/example/TestClass
+                
+                    methods:
+                      - obfuscated: a
+                        readable: setInt
+                        descriptor: (I)V
+                
+                  - obfuscated: a/c
+                    readable: com/example/Helper
+                """;
+        File yamlFile = tempDir.resolve("mappings-unmapped-overload.yaml").toFile();
+        Files.writeString(yamlFile.toPath(), yaml);
+        MappingData overloadMappingData = MappingLoader.loadYaml(yamlFile);
+
+        Files.writeString(new File(packageDir, "b.java").toPath(), """
+                package a;
+                
+                public class b {
+                    public void a(int value) {}
+                
+                    public void a(String value) {}
+                }
+                """);
+        Files.writeString(new File(packageDir, "c.java").toPath(), """
+                package a;
+                
+                public class c {
+                    public void use(b target) {
+                        target.a("text");
+                        target.a(1);
+                    }
+                }
+                """);
+
+        new JavaRemapper(overloadMappingData).remapJavaSource(inputDir, outputDir);
+
+        String classContent = Files.readString(findJavaFile(outputDir, "TestClass.java").toPath());
+        assertTrue(classContent.contains("void setInt(int value)"), "a(int) should be remapped to setInt");
+        assertTrue(classContent.contains("void a(String value)"), "Unmapped a(String) should keep its name");
+
+        String helperContent = Files.readString(findJavaFile(outputDir, "Helper.java").toPath());
+        assertTrue(helperContent.contains("target.a(\"text\");"), "Call to unmapped a(String) should keep its name");
+        assertTrue(helperContent.contains("target.setInt(1);"), "Call to a(int) should be remapped to setInt");
+    }
+
+    @Test
+    public void testRemapInheritedOverloadCall() throws IOException {
+        File inputDir = tempDir.resolve("test-inherited-overload-input").toFile();
+        File outputDir = tempDir.resolve("test-inherited-overload-output").toFile();
+
+        File packageDir = new File(inputDir, "a");
+        FileUtils.ensureDirectory(packageDir);
+
+        // 子类 d 只映射 a(int)，a(String) 继承自 b
+        String yaml = """
+                version: "1.0"
+                
+                classes:
+                  - obfuscated: a/b
+                    readable: com/example/Base
+                
+                    methods:
+                      - obfuscated: a
+                        readable: setText
+                        descriptor: (Ljava/lang/String;)V
+                
+                  - obfuscated: a/d
+                    readable: com/example/Derived
+                
+                    methods:
+                      - obfuscated: a
+                        readable: setInt
+                        descriptor: (I)V
+                
+                  - obfuscated: a/c
+                    readable: com/example/Helper
+                """;
+        File yamlFile = tempDir.resolve("mappings-inherited-overload.yaml").toFile();
+        Files.writeString(yamlFile.toPath(), yaml);
+        MappingData inheritedMappingData = MappingLoader.loadYaml(yamlFile);
+        ClassHierarchy hierarchy = new ClassHierarchy();
+        hierarchy.addClass("a/b", List.of("java/lang/Object"));
+        hierarchy.addClass("a/d", List.of("a/b"));
+        inheritedMappingData.setClassHierarchy(hierarchy);
+
+        Files.writeString(new File(packageDir, "b.java").toPath(), """
+                package a;
+                
+                public class b {
+                    public void a(String value) {}
+                }
+                """);
+        Files.writeString(new File(packageDir, "d.java").toPath(), """
+                package a;
+                
+                public class d extends b {
+                    public void a(int value) {}
+                }
+                """);
+        Files.writeString(new File(packageDir, "c.java").toPath(), """
+                package a;
+                
+                public class c {
+                    public void use(d target) {
+                        target.a("text");
+                        target.a(1);
+                    }
+                }
+                """);
+
+        new JavaRemapper(inheritedMappingData).remapJavaSource(inputDir, outputDir);
+
+        String helperContent = Files.readString(findJavaFile(outputDir, "Helper.java").toPath());
+        assertTrue(helperContent.contains("target.setText(\"text\");"),
+                "Inherited a(String) should keep the parent's mapping");
+        assertTrue(helperContent.contains("target.setInt(1);"), "Own a(int) should use the subclass mapping");
+    }
+
+    @Test
+    public void testSessionRemapString() throws Exception {
+        File inputDir = tempDir.resolve("test-session-input").toFile();
+        createTestJavaFiles(inputDir);
+        String classB = Files.readString(new File(inputDir, "a/b.java").toPath());
+
+        JavaRemapper remapper = new JavaRemapper(mappingData);
+        try (JavaRemapSession session = remapper.openSession(inputDir)) {
+            String first = session.remapString(classB);
+            log.info("Session remap result:\n{}", first);
+
+            assertTrue(first.contains("class TestClass"), "Class name should be remapped");
+            assertTrue(first.contains("getHelper()"), "Method name should be remapped");
+            assertEquals(first, session.remapFile(new File(inputDir, "a/b.java").toPath()),
+                    "remapFile should match remapString");
+
+            String plain = "package util;\n\npublic class Plain {\n}\n";
+            assertEquals(plain, session.remapString(plain), "Unaffected source should be returned as-is");
+
+            // 多个线程共享同一个会话，期间重置缓存
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<String>> futures = new ArrayList<>();
+                for (int i = 0; i < 16; i++) {
+                    int index = i;
+                    futures.add(executor.submit(() -> {
+                        if (index % 5 == 0) {
+                            session.resetCaches();
+                        }
+                        return session.remapString(classB);
+                    }));
+                }
+                for (Future<String> future : futures) {
+                    assertEquals(first, future.get(), "Concurrent calls on one session should produce the same output");
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testParallelRemapMatchesSerial() throws IOException {
+        File inputDir = tempDir.resolve("test-parallel-input").toFile();
+        File serialOutput = tempDir.resolve("test-parallel-serial").toFile();
+        File parallelOutput = tempDir.resolve("test-parallel-output").toFile();
+        createTestJavaFiles(inputDir);
+
+        new JavaRemapper(mappingData).remapJavaSource(inputDir, serialOutput);
+
+        JavaRemapper parallel = new JavaRemapper(mappingData);
+        parallel.setParallelism(4);
+        parallel.setMemoryBounded(true);
+        // 水位为 0 时总是超过水位，降为单线程并重建源码目录的解析器
+        parallel.setHeapWatermark(0);
+        int count = parallel.remapJavaSource(inputDir, parallelOutput);
+
+        assertEquals(2, count, "Should process 2 files");
+        for (String name : new String[]{"TestClass.java", "Helper.java"}) {
+            File expected = findJavaFile(serialOutput, name);
+            File actual = findJavaFile(parallelOutput, name);
+            assertNotNull(actual, name + " should exist");
+            assertEquals(Files.readString(expected.toPath()), Files.readString(actual.toPath()),
+                    name + " should match serial output");
+        }
+    }
+
+    @Test
+    public void testSessionRejectsCallsAfterClose() throws IOException {
+        File inputDir = tempDir.resolve("test-session-closed-input").toFile();
+        createTestJavaFiles(inputDir);
+
+        JavaRemapSession session = new JavaRemapper(mappingData).openSession(inputDir);
+        session.close();
+        session.close();
+
+        String plain = "package util;\n\npublic class Plain {\n}\n";
+        assertThrows(IllegalStateException.class, () -> session.remapString(plain),
+                "Closed session should reject even unaffected sources");
+        assertThrows(IllegalStateException.class, () -> session.remapFile(new File(inputDir, "a/b.java").toPath()));
+        assertThrows(IllegalStateException.class, session::resetCaches);
+    }
+
     private File findJavaFile(File dir, String fileName) {
         if (!dir.exists()) return null;
 
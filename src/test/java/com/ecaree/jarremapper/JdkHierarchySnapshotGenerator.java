@@ -0,0 +1,130 @@
+package com.ecaree.jarremapper;
+
+import com.ecaree.jarremapper.mapping.ClassHierarchy;
+import com.ecaree.jarremapper.mapping.JdkHierarchySnapshot;
+import com.ecaree.jarremapper.util.ZipReader;
+import lombok.extern.slf4j.Slf4j;
+import org.objectweb.asm.ClassReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 从 JDK 生成 {@link JdkHierarchySnapshot} 打包的快照，只在构建插件时使用，不随插件发布
+ * 由 generateJdkHierarchySnapshot 任务运行：
+ * ./gradlew generateJdkHierarchySnapshot -PjavaHome=&lt;javaHome&gt;
+ */
+@Slf4j
+public final class JdkHierarchySnapshotGenerator {
+    private JdkHierarchySnapshotGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: JdkHierarchySnapshotGenerator <javaHome> <outputDir>");
+        }
+        File javaHome = new File(args[0]);
+        int javaVersion = readJavaVersion(javaHome);
+        ClassHierarchy hierarchy = fromJavaHome(javaHome);
+
+        File output = new File(args[1], "java" + javaVersion + ".bin");
+        Files.createDirectories(output.getParentFile().toPath());
+        try (OutputStream out = Files.newOutputStream(output.toPath())) {
+            JdkHierarchySnapshot.write(hierarchy, javaVersion, out);
+        }
+        log.info("Wrote {} classes to {}", hierarchy.size(), output);
+    }
+
+    /**
+     * 从 JDK 读取 java.* 与 javax.* 的继承关系
+     * Java 8 读取 jre/lib 下的 JAR，Java 9+ 通过 jrt 文件系统读取模块镜像
+     */
+    static ClassHierarchy fromJavaHome(File javaHome) throws IOException {
+        ClassHierarchy hierarchy = new ClassHierarchy();
+        File jreLib = new File(javaHome, "jre/lib");
+        if (new File(jreLib, "rt.jar").isFile()) {
+            File[] jars = jreLib.listFiles((dir, name) -> name.endsWith(".jar"));
+            if (jars != null) {
+                for (File jar : jars) {
+                    addJdkClasses(hierarchy, jar);
+                }
+            }
+            return hierarchy;
+        }
+
+        Map<String, String> env = Collections.singletonMap("java.home", javaHome.getAbsolutePath());
+        try (FileSystem jrt = FileSystems.newFileSystem(URI.create("jrt:/"), env)) {
+            Files.walkFileTree(jrt.getPath("/modules"), new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    // /modules/<模块名>/<类路径>
+                    if (file.getNameCount() > 2 && isJdkClass(file.subpath(2, file.getNameCount()).toString())) {
+                        addJdkClass(hierarchy, Files.readAllBytes(file));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        return hierarchy;
+    }
+
+    private static void addJdkClasses(ClassHierarchy hierarchy, File jar) throws IOException {
+        try (ZipReader reader = new ZipReader(jar)) {
+            for (ZipReader.Entry entry : reader.getEntries()) {
+                if (!entry.isDirectory() && isJdkClass(entry.getName())) {
+                    addJdkClass(hierarchy, reader.readData(entry));
+                }
+            }
+        }
+    }
+
+    private static void addJdkClass(ClassHierarchy hierarchy, byte[] classBytes) {
+        ClassReader reader = new ClassReader(classBytes);
+        List<String> parents = new ArrayList<>();
+        if (reader.getSuperName() != null) {
+            parents.add(reader.getSuperName());
+        }
+        Collections.addAll(parents, reader.getInterfaces());
+        hierarchy.addClass(reader.getClassName(), parents);
+    }
+
+    private static boolean isJdkClass(String path) {
+        return path.endsWith(".class")
+                && !path.endsWith("module-info.class")
+                && (path.startsWith("java/") || path.startsWith("javax/"));
+    }
+
+    /**
+     * 读取 JDK 的 release 文件获取主版本号
+     */
+    static int readJavaVersion(File javaHome) throws IOException {
+        for (String line : Files.readAllLines(new File(javaHome, "release").toPath(), StandardCharsets.UTF_8)) {
+            if (line.startsWith("JAVA_VERSION=")) {
+                String version = line.substring("JAVA_VERSION=".length()).replace("\"", "");
+                if (version.startsWith("1.")) {
+                    version = version.substring(2);
+                }
+                int end = 0;
+                while (end < version.length() && Character.isDigit(version.charAt(end))) {
+                    end++;
+                }
+                return Integer.parseInt(version.substring(0, end));
+            }
+        }
+        throw new IOException("JAVA_VERSION not found in " + javaHome + "/release");
+    }
+}
@@ -1,6 +1,7 @@
 package com.ecaree.jarremapper;
 
 import com.ecaree.jarremapper.mapping.MappingChain;
+import com.ecaree.jarremapper.mapping.MappingChainCache;
 import com.ecaree.jarremapper.mapping.MappingData;
 import com.ecaree.jarremapper.mapping.MappingLoader;
 import org.junit.jupiter.api.Test;
@@ -10,8 +11,11 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -252,4 +256,69 @@ public class MappingChainTest {
 
         assertEquals("d/D", merged.mapClass("a/A"), "Three-step chain: a/A should map to d/D");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testComposedChainCache() throws IOException {
+        File mapping1 = tempDir.resolve("a_to_b.yaml").toFile();
+        Files.writeString(mapping1.toPath(), """
+                version: "1.0"
+                
+                classes:
+                  - obfuscated: a/A
+                    readable: b/B
+                    comment: "类注释"
+                
+                    fields:
+                      - obfuscated: x
+                        readable: y
+                        type: La/A;
+                
+                    methods:
+                      - obfuscated: m
+                        readable: n
+                        descriptor: (La/A;)V
+                        comment: "方法注释"
+                """);
+
+        File mapping2 = tempDir.resolve("b_to_c.yaml").toFile();
+        Files.writeString(mapping2.toPath(), """
+                version: "1.0"
+                
+                classes:
+                  - obfuscated: b/B
+                    readable: c/C
+                """);
+
+        File cacheDir = tempDir.resolve("cache").toFile();
+        String key = MappingChainCache.key(Arrays.asList(mapping1, mapping2), "forward", "forward");
+        AtomicInteger compositions = new AtomicInteger();
+        MappingChainCache.Composer composer = () -> {
+            compositions.incrementAndGet();
+            return new MappingChain()
+                    .add(MappingLoader.load(mapping1))
+                    .add(MappingLoader.load(mapping2))
+                    .merge();
+        };
+
+        MappingData composed = new MappingChainCache(cacheDir).load(key, composer);
+        MappingData cached = new MappingChainCache(cacheDir).load(key, composer);
+        assertEquals(1, compositions.get(), "Second load should read the composed chain from cache");
+
+        assertEquals(composed.getJarMapping().classes, cached.getJarMapping().classes, "Classes should round-trip");
+        assertEquals(composed.getJarMapping().fields, cached.getJarMapping().fields, "Fields should round-trip");
+        assertEquals(composed.getJarMapping().methods, cached.getJarMapping().methods, "Methods should round-trip");
+        assertEquals(composed.getEntries().keySet(), cached.getEntries().keySet(), "Entries should round-trip");
+        assertEquals("c/C", cached.mapClass("a/A"), "Cached chain should map a/A to c/C");
+        assertEquals("n", cached.mapMethod("a/A", "m", "(La/A;)V"), "Cached chain should map methods");
+        assertEquals("类注释", cached.getClassEntry("c/C").getComment(), "Comments should round-trip");
+
+        Files.writeString(mapping2.toPath(), Files.readString(mapping2.toPath()).replace("c/C", "d/D"));
+        String changedKey = MappingChainCache.key(Arrays.asList(mapping1, mapping2), "forward", "forward");
+        assertNotEquals(key, changedKey, "Changed input should change the key");
+        assertNotEquals(key, MappingChainCache.key(Arrays.asList(mapping1, mapping2), "reverse", "forward"),
+                "Changed options should change the key");
+        assertEquals("d/D", new MappingChainCache(cacheDir).load(changedKey, composer).mapClass("a/A"),
+                "Changed input should be composed again");
+        assertEquals(2, compositions.get(), "Changed input should not hit the cache");
+    }
+}
@@ -1,6 +1,10 @@
 package com.ecaree.jarremapper;
 
+import com.ecaree.jarremapper.mapping.Downloader;
+import com.ecaree.jarremapper.mapping.MappingCache;
 import com.ecaree.jarremapper.mapping.MappingResolver;
+import com.ecaree.jarremapper.mapping.MetadataCache;
+import com.sun.net.httpserver.HttpServer;
 import org.gradle.testkit.runner.BuildResult;
 import org.gradle.testkit.runner.GradleRunner;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,10 +14,29 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class MappingResolverTest {
@@ -39,6 +62,376 @@ public class MappingResolverTest {
                 .build();
     }
 
+    /**
+     * 本地 HTTP 服务，按路径返回固定内容并统计请求次数
+     */
+    private HttpServer startServer(Map<String, byte[]> contents, Map<String, AtomicInteger> requests) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+            AtomicInteger counter = requests.computeIfAbsent(entry.getKey(), k -> new AtomicInteger());
+            server.createContext(entry.getKey(), exchange -> {
+                counter.incrementAndGet();
+                byte[] body = entry.getValue();
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            });
+        }
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+    private static String sha1(byte[] data) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(data));
+    }
+
+    @Test
+    public void testMappingCacheVerifiesAndSharesDownloads() throws Exception {
+        byte[] mapping = "a.b -> com.example.TestClass:\n".getBytes(StandardCharsets.UTF_8);
+        String sha1 = sha1(mapping);
+        Map<String, AtomicInteger> requests = new HashMap<>();
+        HttpServer server = startServer(Map.of("/client.txt", mapping), requests);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/client.txt");
+            File cacheDir = new File(projectDir, "cache");
+
+            // 模拟多个守护进程同时请求同一条目
+            List<Future<File>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> new MappingCache(cacheDir).download(url, sha1, "client.txt")));
+            }
+            for (Future<File> future : futures) {
+                assertEquals(new File(cacheDir, sha1 + "/client.txt"), future.get(), "Entry should be keyed by SHA-1");
+                assertTrue(Files.readString(future.get().toPath()).contains("TestClass"), "Entry should be complete");
+            }
+            assertEquals(1, requests.get("/client.txt").get(), "Concurrent requests should download once");
+
+            String wrongSha1 = "0000000000000000000000000000000000000000";
+            IOException e = assertThrows(IOException.class,
+                    () -> new MappingCache(cacheDir).download(url, wrongSha1, "client.txt"));
+            assertTrue(e.getMessage().contains("SHA-1 mismatch"), "Corrupt download should be rejected");
+            assertNull(new MappingCache(cacheDir).find(wrongSha1, "client.txt"), "Corrupt download should not be cached");
+            assertFalse(new File(cacheDir, wrongSha1).list((dir, name) -> name.endsWith(".tmp")).length > 0,
+                    "Temporary files should be removed");
+        } finally {
+            executor.shutdownNow();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testDownloaderResumesInterruptedDownload() throws Exception {
+        byte[] mapping = ("a.b -> com.example.TestClass:\n" + "    int a -> value\n".repeat(4096))
+                .getBytes(StandardCharsets.UTF_8);
+        String sha1 = sha1(mapping);
+        int cut = mapping.length / 2;
+        List<String> ranges = new ArrayList<>();
+        AtomicInteger missingRequests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/client.txt", exchange -> {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            synchronized (ranges) {
+                ranges.add(String.valueOf(range));
+                if (ranges.size() == 1) {
+                    // 首次请求只发送一半内容后断开
+                    exchange.sendResponseHeaders(200, mapping.length);
+                    exchange.getResponseBody().write(mapping, 0, cut);
+                    exchange.getResponseBody().flush();
+                    exchange.close();
+                    return;
+                }
+            }
+            int start = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+            exchange.getResponseHeaders().set("Content-Range",
+                    "bytes " + start + "-" + (mapping.length - 1) + "/" + mapping.length);
+            exchange.sendResponseHeaders(206, mapping.length - start);
+            exchange.getResponseBody().write(mapping, start, mapping.length - start);
+            exchange.close();
+        });
+        server.createContext("/missing.txt", exchange -> {
+            missingRequests.incrementAndGet();
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        try {
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            Downloader downloader = new Downloader();
+            downloader.setRetryDelay(10);
+            MappingCache cache = new MappingCache(new File(projectDir, "cache"));
+            cache.setDownloader(downloader);
+
+            File file = cache.download(new URL(base + "/client.txt"), sha1, "client.txt");
+            assertArrayEquals(mapping, Files.readAllBytes(file.toPath()), "Resumed download should be complete");
+            assertEquals(List.of("null", "bytes=" + cut + "-"), ranges, "Retry should resume from the partial file");
+            assertFalse(new File(file.getParentFile(), "client.txt.part").exists(), "Partial file should be moved");
+
+            assertThrows(IOException.class, () -> cache.download(new URL(base + "/missing.txt"), sha1, "missing.txt"));
+            assertEquals(1, missingRequests.get(), "Client errors should not be retried");
+
+            List<Downloader.Task<Integer>> tasks = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int n = i;
+                tasks.add(() -> n * n);
+            }
+            assertEquals(List.of(0, 1, 4, 9, 16, 25, 36, 49), downloader.invokeAll(tasks),
+                    "Parallel results should keep task order");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testMetadataCacheRetriesTransientFailures() throws Exception {
+        byte[] manifest = "{\"versions\":[]}".getBytes(StandardCharsets.UTF_8);
+        AtomicInteger manifestRequests = new AtomicInteger();
+        AtomicInteger missingRequests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/manifest.json", exchange -> {
+            // 前两次请求返回 503，之后正常返回
+            if (manifestRequests.incrementAndGet() <= 2) {
+                exchange.sendResponseHeaders(503, -1);
+            } else {
+                exchange.sendResponseHeaders(200, manifest.length);
+                exchange.getResponseBody().write(manifest);
+            }
+            exchange.close();
+        });
+        server.createContext("/missing.json", exchange -> {
+            missingRequests.incrementAndGet();
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        try {
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            Downloader downloader = new Downloader();
+            downloader.setRetryDelay(10);
+            MetadataCache cache = new MetadataCache(new File(projectDir, "meta"));
+            cache.setDownloader(downloader);
+
+            File file = cache.get(new URL(base + "/manifest.json"), "manifest.json", false);
+            assertArrayEquals(manifest, Files.readAllBytes(file.toPath()), "Manifest should be fetched after retries");
+            assertEquals(3, manifestRequests.get(), "Server errors should be retried");
+
+            assertThrows(IOException.class, () -> cache.get(new URL(base + "/missing.json"), "missing.json", false));
+            assertEquals(1, missingRequests.get(), "Client errors should not be retried");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testMetadataCacheKeepsCacheOnTruncatedBody() throws Exception {
+        byte[] first = "{\"versions\":[]}".getBytes(StandardCharsets.UTF_8);
+        byte[] second = ("{\"versions\":[" + "{\"id\":\"1.0\"},".repeat(1000) + "{\"id\":\"1.1\"}]}")
+                .getBytes(StandardCharsets.UTF_8);
+        AtomicInteger requests = new AtomicInteger();
+        List<String> conditions = new ArrayList<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/manifest.json", exchange -> {
+            int n = requests.incrementAndGet();
+            synchronized (conditions) {
+                conditions.add(String.valueOf(exchange.getRequestHeaders().getFirst("If-None-Match")));
+            }
+            if (n == 1) {
+                exchange.getResponseHeaders().set("ETag", "\"v1\"");
+                exchange.sendResponseHeaders(200, first.length);
+                exchange.getResponseBody().write(first);
+            } else if (n <= 4) {
+                // 新版本只发送一半内容后断开
+                exchange.getResponseHeaders().set("ETag", "\"v2\"");
+                exchange.sendResponseHeaders(200, second.length);
+                exchange.getResponseBody().write(second, 0, second.length / 2);
+                exchange.getResponseBody().flush();
+            } else {
+                exchange.getResponseHeaders().set("ETag", "\"v2\"");
+                exchange.sendResponseHeaders(200, second.length);
+                exchange.getResponseBody().write(second);
+            }
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        try {
+            URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/manifest.json");
+            Downloader downloader = new Downloader();
+            downloader.setRetryDelay(10);
+            downloader.setMaxAttempts(3);
+            MetadataCache cache = new MetadataCache(new File(projectDir, "meta"));
+            cache.setDownloader(downloader);
+
+            File file = cache.get(url, "manifest.json", false);
+            assertArrayEquals(first, Files.readAllBytes(file.toPath()));
+
+            // 重试后仍不完整，使用未被替换的缓存
+            file = cache.get(url, "manifest.json", false);
+            assertArrayEquals(first, Files.readAllBytes(file.toPath()), "Truncated body should not replace the cache");
+            assertEquals(4, requests.get(), "Truncated bodies should be retried");
+
+            // 校验头未被改写，下次仍按旧的 ETag 重新验证
+            file = cache.get(url, "manifest.json", false);
+            assertArrayEquals(second, Files.readAllBytes(file.toPath()), "Complete body should replace the cache");
+            assertEquals(List.of("null", "\"v1\"", "\"v1\"", "\"v1\"", "\"v1\""), conditions);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testMojangMappingsFromLocalServer() throws Exception {
+        // 唯一的版本号与内容，映射的 SHA-1 每次不同，不会命中 TestKit 共用的 Gradle 用户目录中上次的缓存
+        String version = "test-" + UUID.randomUUID();
+        byte[] mapping = ("# " + version + "\na.b -> com.example.TestClass:\n").getBytes(StandardCharsets.UTF_8);
+        Map<String, byte[]> contents = new HashMap<>();
+        Map<String, AtomicInteger> requests = new HashMap<>();
+        contents.put("/client.txt", mapping);
+        HttpServer server = startServer(contents, requests);
+        try {
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            server.createContext("/manifest.json", exchange -> {
+                byte[] body = ("{\"versions\":[{\"id\":\"" + version + "\",\"url\":\"" + base + "/version.json\"}]}")
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            });
+            String sha1 = sha1(mapping);
+            server.createContext("/version.json", exchange -> {
+                byte[] body = ("{\"downloads\":{\"client_mappings\":{\"sha1\":\"" + sha1
+                        + "\",\"url\":\"" + base + "/client.txt\"}}}").getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            });
+
+            String buildScript = """
+                    plugins {
+                        id 'java'
+                        id 'com.ecaree.jarremapper'
+                    }
+                    
+                    import com.ecaree.jarremapper.mapping.MappingResolver
+                    
+                    tasks.register('testLocalMojang') {
+                        doLast {
+                            def resolver = new MappingResolver(project)
+                            resolver.versionManifestUrl = '%s/manifest.json'
+                            def mappings = resolver.resolveMojangMappings('%s', 'client')
+                            assert mappings.text.contains('TestClass') : "Mappings should be downloaded"
+                            assert mappings.parentFile.name == '%s' : "Mappings should be keyed by SHA-1"
+                            println "SUCCESS"
+                        }
+                    }
+                    """.formatted(base, version, sha1);
+
+            assertTrue(runGradleTask("testLocalMojang", buildScript).getOutput().contains("SUCCESS"),
+                    "Mojang mappings should resolve from local server");
+            assertEquals(1, requests.get("/client.txt").get(), "Mappings should be downloaded once");
+
+            assertTrue(runGradleTask("testLocalMojang", buildScript).getOutput().contains("SUCCESS"),
+                    "Cached Mojang mappings should resolve");
+            assertEquals(1, requests.get("/client.txt").get(), "Cached mappings should not be downloaded again");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testMojangManifestRevalidationAndOffline() throws Exception {
+        // 唯一的版本号与 ETag，避免 TestKit 共用的 Gradle 用户目录中残留上次的缓存
+        String version = "test-" + UUID.randomUUID();
+        String etag = "\"" + UUID.randomUUID() + "\"";
+        byte[] mapping = ("# " + version + "\na.b -> com.example.TestClass:\n").getBytes(StandardCharsets.UTF_8);
+        Map<String, AtomicInteger> requests = new HashMap<>();
+        HttpServer server = startServer(Map.of("/client.txt", mapping), requests);
+        AtomicInteger manifestRequests = new AtomicInteger();
+        AtomicInteger notModified = new AtomicInteger();
+        try {
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            byte[] versionJson = ("{\"downloads\":{\"client\":{\"url\":\"" + base + "/client.jar\"},"
+                    + "\"client_mappings\":{\"sha1\":\"" + sha1(mapping) + "\",\"url\":\"" + base + "/client.txt\"}}}")
+                    .getBytes(StandardCharsets.UTF_8);
+            byte[] manifest = ("{\"latest\":{},\"versions\":["
+                    + "{\"id\":\"other\",\"url\":\"" + base + "/other.json\",\"sha1\":\"0\"},"
+                    + "{\"id\":\"" + version + "\",\"url\":\"" + base + "/version.json\",\"sha1\":\"" + sha1(versionJson) + "\"}]}")
+                    .getBytes(StandardCharsets.UTF_8);
+            AtomicInteger versionRequests = new AtomicInteger();
+            server.createContext("/version.json", exchange -> {
+                versionRequests.incrementAndGet();
+                exchange.sendResponseHeaders(200, versionJson.length);
+                exchange.getResponseBody().write(versionJson);
+                exchange.close();
+            });
+            server.createContext("/manifest.json", exchange -> {
+                manifestRequests.incrementAndGet();
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    notModified.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                exchange.getResponseHeaders().add("ETag", etag);
+                exchange.sendResponseHeaders(200, manifest.length);
+                exchange.getResponseBody().write(manifest);
+                exchange.close();
+            });
+
+            String buildScript = """
+                    plugins {
+                        id 'java'
+                        id 'com.ecaree.jarremapper'
+                    }
+                    
+                    import com.ecaree.jarremapper.mapping.MappingResolver
+                    
+                    tasks.register('testManifestCache') {
+                        doLast {
+                            def ref = new File(gradle.gradleUserHomeDir, 'caches/jarremapper/mojang-mappings/refs/%2$s-client.txt')
+                            def resolver = new MappingResolver(project)
+                            resolver.versionManifestUrl = '%1$s/manifest.json'
+                            def first = resolver.resolveMojangMappings('%2$s', 'client')
+                            assert resolver.resolveMojangMappings('%2$s', 'client') == first : "Warm resolution should hit the cache"
+                    
+                            // 没有引用时重新验证清单，服务端返回 304
+                            ref.delete()
+                            assert resolver.resolveMojangMappings('%2$s', 'client') == first : "Revalidated manifest should be reused"
+                    
+                            // 离线模式只使用缓存的清单与版本 JSON
+                            ref.delete()
+                            def offline = new MappingResolver(project)
+                            offline.versionManifestUrl = '%1$s/manifest.json'
+                            offline.offline = true
+                            assert offline.resolveMojangMappings('%2$s', 'client') == first : "Offline resolution should use the cache"
+                    
+                            try {
+                                offline.resolveMojangMappings('%2$s-missing', 'client')
+                                throw new GradleException("Should have failed offline")
+                            } catch (IOException e) {
+                                println "OFFLINE_MISS=" + e.message
+                            }
+                            println "SUCCESS"
+                        }
+                    }
+                    """.formatted(base, version);
+
+            var result = runGradleTask("testManifestCache", buildScript);
+            assertTrue(result.getOutput().contains("SUCCESS"), "Manifest cache test should pass");
+            assertTrue(result.getOutput().contains("OFFLINE_MISS=Version not found in manifest"),
+                    "Unknown versions should fail offline without network access");
+            assertEquals(2, manifestRequests.get(), "Manifest should be fetched once and revalidated once");
+            assertEquals(1, notModified.get(), "Revalidation should be answered with 304");
+            assertEquals(1, versionRequests.get(), "Version JSON should be downloaded once");
+            assertEquals(1, requests.get("/client.txt").get(), "Mappings should be downloaded once");
+        } finally {
+            server.stop(0);
+        }
+    }
+
     @Test
     public void testNormalizeSpigotVersion() {
         assertEquals("1.20.1-R0.1-SNAPSHOT", MappingResolver.normalizeSpigotVersion("1.20.1"),
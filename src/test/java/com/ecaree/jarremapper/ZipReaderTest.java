@@ -0,0 +1,191 @@
+package com.ecaree.jarremapper;
+
+import com.ecaree.jarremapper.util.ZipReader;
+import com.ecaree.jarremapper.util.ZipWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ZipReaderTest {
+    @TempDir
+    Path tempDir;
+
+    private Map<String, byte[]> createEntries() {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        Random random = new Random(42);
+        byte[] noise = new byte[200_000];
+        random.nextBytes(noise);
+        entries.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+        entries.put("a/b.class", "class data ".repeat(1000).getBytes(StandardCharsets.UTF_8));
+        entries.put("res/noise.bin", noise);
+        entries.put("res/empty.txt", new byte[0]);
+        return entries;
+    }
+
+    private File writeZip(String name, Map<String, byte[]> entries, boolean storeBinaries) throws IOException {
+        File file = tempDir.resolve(name).toFile();
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file.toPath()))) {
+            for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+                ZipEntry entry = new ZipEntry(e.getKey());
+                if (storeBinaries && e.getKey().endsWith(".bin")) {
+                    CRC32 crc = new CRC32();
+                    crc.update(e.getValue());
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(e.getValue().length);
+                    entry.setCompressedSize(e.getValue().length);
+                    entry.setCrc(crc.getValue());
+                }
+                out.putNextEntry(entry);
+                out.write(e.getValue());
+                out.closeEntry();
+            }
+        }
+        return file;
+    }
+
+    private static void assertReadsAll(File file, Map<String, byte[]> expected, boolean memoryMapped) throws IOException {
+        try (ZipReader reader = new ZipReader(file, memoryMapped)) {
+            List<String> names = new ArrayList<>();
+            for (ZipReader.Entry entry : reader.getEntries()) {
+                names.add(entry.getName());
+                assertArrayEquals(expected.get(entry.getName()), reader.readData(entry),
+                        entry.getName() + " should match (mapped: " + memoryMapped + ")");
+            }
+            assertEquals(new ArrayList<>(expected.keySet()), names, "Entries should keep central directory order");
+        }
+    }
+
+    @Test
+    public void testReadMappedAndChannelModes() throws IOException {
+        Map<String, byte[]> entries = createEntries();
+        File zip = writeZip("modes.zip", entries, true);
+
+        assertReadsAll(zip, entries, true);
+        // 超过 2GB 的文件走的定位读取路径
+        assertReadsAll(zip, entries, false);
+    }
+
+    @Test
+    public void testRawCopyOutlivesReader() throws IOException {
+        Map<String, byte[]> entries = createEntries();
+        File zip = writeZip("raw-source.zip", entries, true);
+        File copy = tempDir.resolve("raw-copy.zip").toFile();
+
+        for (boolean memoryMapped : new boolean[]{true, false}) {
+            List<ZipWriter.Entry> raw = new ArrayList<>();
+            try (ZipReader reader = new ZipReader(zip, memoryMapped)) {
+                for (ZipReader.Entry entry : reader.getEntries()) {
+                    raw.add(ZipWriter.raw(entry, reader.rawBuffer(entry)));
+                }
+            }
+            // 读取器关闭后，原始数据视图仍可写出
+            try (ZipWriter writer = new ZipWriter(Files.newOutputStream(copy.toPath()))) {
+                for (ZipWriter.Entry entry : raw) {
+                    writer.write(entry);
+                }
+            }
+
+            try (JarFile jar = new JarFile(copy)) {
+                for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+                    ZipEntry entry = jar.getEntry(e.getKey());
+                    assertNotNull(entry, e.getKey() + " should be copied");
+                    assertArrayEquals(e.getValue(), jar.getInputStream(entry).readAllBytes(),
+                            e.getKey() + " should be copied unchanged (mapped: " + memoryMapped + ")");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testReadZip64() throws IOException {
+        // 条目数超过 65535 时 ZipOutputStream 写出 ZIP64 目录结尾
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 70_000; i++) {
+            entries.put("e/" + i + ".txt", Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+        }
+        File zip = writeZip("zip64.zip", entries, false);
+
+        for (boolean memoryMapped : new boolean[]{true, false}) {
+            try (ZipReader reader = new ZipReader(zip, memoryMapped)) {
+                List<ZipReader.Entry> read = reader.getEntries();
+                assertEquals(70_000, read.size(), "All ZIP64 entries should be listed");
+                ZipReader.Entry last = read.get(read.size() - 1);
+                assertEquals("e/69999.txt", last.getName());
+                assertArrayEquals("69999".getBytes(StandardCharsets.UTF_8), reader.readData(last));
+            }
+        }
+    }
+
+    @Test
+    public void testReadDataRejectsCrcMismatch() throws IOException {
+        Map<String, byte[]> entries = createEntries();
+        File zip = writeZip("corrupt.zip", entries, true);
+
+        // 改写 STORED 条目数据中的一个字节，大小不变，只有 CRC 能发现
+        long dataOffset;
+        try (ZipReader reader = new ZipReader(zip, false)) {
+            ZipReader.Entry noise = reader.getEntries().stream()
+                    .filter(e -> e.getName().equals("res/noise.bin"))
+                    .findFirst()
+                    .orElseThrow();
+            byte[] data = reader.readData(noise);
+            byte[] content = Files.readAllBytes(zip.toPath());
+            dataOffset = indexOf(content, data);
+        }
+        assertTrue(dataOffset > 0, "Stored data should be found in the file");
+        try (RandomAccessFile file = new RandomAccessFile(zip, "rw")) {
+            file.seek(dataOffset + 100);
+            int b = file.read();
+            file.seek(dataOffset + 100);
+            file.write(b ^ 0xFF);
+        }
+
+        for (boolean memoryMapped : new boolean[]{true, false}) {
+            try (ZipReader reader = new ZipReader(zip, memoryMapped)) {
+                for (ZipReader.Entry entry : reader.getEntries()) {
+                    if (entry.getName().equals("res/noise.bin")) {
+                        ZipException e = assertThrows(ZipException.class, () -> reader.readData(entry));
+                        assertTrue(e.getMessage().contains("CRC mismatch"), e.getMessage());
+                    } else {
+                        assertArrayEquals(entries.get(entry.getName()), reader.readData(entry));
+                    }
+                }
+            }
+        }
+    }
+
+    private static long indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}